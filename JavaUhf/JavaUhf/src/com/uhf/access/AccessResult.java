@@ -0,0 +1,95 @@
+package com.uhf.access;
+
+import com.uhf.structures.RwData;
+import com.uhf.utils.StringUtils;
+
+/**
+ * 一次标签读写的结果,rwData为该请求独占的对象
+ */
+public class AccessResult {
+	private final AccessType type;
+	private final int status;               // readTagSync/writeTagSync的返回值
+	private final RwData rwData;
+	private final long queuedMs;            // 排队等待时间
+	private final long accessMs;            // native调用耗时(多次尝试时为总耗时)
+	private final int attempts;             // 尝试次数,0表示由缓存返回
+
+	public AccessResult(AccessType type, int status, RwData rwData, long queuedMs, long accessMs) {
+		this(type, status, rwData, queuedMs, accessMs, 1);
+	}
+
+	public AccessResult(AccessType type, int status, RwData rwData, long queuedMs, long accessMs, int attempts) {
+		this.type = type;
+		this.status = status;
+		this.rwData = rwData;
+		this.queuedMs = queuedMs;
+		this.accessMs = accessMs;
+		this.attempts = attempts;
+	}
+
+	/**
+	 * 调用和标签返回的状态码都为0
+	 */
+	public boolean isSuccess() {
+		return status == 0 && rwData.status == 0;
+	}
+
+	public AccessType getType() {
+		return type;
+	}
+
+	public int getStatus() {
+		return status;
+	}
+
+	public RwData getRwData() {
+		return rwData;
+	}
+
+	/**
+	 * 读到的数据(十六进制),没有数据时为空串
+	 */
+	public String getDataHex() {
+		return rwData.rwDataLen > 0 ? StringUtils.byteToHexString(rwData.rwData, rwData.rwDataLen) : "";
+	}
+
+	/**
+	 * 应答标签的EPC(十六进制),没有时为空串
+	 */
+	public String getEpcHex() {
+		return rwData.epcLen > 0 ? StringUtils.byteToHexString(rwData.epc, rwData.epcLen) : "";
+	}
+
+	public long getQueuedMs() {
+		return queuedMs;
+	}
+
+	public long getAccessMs() {
+		return accessMs;
+	}
+
+	public int getAttempts() {
+		return attempts;
+	}
+
+	/**
+	 * 由TagReadCache返回,没有访问标签
+	 */
+	public boolean isCached() {
+		return attempts == 0;
+	}
+
+	@Override
+	public String toString() {
+		return "AccessResult{" +
+				"type=" + type +
+				", status=" + status +
+				", tagStatus=" + rwData.status +
+				", data=" + getDataHex() +
+				", epc=" + getEpcHex() +
+				", queuedMs=" + queuedMs +
+				", accessMs=" + accessMs +
+				", attempts=" + attempts +
+				'}';
+	}
+}
@@ -0,0 +1,95 @@
+package com.uhf.access;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.uhf.utils.LatencyHistogram;
+
+/**
+ * 一个重试策略的统计:单次尝试耗时(成功/失败分开)、整个操作耗时和成功所需的尝试次数
+ */
+public class AccessStats {
+
+	private static final int MAX_TRACKED_ATTEMPTS = 16;
+
+	private final String policy;
+	private final LatencyHistogram successAttempts = new LatencyHistogram();
+	private final LatencyHistogram failedAttempts = new LatencyHistogram();
+	private final LatencyHistogram operations = new LatencyHistogram();
+	private final AtomicLong succeeded = new AtomicLong();
+	private final AtomicLong failed = new AtomicLong();
+	// 下标为成功时用的尝试次数,最后一格为更多次
+	private final AtomicLongArray attemptsToSuccess = new AtomicLongArray(MAX_TRACKED_ATTEMPTS + 1);
+
+	public AccessStats(String policy) {
+		this.policy = policy;
+	}
+
+	void recordAttempt(boolean success, long latencyMs) {
+		(success ? successAttempts : failedAttempts).record(latencyMs);
+	}
+
+	void recordOperation(boolean success, int attempts, long totalMs) {
+		operations.record(totalMs);
+		if (success) {
+			succeeded.incrementAndGet();
+			attemptsToSuccess.incrementAndGet(Math.min(attempts, MAX_TRACKED_ATTEMPTS));
+		} else {
+			failed.incrementAndGet();
+		}
+	}
+
+	public String getPolicy() {
+		return policy;
+	}
+
+	public LatencyHistogram getSuccessAttempts() {
+		return successAttempts;
+	}
+
+	public LatencyHistogram getFailedAttempts() {
+		return failedAttempts;
+	}
+
+	public LatencyHistogram getOperations() {
+		return operations;
+	}
+
+	public long getSucceeded() {
+		return succeeded.get();
+	}
+
+	public long getFailed() {
+		return failed.get();
+	}
+
+	public double getSuccessRate() {
+		long s = succeeded.get();
+		long total = s + failed.get();
+		return total == 0 ? 0 : s / (double) total;
+	}
+
+	/**
+	 * 成功时恰好用了attempts次尝试的操作数
+	 */
+	public long getAttemptsToSuccess(int attempts) {
+		return attemptsToSuccess.get(Math.min(attempts, MAX_TRACKED_ATTEMPTS));
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder attempts = new StringBuilder();
+		for (int i = 1; i <= MAX_TRACKED_ATTEMPTS; i++) {
+			long c = attemptsToSuccess.get(i);
+			if (c > 0) {
+				attempts.append(attempts.length() == 0 ? "" : " ").append(i).append(':').append(c);
+			}
+		}
+		return policy + ": ok=" + succeeded + " fail=" + failed
+				+ String.format(" rate=%.2f", getSuccessRate())
+				+ "\n  attempts-to-success {" + attempts + "}"
+				+ "\n  ok-attempt   " + successAttempts
+				+ "\n  fail-attempt " + failedAttempts
+				+ "\n  operation    " + operations;
+	}
+}
@@ -0,0 +1,9 @@
+package com.uhf.access;
+
+/**
+ * 标签访问类型
+ */
+public enum AccessType {
+	READ,
+	WRITE
+}
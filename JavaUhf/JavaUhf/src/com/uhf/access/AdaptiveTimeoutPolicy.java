@@ -0,0 +1,90 @@
+package com.uhf.access;
+
+/**
+ * 按最近成功访问的耗时自适应超时(类似TCP的RTO):超时 = 平滑耗时 + 4 x 耗时偏差,
+ * 每次重试翻倍,标签RSSI弱于weakRssi时再翻倍;结果限制在[minTimeoutMs, maxTimeoutMs],并受总预算约束
+ * 还没有样本时使用maxTimeoutMs
+ */
+public class AdaptiveTimeoutPolicy implements RetryPolicy {
+
+	private static final double GAIN = 0.125;       // 平滑耗时的权重
+	private static final double DEV_GAIN = 0.25;    // 偏差的权重
+
+	private final int maxAttempts;
+	private final int minTimeoutMs;
+	private final int maxTimeoutMs;
+	private final long budgetMs;
+	private int weakRssi = -70;
+
+	private double smoothedMs = -1;
+	private double deviationMs;
+
+	/**
+	 * @param budgetMs 整个操作的时间预算,0表示不限
+	 */
+	public AdaptiveTimeoutPolicy(int maxAttempts, int minTimeoutMs, int maxTimeoutMs, long budgetMs) {
+		this.maxAttempts = maxAttempts;
+		this.minTimeoutMs = minTimeoutMs;
+		this.maxTimeoutMs = maxTimeoutMs;
+		this.budgetMs = budgetMs;
+	}
+
+	/**
+	 * RSSI低于该值(且不为0)视为弱信号,超时加倍;单位与InventoryData.rssi相同
+	 */
+	public void setWeakRssi(int weakRssi) {
+		this.weakRssi = weakRssi;
+	}
+
+	@Override
+	public String getName() {
+		return "adaptive(" + minTimeoutMs + "-" + maxTimeoutMs + "ms)";
+	}
+
+	@Override
+	public synchronized int timeoutMs(int attempt, long elapsedMs, int rssi) {
+		if (attempt >= maxAttempts) {
+			return 0;
+		}
+		double timeout = smoothedMs < 0 ? maxTimeoutMs : smoothedMs + 4 * deviationMs;
+		timeout *= 1 << Math.min(attempt, 16);
+		if (rssi != 0 && rssi < weakRssi) {
+			timeout *= 2;
+		}
+		long t = Math.max(minTimeoutMs, Math.min(maxTimeoutMs, (long) Math.ceil(timeout)));
+		if (budgetMs > 0) {
+			long remaining = budgetMs - elapsedMs;
+			if (remaining < minTimeoutMs) {
+				return 0;
+			}
+			t = Math.min(t, remaining);
+		}
+		return (int) t;
+	}
+
+	@Override
+	public long backoffMs(int attempt) {
+		return 0;
+	}
+
+	/**
+	 * 只用成功的耗时更新估计;失败的耗时通常就是超时本身,不代表标签的响应时间
+	 */
+	@Override
+	public synchronized void onAttempt(boolean success, long latencyMs, int timeoutMs, int rssi) {
+		if (!success) {
+			return;
+		}
+		if (smoothedMs < 0) {
+			smoothedMs = latencyMs;
+			deviationMs = latencyMs / 2.0;
+		} else {
+			deviationMs += DEV_GAIN * (Math.abs(latencyMs - smoothedMs) - deviationMs);
+			smoothedMs += GAIN * (latencyMs - smoothedMs);
+		}
+	}
+
+	public synchronized double getSmoothedMs() {
+		return smoothedMs;
+	}
+}
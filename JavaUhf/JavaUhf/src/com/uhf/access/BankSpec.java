@@ -0,0 +1,38 @@
+package com.uhf.access;
+
+/**
+ * 要读取的存储区范围:区号(1=EPC,2=TID,3=USER)、起始地址和字长度
+ */
+public final class BankSpec {
+	public final int memBank;
+	public final int startAddr;
+	public final int wordLen;
+
+	public BankSpec(int memBank, int startAddr, int wordLen) {
+		this.memBank = memBank;
+		this.startAddr = startAddr;
+		this.wordLen = wordLen;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) {
+			return true;
+		}
+		if (!(o instanceof BankSpec)) {
+			return false;
+		}
+		BankSpec other = (BankSpec) o;
+		return memBank == other.memBank && startAddr == other.startAddr && wordLen == other.wordLen;
+	}
+
+	@Override
+	public int hashCode() {
+		return (memBank * 31 + startAddr) * 31 + wordLen;
+	}
+
+	@Override
+	public String toString() {
+		return "bank" + memBank + "@" + startAddr + "+" + wordLen;
+	}
+}
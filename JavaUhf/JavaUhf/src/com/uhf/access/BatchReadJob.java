@@ -0,0 +1,141 @@
+package com.uhf.access;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import com.uhf.driver.ReaderDriver;
+import com.uhf.structures.RwData;
+import com.uhf.utils.StringUtils;
+
+/**
+ * 多标签批量读取:在一个访问窗口内读完所有标签的所有存储区范围
+ * 窗口开始时停止一次盘点,结束后按需恢复一次盘点,而不是每个标签切换一次
+ *
+ * 读写器接口没有选择(Select)指定标签的功能,readTagSync由场内任一标签应答,
+ * 因此按应答中的EPC把数据记到对应标签下;每个范围反复读取,只剩未读到的标签时继续重试,
+ * 直到全部读到或用完 标签数 x maxAttemptsPerTag 次尝试
+ */
+public class BatchReadJob {
+
+	private final List<String> epcs = new ArrayList<>();
+	private final List<BankSpec> specs;
+	private byte[] password = new byte[4];
+	private int readTimeoutMs = 500;
+	private int maxAttemptsPerTag = 5;
+	private long deadlineMs;
+	private int resumeInventoryMode = ReaderDriver.RESUME_PREVIOUS;
+
+	public BatchReadJob(List<String> epcs, List<BankSpec> specs) {
+		for (String epc : epcs) {
+			this.epcs.add(epc.toUpperCase());
+		}
+		this.specs = new ArrayList<>(specs);
+	}
+
+	public void setPassword(byte[] password) {
+		this.password = password.clone();
+	}
+
+	/**
+	 * 单次readTagSync的超时
+	 */
+	public void setReadTimeoutMs(int readTimeoutMs) {
+		this.readTimeoutMs = readTimeoutMs;
+	}
+
+	public void setMaxAttemptsPerTag(int maxAttemptsPerTag) {
+		this.maxAttemptsPerTag = maxAttemptsPerTag;
+	}
+
+	/**
+	 * 整个批次的时间上限,0表示不限
+	 */
+	public void setDeadlineMs(long deadlineMs) {
+		this.deadlineMs = deadlineMs;
+	}
+
+	/**
+	 * 结束后以该模式恢复盘点,-1表示不恢复;默认ReaderDriver.RESUME_PREVIOUS,即恢复开始前的盘点状态
+	 */
+	public void setResumeInventoryMode(int resumeInventoryMode) {
+		this.resumeInventoryMode = resumeInventoryMode;
+	}
+
+	/**
+	 * 提交到访问队列,在访问线程上执行,期间其他读写请求排队
+	 */
+	public CompletableFuture<BatchReadResult> submit(TagAccessQueue queue) {
+		return queue.inWindow(new TagAccessQueue.AccessWindow<BatchReadResult>() {
+			@Override
+			public BatchReadResult run(ReaderDriver driver) {
+				return execute(driver);
+			}
+		});
+	}
+
+	/**
+	 * 在当前线程上同步执行
+	 */
+	public BatchReadResult execute(ReaderDriver driver) {
+		long start = System.nanoTime();
+		long deadline = deadlineMs > 0 ? start + TimeUnit.MILLISECONDS.toNanos(deadlineMs) : Long.MAX_VALUE;
+		Map<String, TagReadResult> tags = new LinkedHashMap<>();
+		for (String epc : epcs) {
+			tags.put(epc, new TagReadResult(epc));
+		}
+		int attempts = 0;
+		int redundant = 0;
+		int foreign = 0;
+		int failed = 0;
+
+		int previousMode = driver.getInventoryMode();
+		driver.stopInventory();
+		try {
+			for (BankSpec spec : specs) {
+				Set<String> pending = new HashSet<>(tags.keySet());
+				int budget = pending.size() * maxAttemptsPerTag;
+				for (int i = 0; i < budget && !pending.isEmpty() && System.nanoTime() < deadline; i++) {
+					RwData rwData = new RwData();
+					int status = driver.readTagSync(password, spec.memBank, spec.startAddr, spec.wordLen,
+							readTimeoutMs, rwData);
+					attempts++;
+					String epc = rwData.epcLen > 0 ? StringUtils.byteToHexString(rwData.epc, rwData.epcLen) : null;
+					if (status != 0 || rwData.status != 0) {
+						failed++;
+						if (epc != null && pending.contains(epc)) {
+							tags.get(epc).fail(spec, status != 0 ? status : rwData.status);
+						}
+						continue;
+					}
+					if (epc == null || !tags.containsKey(epc)) {
+						foreign++;
+					} else if (pending.remove(epc)) {
+						tags.get(epc).put(spec, rwData.rwDataLen > 0
+								? StringUtils.byteToHexString(rwData.rwData, rwData.rwDataLen) : "");
+					} else {
+						redundant++;
+					}
+				}
+				for (String epc : pending) {
+					TagReadResult r = tags.get(epc);
+					if (!r.getFailures().containsKey(spec)) {
+						r.fail(spec, -1);
+					}
+				}
+			}
+		} finally {
+			int mode = resumeInventoryMode == ReaderDriver.RESUME_PREVIOUS ? previousMode : resumeInventoryMode;
+			if (mode >= 0) {
+				driver.startInventory(mode, 0);
+			}
+		}
+		return new BatchReadResult(tags, attempts, redundant, foreign, failed,
+				TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+	}
+}
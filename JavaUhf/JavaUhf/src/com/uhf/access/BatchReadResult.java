@@ -0,0 +1,79 @@
+package com.uhf.access;
+
+import java.util.Map;
+
+/**
+ * 批量读取的结果,按EPC(十六进制大写)索引,顺序与输入一致
+ */
+public class BatchReadResult {
+	private final Map<String, TagReadResult> tags;
+	private final int attempts;             // readTagSync调用次数
+	private final int redundantReads;       // 应答标签的该范围已经读到过
+	private final int foreignReads;         // 应答标签不在列表中
+	private final int failedReads;          // 调用或标签返回非0状态
+	private final long elapsedMs;
+
+	public BatchReadResult(Map<String, TagReadResult> tags, int attempts, int redundantReads, int foreignReads,
+			int failedReads, long elapsedMs) {
+		this.tags = tags;
+		this.attempts = attempts;
+		this.redundantReads = redundantReads;
+		this.foreignReads = foreignReads;
+		this.failedReads = failedReads;
+		this.elapsedMs = elapsedMs;
+	}
+
+	public Map<String, TagReadResult> getTags() {
+		return tags;
+	}
+
+	public TagReadResult get(String epc) {
+		return tags.get(epc.toUpperCase());
+	}
+
+	/**
+	 * 所有范围都读到的标签数量
+	 */
+	public int getCompleteCount() {
+		int n = 0;
+		for (TagReadResult r : tags.values()) {
+			if (r.isComplete()) {
+				n++;
+			}
+		}
+		return n;
+	}
+
+	public int getAttempts() {
+		return attempts;
+	}
+
+	public int getRedundantReads() {
+		return redundantReads;
+	}
+
+	public int getForeignReads() {
+		return foreignReads;
+	}
+
+	public int getFailedReads() {
+		return failedReads;
+	}
+
+	public long getElapsedMs() {
+		return elapsedMs;
+	}
+
+	@Override
+	public String toString() {
+		return "BatchReadResult{" +
+				"tags=" + tags.size() +
+				", complete=" + getCompleteCount() +
+				", attempts=" + attempts +
+				", redundant=" + redundantReads +
+				", foreign=" + foreignReads +
+				", failed=" + failedReads +
+				", elapsedMs=" + elapsedMs +
+				'}';
+	}
+}
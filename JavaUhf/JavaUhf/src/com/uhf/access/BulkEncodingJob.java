@@ -0,0 +1,354 @@
+package com.uhf.access;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import com.uhf.driver.ReaderDriver;
+import com.uhf.structures.RwData;
+import com.uhf.utils.StringUtils;
+
+/**
+ * 批量写入(发卡):按清单把数据写到场内的多个标签,写入后回读校验,进度记入日志以便中断后继续
+ *
+ * 读写器不能选择指定标签,读写由场内任一标签应答,因此按"读-写"流水线工作:
+ * 每次读取目标范围,按应答中的EPC(TID清单先读一次TID对应到EPC)找到清单条目,
+ * 内容已是目标数据则完成,否则写入;写入后不立即回读,而是等该标签下一次应答时校验,
+ * 这次读取同时也是识别下一个标签的读取,省去单独的校验读取
+ * 清单按存储区范围分组依次处理;整个过程只停止/恢复一次盘点
+ * 适合发卡台/传送带(场内同时只有一个待写标签);多个标签同时在场时写入可能由另一个标签应答,
+ * 记为MISDIRECTED_WRITE,该标签若在清单中会在下次应答时被重写
+ */
+public class BulkEncodingJob {
+
+	private static final int BANK_EPC = 1;
+	private static final int BANK_TID = 2;
+	private static final int EPC_START_ADDR = 2;
+
+	private final List<EncodingEntry> entries;
+	private byte[] password = new byte[4];
+	private int accessTimeoutMs = 500;
+	private int maxAttemptsPerTag = 8;
+	private int maxWritesPerTag = 3;
+	private int tidWordLen = 6;
+	private long deadlineMs;
+	private int resumeInventoryMode = ReaderDriver.RESUME_PREVIOUS;
+	private EncodingJournal journal;
+
+	public BulkEncodingJob(List<EncodingEntry> entries) {
+		this.entries = new ArrayList<>(entries);
+	}
+
+	/**
+	 * 读取清单文件,每行: EPC|TID,标签EPC或TID,区号,起始地址,数据(十六进制);#开头为注释
+	 */
+	public static List<EncodingEntry> loadManifest(File file) throws IOException {
+		List<EncodingEntry> list = new ArrayList<>();
+		try (BufferedReader reader = new BufferedReader(
+				new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+			String line;
+			int lineNo = 0;
+			while ((line = reader.readLine()) != null) {
+				lineNo++;
+				line = line.trim();
+				if (line.isEmpty() || line.startsWith("#")) {
+					continue;
+				}
+				String[] f = line.split("\\s*,\\s*");
+				try {
+					list.add(new EncodingEntry(EncodingEntry.KeyType.valueOf(f[0].toUpperCase()), f[1],
+							Integer.parseInt(f[2]), Integer.parseInt(f[3]), f[4]));
+				} catch (RuntimeException e) {
+					throw new IOException(file + ":" + lineNo + ": bad manifest line: " + line, e);
+				}
+			}
+		}
+		return list;
+	}
+
+	public void setPassword(byte[] password) {
+		this.password = password.clone();
+	}
+
+	/**
+	 * 单次readTagSync/writeTagSync的超时
+	 */
+	public void setAccessTimeoutMs(int accessTimeoutMs) {
+		this.accessTimeoutMs = accessTimeoutMs;
+	}
+
+	/**
+	 * 每组读取次数上限 = 该组未完成条目数 x maxAttemptsPerTag
+	 */
+	public void setMaxAttemptsPerTag(int maxAttemptsPerTag) {
+		this.maxAttemptsPerTag = maxAttemptsPerTag;
+	}
+
+	/**
+	 * 每个条目最多写入次数,超过后仍校验不通过即失败
+	 */
+	public void setMaxWritesPerTag(int maxWritesPerTag) {
+		this.maxWritesPerTag = maxWritesPerTag;
+	}
+
+	/**
+	 * TID清单识别标签时读取的TID长度(word),需与清单中TID的长度一致
+	 */
+	public void setTidWordLen(int tidWordLen) {
+		this.tidWordLen = tidWordLen;
+	}
+
+	/**
+	 * 整个任务的时间上限,0表示不限
+	 */
+	public void setDeadlineMs(long deadlineMs) {
+		this.deadlineMs = deadlineMs;
+	}
+
+	/**
+	 * 结束后以该模式恢复盘点,-1表示不恢复;默认ReaderDriver.RESUME_PREVIOUS,即恢复开始前的盘点状态
+	 */
+	public void setResumeInventoryMode(int resumeInventoryMode) {
+		this.resumeInventoryMode = resumeInventoryMode;
+	}
+
+	/**
+	 * 进度日志,日志中已完成的条目不再处理
+	 */
+	public void setJournal(EncodingJournal journal) {
+		this.journal = journal;
+	}
+
+	/**
+	 * 提交到访问队列,在访问线程上执行,期间其他读写请求排队
+	 */
+	public CompletableFuture<BulkEncodingResult> submit(TagAccessQueue queue) {
+		return queue.inWindow(new TagAccessQueue.AccessWindow<BulkEncodingResult>() {
+			@Override
+			public BulkEncodingResult run(ReaderDriver driver) {
+				return execute(driver);
+			}
+		});
+	}
+
+	/**
+	 * 在当前线程上同步执行
+	 */
+	public BulkEncodingResult execute(ReaderDriver driver) {
+		return new Run(driver).execute();
+	}
+
+	/**
+	 * 一次执行的状态
+	 */
+	private class Run {
+		private final ReaderDriver driver;
+		private final long start = System.nanoTime();
+		private final long deadline;
+		private final Map<String, String> tidOfEpc = new HashMap<>();
+		private final Map<String, Integer> errors = new LinkedHashMap<>();
+		private int reads;
+		private int writes;
+		private int foreign;
+		private int redundant;
+		private int misdirected;
+		private int mismatches;
+
+		Run(ReaderDriver driver) {
+			this.driver = driver;
+			this.deadline = deadlineMs > 0 ? start + TimeUnit.MILLISECONDS.toNanos(deadlineMs) : Long.MAX_VALUE;
+		}
+
+		BulkEncodingResult execute() {
+			Map<BankSpec, List<EncodingEntry>> groups = new LinkedHashMap<>();
+			for (EncodingEntry e : entries) {
+				e.reset();
+				if (journal != null && journal.isDone(e)) {
+					e.setStatus(EncodingStatus.RESUMED);
+					continue;
+				}
+				List<EncodingEntry> group = groups.get(e.getSpec());
+				if (group == null) {
+					group = new ArrayList<>();
+					groups.put(e.getSpec(), group);
+				}
+				group.add(e);
+			}
+			if (!groups.isEmpty()) {
+				int previousMode = driver.getInventoryMode();
+				driver.stopInventory();
+				try {
+					for (Map.Entry<BankSpec, List<EncodingEntry>> g : groups.entrySet()) {
+						encode(g.getKey(), g.getValue());
+					}
+				} finally {
+					int mode = resumeInventoryMode == ReaderDriver.RESUME_PREVIOUS ? previousMode : resumeInventoryMode;
+					if (mode >= 0) {
+						driver.startInventory(mode, 0);
+					}
+				}
+			}
+			return new BulkEncodingResult(entries, reads, writes, foreign, redundant, misdirected, mismatches,
+					errors, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+		}
+
+		private void encode(BankSpec spec, List<EncodingEntry> group) {
+			Map<String, EncodingEntry> byEpc = new HashMap<>();
+			Map<String, EncodingEntry> byTid = new HashMap<>();
+			for (EncodingEntry e : group) {
+				(e.getKeyType() == EncodingEntry.KeyType.EPC ? byEpc : byTid).put(e.getKey(), e);
+			}
+			int pending = group.size();
+			int budget = pending * maxAttemptsPerTag;
+			for (int i = 0; i < budget && pending > 0 && System.nanoTime() < deadline; i++) {
+				RwData rw = new RwData();
+				int status = driver.readTagSync(password, spec.memBank, spec.startAddr, spec.wordLen,
+						accessTimeoutMs, rw);
+				reads++;
+				String epc = epcOf(rw);
+				EncodingEntry e = epc != null ? find(epc, byEpc, byTid) : null;
+				if (status != 0 || rw.status != 0) {
+					String reason = reason("read", status, rw);
+					if (e != null && e.getStatus() == EncodingStatus.PENDING) {
+						e.setFailure(reason);
+					}
+					continue;
+				}
+				if (e == null) {
+					foreign++;
+					continue;
+				}
+				if (e.getStatus() != EncodingStatus.PENDING) {
+					redundant++;
+					continue;
+				}
+				String content = rw.rwDataLen > 0 ? StringUtils.byteToHexString(rw.rwData, rw.rwDataLen) : "";
+				if (content.equalsIgnoreCase(e.getDataHex())) {
+					complete(e, e.getWrites() > 0 ? EncodingStatus.VERIFIED : EncodingStatus.ALREADY_ENCODED);
+					pending--;
+					continue;
+				}
+				if (e.getWrites() > 0) {
+					mismatches++;
+					e.setFailure("VERIFY_MISMATCH");
+				}
+				if (e.getWrites() >= maxWritesPerTag) {
+					e.setStatus(EncodingStatus.FAILED);
+					pending--;
+					continue;
+				}
+				write(spec, e, epc, byEpc);
+			}
+			for (EncodingEntry e : group) {
+				if (e.getStatus() == EncodingStatus.PENDING) {
+					e.setStatus(EncodingStatus.FAILED);
+					if (e.getFailure() == null) {
+						e.setFailure(System.nanoTime() < deadline ? "NOT_SEEN" : "DEADLINE");
+					}
+				}
+			}
+		}
+
+		private void write(BankSpec spec, EncodingEntry e, String epc, Map<String, EncodingEntry> byEpc) {
+			RwData rw = new RwData();
+			int status = driver.writeTagSync(password, spec.memBank, spec.startAddr, spec.wordLen, e.data(),
+					accessTimeoutMs, rw);
+			writes++;
+			e.wrote();
+			if (status != 0 || rw.status != 0) {
+				e.setFailure(reason("write", status, rw));
+				return;
+			}
+			String written = epcOf(rw);
+			if (written != null && !written.equals(epc)) {
+				// 数据写到了另一个标签;该标签若在清单中,下次应答时会因内容不符被重写
+				misdirected++;
+				count("MISDIRECTED_WRITE");
+				e.setFailure("MISDIRECTED_WRITE");
+				return;
+			}
+			if (spec.memBank == BANK_EPC && spec.startAddr == EPC_START_ADDR && e.data().length == epc.length() / 2) {
+				// 改写了EPC,之后按新EPC应答
+				byEpc.put(e.getDataHex(), e);
+				String tid = tidOfEpc.get(epc);
+				if (tid != null) {
+					tidOfEpc.put(e.getDataHex(), tid);
+				}
+			}
+		}
+
+		private EncodingEntry find(String epc, Map<String, EncodingEntry> byEpc, Map<String, EncodingEntry> byTid) {
+			EncodingEntry e = byEpc.get(epc);
+			if (e != null || byTid.isEmpty()) {
+				return e;
+			}
+			String tid = tidOfEpc.get(epc);
+			if (tid == null) {
+				tid = readTid(epc);
+				if (tid == null) {
+					return null;
+				}
+			}
+			return byTid.get(tid);
+		}
+
+		/**
+		 * 读取TID并记下EPC到TID的对应;应答来自另一个标签时也记下,但返回null
+		 */
+		private String readTid(String epc) {
+			RwData rw = new RwData();
+			int status = driver.readTagSync(password, BANK_TID, 0, tidWordLen, accessTimeoutMs, rw);
+			reads++;
+			String answered = epcOf(rw);
+			if (status != 0 || rw.status != 0) {
+				reason("read", status, rw);
+				return null;
+			}
+			if (answered == null || rw.rwDataLen <= 0) {
+				count("read:empty");
+				return null;
+			}
+			String tid = StringUtils.byteToHexString(rw.rwData, rw.rwDataLen);
+			tidOfEpc.put(answered, tid);
+			return answered.equals(epc) ? tid : null;
+		}
+
+		private void complete(EncodingEntry e, EncodingStatus status) {
+			e.setStatus(status);
+			if (journal != null) {
+				try {
+					journal.record(e);
+				} catch (IOException ex) {
+					throw new UncheckedIOException(ex);
+				}
+			}
+		}
+
+		private String reason(String op, int status, RwData rw) {
+			String reason = status != 0 ? op + ":reader=" + status
+					: op + ":tag=0x" + Integer.toHexString(rw.status).toUpperCase();
+			count(reason);
+			return reason;
+		}
+
+		private void count(String reason) {
+			Integer n = errors.get(reason);
+			errors.put(reason, n == null ? 1 : n + 1);
+		}
+	}
+
+	private static String epcOf(RwData rw) {
+		return rw.epcLen > 0 && rw.epc != null ? StringUtils.byteToHexString(rw.epc, rw.epcLen) : null;
+	}
+}
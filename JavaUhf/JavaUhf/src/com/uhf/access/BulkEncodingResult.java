@@ -0,0 +1,107 @@
+package com.uhf.access;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 批量写入的结果:每个条目的状态、读写次数、失败原因统计和吞吐
+ */
+public class BulkEncodingResult {
+	private final List<EncodingEntry> entries;
+	private final int reads;                // readTagSync调用次数(含识别TID)
+	private final int writes;               // writeTagSync调用次数
+	private final int foreignReads;         // 应答标签不在清单中
+	private final int redundantReads;       // 应答标签已经完成
+	private final int misdirectedWrites;    // 写入应答来自另一个标签
+	private final int verifyMismatches;     // 写入后回读与目标数据不一致
+	private final Map<String, Integer> operationErrors;    // 每次读写失败的原因及次数
+	private final long elapsedMs;
+
+	public BulkEncodingResult(List<EncodingEntry> entries, int reads, int writes, int foreignReads,
+			int redundantReads, int misdirectedWrites, int verifyMismatches, Map<String, Integer> operationErrors,
+			long elapsedMs) {
+		this.entries = entries;
+		this.reads = reads;
+		this.writes = writes;
+		this.foreignReads = foreignReads;
+		this.redundantReads = redundantReads;
+		this.misdirectedWrites = misdirectedWrites;
+		this.verifyMismatches = verifyMismatches;
+		this.operationErrors = operationErrors;
+		this.elapsedMs = elapsedMs;
+	}
+
+	public List<EncodingEntry> getEntries() {
+		return entries;
+	}
+
+	public int getCount(EncodingStatus status) {
+		int n = 0;
+		for (EncodingEntry e : entries) {
+			if (e.getStatus() == status) {
+				n++;
+			}
+		}
+		return n;
+	}
+
+	/**
+	 * 本次完成(写入校验通过或已是目标数据)的标签每分钟数量
+	 */
+	public double getTagsPerMinute() {
+		int done = getCount(EncodingStatus.VERIFIED) + getCount(EncodingStatus.ALREADY_ENCODED);
+		return elapsedMs > 0 ? done * 60000.0 / elapsedMs : 0;
+	}
+
+	public int getReads() {
+		return reads;
+	}
+
+	public int getWrites() {
+		return writes;
+	}
+
+	public int getForeignReads() {
+		return foreignReads;
+	}
+
+	public int getRedundantReads() {
+		return redundantReads;
+	}
+
+	public int getMisdirectedWrites() {
+		return misdirectedWrites;
+	}
+
+	public int getVerifyMismatches() {
+		return verifyMismatches;
+	}
+
+	public Map<String, Integer> getOperationErrors() {
+		return operationErrors;
+	}
+
+	public long getElapsedMs() {
+		return elapsedMs;
+	}
+
+	@Override
+	public String toString() {
+		return "BulkEncodingResult{" +
+				"entries=" + entries.size() +
+				", verified=" + getCount(EncodingStatus.VERIFIED) +
+				", alreadyEncoded=" + getCount(EncodingStatus.ALREADY_ENCODED) +
+				", resumed=" + getCount(EncodingStatus.RESUMED) +
+				", failed=" + getCount(EncodingStatus.FAILED) +
+				", reads=" + reads +
+				", writes=" + writes +
+				", foreign=" + foreignReads +
+				", redundant=" + redundantReads +
+				", misdirected=" + misdirectedWrites +
+				", verifyMismatches=" + verifyMismatches +
+				", errors=" + operationErrors +
+				", tagsPerMin=" + String.format("%.1f", getTagsPerMinute()) +
+				", elapsedMs=" + elapsedMs +
+				'}';
+	}
+}
@@ -0,0 +1,166 @@
+package com.uhf.access;
+
+import com.uhf.driver.ReaderDriver;
+import com.uhf.structures.InventoryArea;
+import com.uhf.structures.OnInventoryListener;
+import com.uhf.structures.OnInventoryRecordListener;
+import com.uhf.structures.OnRwListener;
+import com.uhf.structures.RwData;
+import com.uhf.structures.SerialNumber;
+import com.uhf.structures.SoftVersion;
+
+/**
+ * 包装一个驱动,每次writeTagSync之后调用TagReadCache.onWrite,其余方法原样转发
+ * 使用缓存时所有写入方(RetryingAccessor、TagAccessQueue、BulkEncodingJob、直接调用驱动的demo)都应拿到这个包装,
+ * 否则绕过它的写入不会使缓存失效;一般在连接前用ReaderDrivers.setDefault(wrap(...))替换默认驱动
+ */
+public class CacheInvalidatingReaderDriver implements ReaderDriver {
+
+	private final ReaderDriver driver;
+	private final TagReadCache cache;
+
+	private CacheInvalidatingReaderDriver(ReaderDriver driver, TagReadCache cache) {
+		this.driver = driver;
+		this.cache = cache;
+	}
+
+	/**
+	 * 包装driver;driver已经是同一个缓存的包装时原样返回,不重复失效
+	 */
+	public static ReaderDriver wrap(ReaderDriver driver, TagReadCache cache) {
+		if (driver instanceof CacheInvalidatingReaderDriver && ((CacheInvalidatingReaderDriver) driver).cache == cache) {
+			return driver;
+		}
+		return new CacheInvalidatingReaderDriver(driver, cache);
+	}
+
+	public ReaderDriver getDriver() {
+		return driver;
+	}
+
+	public TagReadCache getCache() {
+		return cache;
+	}
+
+	@Override
+	public int writeTagSync(byte[] accessPassword, int memBank, int startAddr, int wordLen, byte[] pWriteData,
+			int timeOutMs, RwData rwData) {
+		try {
+			return driver.writeTagSync(accessPassword, memBank, startAddr, wordLen, pWriteData, timeOutMs, rwData);
+		} finally {
+			// 无论成败,失败的写入也可能改了部分数据
+			cache.onWrite(memBank, startAddr, wordLen, rwData);
+		}
+	}
+
+	@Override
+	public int readTagSync(byte[] accessPassword, int memBank, int startAddr, int wordLen, int timeOutMs,
+			RwData rwData) {
+		return driver.readTagSync(accessPassword, memBank, startAddr, wordLen, timeOutMs, rwData);
+	}
+
+	@Override
+	public int initRFID() {
+		return driver.initRFID();
+	}
+
+	@Override
+	public int deinitRFID() {
+		return driver.deinitRFID();
+	}
+
+	@Override
+	public int setRFModuleType(int moduleType) {
+		return driver.setRFModuleType(moduleType);
+	}
+
+	@Override
+	public int setRFConnectMode(int flag) {
+		return driver.setRFConnectMode(flag);
+	}
+
+	@Override
+	public int openCom(String port, long baud) {
+		return driver.openCom(port, baud);
+	}
+
+	@Override
+	public int closeCom() {
+		return driver.closeCom();
+	}
+
+	@Override
+	public int getModuleSerialNumber(SerialNumber serialNumber) {
+		return driver.getModuleSerialNumber(serialNumber);
+	}
+
+	@Override
+	public int getModuleSoftVersion(SoftVersion softVersion) {
+		return driver.getModuleSoftVersion(softVersion);
+	}
+
+	@Override
+	public int connect(String port) {
+		return driver.connect(port);
+	}
+
+	@Override
+	public int disconnect() {
+		return driver.disconnect();
+	}
+
+	@Override
+	public String getPort() {
+		return driver.getPort();
+	}
+
+	@Override
+	public String getSerialNo() {
+		return driver.getSerialNo();
+	}
+
+	@Override
+	public int setInventoryArea(InventoryArea inventoryArea) {
+		return driver.setInventoryArea(inventoryArea);
+	}
+
+	@Override
+	public int getInventoryArea(InventoryArea inventoryArea) {
+		return driver.getInventoryArea(inventoryArea);
+	}
+
+	@Override
+	public int startInventory(int mode, int maskFlag) {
+		return driver.startInventory(mode, maskFlag);
+	}
+
+	@Override
+	public int stopInventory() {
+		return driver.stopInventory();
+	}
+
+	@Override
+	public int getInventoryMode() {
+		return driver.getInventoryMode();
+	}
+
+	@Override
+	public void setOnInventoryListener(OnInventoryListener onInventoryListener) {
+		driver.setOnInventoryListener(onInventoryListener);
+	}
+
+	@Override
+	public OnInventoryListener getOnInventoryListener() {
+		return driver.getOnInventoryListener();
+	}
+
+	@Override
+	public void setOnInventoryRecordListener(OnInventoryRecordListener onInventoryRecordListener) {
+		driver.setOnInventoryRecordListener(onInventoryRecordListener);
+	}
+
+	@Override
+	public void setOnRwListener(OnRwListener onRwListener) {
+		driver.setOnRwListener(onRwListener);
+	}
+}
@@ -0,0 +1,40 @@
+package com.uhf.access;
+
+/**
+ * 整个操作有总时间预算:每次尝试的超时不超过剩余预算,剩余不足minTimeoutMs时放弃
+ */
+public class DeadlineBudgetPolicy implements RetryPolicy {
+
+	private final long budgetMs;
+	private final int attemptTimeoutMs;
+	private final int minTimeoutMs;
+
+	public DeadlineBudgetPolicy(long budgetMs, int attemptTimeoutMs, int minTimeoutMs) {
+		this.budgetMs = budgetMs;
+		this.attemptTimeoutMs = attemptTimeoutMs;
+		this.minTimeoutMs = minTimeoutMs;
+	}
+
+	@Override
+	public String getName() {
+		return "budget(" + budgetMs + "ms)";
+	}
+
+	@Override
+	public int timeoutMs(int attempt, long elapsedMs, int rssi) {
+		long remaining = budgetMs - elapsedMs;
+		if (remaining < minTimeoutMs) {
+			return 0;
+		}
+		return (int) Math.min(attemptTimeoutMs, remaining);
+	}
+
+	@Override
+	public long backoffMs(int attempt) {
+		return 0;
+	}
+
+	@Override
+	public void onAttempt(boolean success, long latencyMs, int timeoutMs, int rssi) {
+	}
+}
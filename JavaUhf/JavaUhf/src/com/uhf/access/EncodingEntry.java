@@ -0,0 +1,123 @@
+package com.uhf.access;
+
+import com.uhf.utils.StringUtils;
+
+/**
+ * 批量写入清单中的一条:按EPC或TID指定标签,把data写到memBank的startAddr处(长度为data的word数)
+ * 运行状态(状态、写入次数、失败原因)由BulkEncodingJob更新
+ */
+public class EncodingEntry {
+
+	public enum KeyType {
+		EPC, TID
+	}
+
+	private final KeyType keyType;
+	private final String key;
+	private final BankSpec spec;
+	private final byte[] data;
+	private final String dataHex;
+
+	private EncodingStatus status = EncodingStatus.PENDING;
+	private int writes;
+	private String failure;
+
+	public EncodingEntry(KeyType keyType, String key, int memBank, int startAddr, String dataHex) {
+		if (dataHex.length() == 0 || dataHex.length() % 4 != 0) {
+			throw new IllegalArgumentException("data must be whole words: " + dataHex);
+		}
+		this.keyType = keyType;
+		this.key = key.toUpperCase();
+		this.dataHex = dataHex.toUpperCase();
+		this.data = StringUtils.stringToByte(this.dataHex);
+		this.spec = new BankSpec(memBank, startAddr, data.length / 2);
+	}
+
+	public static EncodingEntry forEpc(String epc, int memBank, int startAddr, String dataHex) {
+		return new EncodingEntry(KeyType.EPC, epc, memBank, startAddr, dataHex);
+	}
+
+	public static EncodingEntry forTid(String tid, int memBank, int startAddr, String dataHex) {
+		return new EncodingEntry(KeyType.TID, tid, memBank, startAddr, dataHex);
+	}
+
+	public KeyType getKeyType() {
+		return keyType;
+	}
+
+	public String getKey() {
+		return key;
+	}
+
+	/**
+	 * 写入的存储区范围
+	 */
+	public BankSpec getSpec() {
+		return spec;
+	}
+
+	public byte[] getData() {
+		return data.clone();
+	}
+
+	byte[] data() {
+		return data;
+	}
+
+	public String getDataHex() {
+		return dataHex;
+	}
+
+	public EncodingStatus getStatus() {
+		return status;
+	}
+
+	public int getWrites() {
+		return writes;
+	}
+
+	/**
+	 * 最后一次失败的原因,没有失败为null
+	 */
+	public String getFailure() {
+		return failure;
+	}
+
+	/**
+	 * 日志中用来识别条目的键,数据变化后视为新条目
+	 */
+	String journalKey() {
+		return keyType + ":" + key + ":" + spec.memBank + ":" + spec.startAddr + ":" + dataHex;
+	}
+
+	void reset() {
+		status = EncodingStatus.PENDING;
+		writes = 0;
+		failure = null;
+	}
+
+	void wrote() {
+		writes++;
+	}
+
+	void setStatus(EncodingStatus status) {
+		this.status = status;
+	}
+
+	void setFailure(String failure) {
+		this.failure = failure;
+	}
+
+	@Override
+	public String toString() {
+		return "EncodingEntry{" +
+				keyType + "=" + key +
+				", bank=" + spec.memBank +
+				", addr=" + spec.startAddr +
+				", data=" + dataHex +
+				", status=" + status +
+				", writes=" + writes +
+				(failure != null ? ", failure=" + failure : "") +
+				'}';
+	}
+}
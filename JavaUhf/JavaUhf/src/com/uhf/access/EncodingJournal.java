@@ -0,0 +1,66 @@
+package com.uhf.access;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * 批量写入的进度日志:每完成一个条目追加一行并立即刷新,重启后读取日志跳过已完成的条目
+ * 行格式: 条目键 \t 状态 \t 完成时间(毫秒);无法解析的行(如写到一半断电)忽略
+ */
+public class EncodingJournal implements Closeable {
+
+	private final Set<String> done = new HashSet<>();
+	private final FileOutputStream out;
+	private final Writer writer;
+
+	public EncodingJournal(File file) throws IOException {
+		if (file.exists()) {
+			try (BufferedReader reader = new BufferedReader(
+					new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+				String line;
+				while ((line = reader.readLine()) != null) {
+					String[] parts = line.split("\t");
+					if (parts.length == 3) {
+						done.add(parts[0]);
+					}
+				}
+			}
+		}
+		out = new FileOutputStream(file, true);
+		writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+	}
+
+	public synchronized boolean isDone(EncodingEntry entry) {
+		return done.contains(entry.journalKey());
+	}
+
+	public synchronized void record(EncodingEntry entry) throws IOException {
+		String key = entry.journalKey();
+		writer.write(key + "\t" + entry.getStatus() + "\t" + System.currentTimeMillis() + "\n");
+		writer.flush();
+		out.getFD().sync();     // 落盘后才算完成,断电时不会重写已编码的标签
+		done.add(key);
+	}
+
+	/**
+	 * 已完成的条目数
+	 */
+	public synchronized int size() {
+		return done.size();
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		writer.close();
+	}
+}
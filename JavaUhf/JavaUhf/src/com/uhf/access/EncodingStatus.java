@@ -0,0 +1,17 @@
+package com.uhf.access;
+
+/**
+ * 批量写入中一个条目的状态
+ */
+public enum EncodingStatus {
+	/** 尚未完成 */
+	PENDING,
+	/** 本次写入并回读校验通过 */
+	VERIFIED,
+	/** 回读发现标签中已经是目标数据,未写入 */
+	ALREADY_ENCODED,
+	/** 日志中记录为已完成,本次跳过 */
+	RESUMED,
+	/** 用完尝试次数或时间仍未完成 */
+	FAILED
+}
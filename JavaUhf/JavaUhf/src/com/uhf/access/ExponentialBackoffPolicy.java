@@ -0,0 +1,48 @@
+package com.uhf.access;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 固定超时,失败后的等待按指数增长并加随机抖动,避免与其他读写器/标签冲突时同步重试
+ */
+public class ExponentialBackoffPolicy implements RetryPolicy {
+
+	private final int maxAttempts;
+	private final int timeoutMs;
+	private final long initialBackoffMs;
+	private final long maxBackoffMs;
+
+	public ExponentialBackoffPolicy(int maxAttempts, int timeoutMs, long initialBackoffMs, long maxBackoffMs) {
+		this.maxAttempts = maxAttempts;
+		this.timeoutMs = timeoutMs;
+		this.initialBackoffMs = initialBackoffMs;
+		this.maxBackoffMs = maxBackoffMs;
+	}
+
+	@Override
+	public String getName() {
+		return "backoff(" + maxAttempts + "x" + timeoutMs + "ms)";
+	}
+
+	@Override
+	public int timeoutMs(int attempt, long elapsedMs, int rssi) {
+		return attempt < maxAttempts ? timeoutMs : 0;
+	}
+
+	/**
+	 * 在 [上限/2, 上限] 之间取值,上限 = min(initial * 2^attempt, max)
+	 */
+	@Override
+	public long backoffMs(int attempt) {
+		long cap = initialBackoffMs << Math.min(attempt, 20);
+		if (cap > maxBackoffMs || cap <= 0) {
+			cap = maxBackoffMs;
+		}
+		long half = cap / 2;
+		return half + ThreadLocalRandom.current().nextLong(cap - half + 1);
+	}
+
+	@Override
+	public void onAttempt(boolean success, long latencyMs, int timeoutMs, int rssi) {
+	}
+}
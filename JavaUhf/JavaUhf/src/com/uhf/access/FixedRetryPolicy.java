@@ -0,0 +1,34 @@
+package com.uhf.access;
+
+/**
+ * 固定次数、固定超时、不等待(原UHF中RETRIES的做法)
+ */
+public class FixedRetryPolicy implements RetryPolicy {
+
+	private final int maxAttempts;
+	private final int timeoutMs;
+
+	public FixedRetryPolicy(int maxAttempts, int timeoutMs) {
+		this.maxAttempts = maxAttempts;
+		this.timeoutMs = timeoutMs;
+	}
+
+	@Override
+	public String getName() {
+		return "fixed(" + maxAttempts + "x" + timeoutMs + "ms)";
+	}
+
+	@Override
+	public int timeoutMs(int attempt, long elapsedMs, int rssi) {
+		return attempt < maxAttempts ? timeoutMs : 0;
+	}
+
+	@Override
+	public long backoffMs(int attempt) {
+		return 0;
+	}
+
+	@Override
+	public void onAttempt(boolean success, long latencyMs, int timeoutMs, int rssi) {
+	}
+}
@@ -0,0 +1,32 @@
+package com.uhf.access;
+
+/**
+ * 标签读写的重试/超时策略,由RetryingAccessor在每次尝试前后调用
+ * 实现需要线程安全(自适应策略可能被多个访问器共用)
+ */
+public interface RetryPolicy {
+
+	/**
+	 * 策略名,用于分组统计
+	 */
+	String getName();
+
+	/**
+	 * 第attempt次(从0开始)尝试使用的超时
+	 *
+	 * @param elapsedMs 本次操作已经用掉的时间
+	 * @param rssi      标签最近一次的RSSI,未知时为0
+	 * @return 超时毫秒,小于等于0表示放弃
+	 */
+	int timeoutMs(int attempt, long elapsedMs, int rssi);
+
+	/**
+	 * 第attempt次失败后,下一次尝试之前等待的时间
+	 */
+	long backoffMs(int attempt);
+
+	/**
+	 * 每次尝试的结果反馈
+	 */
+	void onAttempt(boolean success, long latencyMs, int timeoutMs, int rssi);
+}
@@ -0,0 +1,156 @@
+package com.uhf.access;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import com.uhf.driver.ReaderDriver;
+import com.uhf.structures.RwData;
+
+/**
+ * 按RetryPolicy重试的同步读写,并按策略名统计每次尝试和整个操作的耗时
+ * 在调用线程上阻塞执行;需要异步时放进TagAccessQueue.inWindow()里调用
+ */
+public class RetryingAccessor {
+
+	private final ReaderDriver driver;
+	private volatile ReaderDriver writer;   // 写入走的驱动,设置缓存时为CacheInvalidatingReaderDriver
+	private final Map<String, AccessStats> stats = new ConcurrentHashMap<>();
+	private volatile int lastRssi;
+	private volatile TagReadCache cache;
+
+	public RetryingAccessor(ReaderDriver driver) {
+		this.driver = driver;
+		this.writer = driver;
+	}
+
+	/**
+	 * 设置读取缓存:成功的读取写入缓存,写入经CacheInvalidatingReaderDriver使应答标签的重叠范围失效;null表示不使用
+	 * 其他直接调用驱动写入的地方也要用同一个缓存的CacheInvalidatingReaderDriver,见其类说明
+	 */
+	public void setCache(TagReadCache cache) {
+		this.cache = cache;
+		this.writer = cache != null ? CacheInvalidatingReaderDriver.wrap(driver, cache) : driver;
+	}
+
+	public TagReadCache getCache() {
+		return cache;
+	}
+
+	/**
+	 * 读取目标标签epc的数据,设置了缓存且命中时不访问标签(结果的attempts为0)
+	 * 未命中时与read(byte[], ...)相同,应答的可能是场内另一个标签,以结果中的EPC为准
+	 * 不带rssi参数的读写按RSSI未知(0)交给策略,不使用上一个应答标签的RSSI
+	 */
+	public AccessResult read(String epc, byte[] accessPassword, int memBank, int startAddr, int wordLen,
+			RetryPolicy policy) {
+		TagReadCache c = cache;
+		if (c != null && epc != null && !epc.isEmpty()) {
+			RwData rwData = new RwData();
+			if (c.get(epc, memBank, startAddr, wordLen, rwData)) {
+				return new AccessResult(AccessType.READ, 0, rwData, 0, 0, 0);
+			}
+		}
+		return execute(AccessType.READ, accessPassword, memBank, startAddr, wordLen, null, policy, 0);
+	}
+
+	public AccessResult read(byte[] accessPassword, int memBank, int startAddr, int wordLen, RetryPolicy policy) {
+		return execute(AccessType.READ, accessPassword, memBank, startAddr, wordLen, null, policy, 0);
+	}
+
+	/**
+	 * @param rssi 目标标签最近的RSSI(如来自RssiStatistics),供自适应策略参考
+	 */
+	public AccessResult read(byte[] accessPassword, int memBank, int startAddr, int wordLen, RetryPolicy policy,
+			int rssi) {
+		return execute(AccessType.READ, accessPassword, memBank, startAddr, wordLen, null, policy, rssi);
+	}
+
+	public AccessResult write(byte[] accessPassword, int memBank, int startAddr, int wordLen, byte[] writeData,
+			RetryPolicy policy) {
+		return execute(AccessType.WRITE, accessPassword, memBank, startAddr, wordLen, writeData, policy, 0);
+	}
+
+	public AccessResult write(byte[] accessPassword, int memBank, int startAddr, int wordLen, byte[] writeData,
+			RetryPolicy policy, int rssi) {
+		return execute(AccessType.WRITE, accessPassword, memBank, startAddr, wordLen, writeData, policy, rssi);
+	}
+
+	private AccessResult execute(AccessType type, byte[] password, int memBank, int startAddr, int wordLen,
+			byte[] data, RetryPolicy policy, int rssi) {
+		AccessStats s = getStats(policy);
+		TagReadCache c = cache;
+		long start = System.nanoTime();
+		RwData rwData = new RwData();
+		int status = -1;
+		int attempt = 0;
+		boolean success = false;
+		int timeoutMs = policy.timeoutMs(0, 0, rssi);
+		while (timeoutMs > 0) {
+			rwData = new RwData();
+			long t0 = System.nanoTime();
+			if (type == AccessType.READ) {
+				status = driver.readTagSync(password, memBank, startAddr, wordLen, timeoutMs, rwData);
+			} else {
+				status = writer.writeTagSync(password, memBank, startAddr, wordLen, data, timeoutMs, rwData);
+			}
+			long latencyMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - t0);
+			attempt++;
+			success = status == 0 && rwData.status == 0;
+			if (c != null && type == AccessType.READ && success) {
+				c.put(memBank, startAddr, wordLen, rwData, latencyMs);
+			}
+			if (rwData.rssi != 0) {
+				rssi = rwData.rssi;
+				lastRssi = rssi;
+			}
+			policy.onAttempt(success, latencyMs, timeoutMs, rssi);
+			s.recordAttempt(success, latencyMs);
+			if (success) {
+				break;
+			}
+			long backoff = policy.backoffMs(attempt - 1);
+			long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+			timeoutMs = policy.timeoutMs(attempt, elapsedMs + backoff, rssi);
+			// 策略不再重试时直接返回,最后一次失败后不等待
+			if (timeoutMs > 0 && backoff > 0) {
+				try {
+					Thread.sleep(backoff);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					break;
+				}
+			}
+		}
+		long totalMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+		s.recordOperation(success, attempt, totalMs);
+		return new AccessResult(type, status, rwData, 0, totalMs, attempt);
+	}
+
+	private AccessStats getStats(RetryPolicy policy) {
+		String name = policy.getName();
+		AccessStats s = stats.get(name);
+		if (s == null) {
+			AccessStats created = new AccessStats(name);
+			s = stats.putIfAbsent(name, created);
+			if (s == null) {
+				s = created;
+			}
+		}
+		return s;
+	}
+
+	/**
+	 * 按策略名的统计
+	 */
+	public Map<String, AccessStats> getStats() {
+		return stats;
+	}
+
+	/**
+	 * 最近一次应答的RSSI,未知时为0
+	 */
+	public int getLastRssi() {
+		return lastRssi;
+	}
+}
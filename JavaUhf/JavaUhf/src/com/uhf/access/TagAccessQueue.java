@@ -0,0 +1,242 @@
+package com.uhf.access;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.uhf.driver.ReaderDriver;
+import com.uhf.structures.RwData;
+
+/**
+ * 异步的标签读写队列
+ * 经本队列提交的读写(read/write/inWindow)由唯一的访问线程按提交顺序执行,调用方拿到CompletableFuture后立即返回;
+ * 每个请求使用自己的RwData,结果不会被其他请求覆盖
+ * 队列不独占驱动:直接调用同一驱动的代码(RetryingAccessor、InventoryTask、BatchReadJob在inWindow之外的调用、
+ * 未setAccessQueue的RfidLink.probe)不经过访问线程,与队列中的请求可能同时调用读写器,需要调用方自己错开
+ *
+ * 超时从提交时开始计算,包括排队时间:到期时future以TimeoutException完成,
+ * 还在排队的请求不再访问标签,已经在执行的native调用只能等它按自身超时返回(结果丢弃)
+ * 取消future的效果相同
+ */
+public class TagAccessQueue {
+
+	/**
+	 * 在访问线程上连续执行的一段操作,见inWindow()
+	 */
+	public interface AccessWindow<T> {
+		T run(ReaderDriver driver) throws Exception;
+	}
+
+	private final ReaderDriver driver;
+	private final ThreadPoolExecutor executor;
+	private final ScheduledThreadPoolExecutor timer;
+
+	private final AtomicLong submitted = new AtomicLong();
+	private final AtomicLong completed = new AtomicLong();
+	private final AtomicLong timedOut = new AtomicLong();
+	private final AtomicLong skipped = new AtomicLong();
+
+	public TagAccessQueue(ReaderDriver driver) {
+		this.driver = driver;
+		this.executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(),
+				threadFactory("tag-access"));
+		this.timer = new ScheduledThreadPoolExecutor(1, threadFactory("tag-access-timeout"));
+		this.timer.setRemoveOnCancelPolicy(true);
+	}
+
+	/**
+	 * 异步读取
+	 *
+	 * @param accessPassword 访问密码,null等同于4字节0(未设置密码的标签)
+	 * @param timeoutMs 本请求的总超时(含排队),同时作为native调用超时的上限
+	 */
+	public CompletableFuture<AccessResult> read(byte[] accessPassword, int memBank, int startAddr, int wordLen,
+			int timeoutMs) {
+		return submit(new Request(AccessType.READ, accessPassword, memBank, startAddr, wordLen, null, timeoutMs));
+	}
+
+	/**
+	 * 异步写入
+	 *
+	 * @param accessPassword 访问密码,null等同于4字节0(未设置密码的标签)
+	 * @param timeoutMs 本请求的总超时(含排队),同时作为native调用超时的上限
+	 */
+	public CompletableFuture<AccessResult> write(byte[] accessPassword, int memBank, int startAddr, int wordLen,
+			byte[] writeData, int timeoutMs) {
+		return submit(new Request(AccessType.WRITE, accessPassword, memBank, startAddr, wordLen, writeData,
+				timeoutMs));
+	}
+
+	/**
+	 * 在访问线程上执行一段需要连续占用读写器的操作(如批量读取),期间本队列的其他请求排队等待
+	 */
+	public <T> CompletableFuture<T> inWindow(final AccessWindow<T> window) {
+		final CompletableFuture<T> future = new CompletableFuture<>();
+		try {
+			executor.execute(new Runnable() {
+				@Override
+				public void run() {
+					if (future.isDone()) {
+						return;
+					}
+					try {
+						future.complete(window.run(driver));
+					} catch (Exception e) {
+						future.completeExceptionally(e);
+					}
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			future.completeExceptionally(e);
+		}
+		return future;
+	}
+
+	private CompletableFuture<AccessResult> submit(final Request request) {
+		final CompletableFuture<AccessResult> future = new CompletableFuture<>();
+		final long submitNanos = System.nanoTime();
+		final long deadlineNanos = submitNanos + TimeUnit.MILLISECONDS.toNanos(request.timeoutMs);
+		submitted.incrementAndGet();
+		try {
+			executor.execute(new Runnable() {
+				@Override
+				public void run() {
+					execute(request, future, submitNanos, deadlineNanos);
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			future.completeExceptionally(e);
+			return future;
+		}
+		final ScheduledFuture<?> timeout = timer.schedule(new Runnable() {
+			@Override
+			public void run() {
+				if (future.completeExceptionally(new TimeoutException(
+						request.type + " timed out after " + request.timeoutMs + "ms"))) {
+					timedOut.incrementAndGet();
+				}
+			}
+		}, request.timeoutMs, TimeUnit.MILLISECONDS);
+		future.whenComplete((result, error) -> timeout.cancel(false));
+		return future;
+	}
+
+	private void execute(Request request, CompletableFuture<AccessResult> future, long submitNanos,
+			long deadlineNanos) {
+		long start = System.nanoTime();
+		int remainingMs = (int) TimeUnit.NANOSECONDS.toMillis(deadlineNanos - start);
+		if (future.isDone() || remainingMs <= 0) {
+			// 已取消或已超时,不再占用读写器
+			skipped.incrementAndGet();
+			return;
+		}
+		RwData rwData = new RwData();
+		int status;
+		try {
+			if (request.type == AccessType.READ) {
+				status = driver.readTagSync(request.password, request.memBank, request.startAddr, request.wordLen,
+						remainingMs, rwData);
+			} else {
+				status = driver.writeTagSync(request.password, request.memBank, request.startAddr,
+						request.wordLen, request.data, remainingMs, rwData);
+			}
+		} catch (RuntimeException e) {
+			future.completeExceptionally(e);
+			return;
+		}
+		long end = System.nanoTime();
+		AccessResult result = new AccessResult(request.type, status, rwData,
+				TimeUnit.NANOSECONDS.toMillis(start - submitNanos), TimeUnit.NANOSECONDS.toMillis(end - start));
+		if (future.complete(result)) {
+			completed.incrementAndGet();
+		}
+	}
+
+	/**
+	 * 排队中(未开始执行)的请求数量
+	 */
+	public int getPendingCount() {
+		return executor.getQueue().size();
+	}
+
+	public long getSubmittedCount() {
+		return submitted.get();
+	}
+
+	public long getCompletedCount() {
+		return completed.get();
+	}
+
+	public long getTimedOutCount() {
+		return timedOut.get();
+	}
+
+	/**
+	 * 因取消或超时而没有访问标签的请求数量
+	 */
+	public long getSkippedCount() {
+		return skipped.get();
+	}
+
+	/**
+	 * 不再接收新请求,已提交的请求继续执行
+	 */
+	public void shutdown() {
+		executor.shutdown();
+		timer.shutdown();
+	}
+
+	public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+		return executor.awaitTermination(timeout, unit);
+	}
+
+	@Override
+	public String toString() {
+		return "TagAccessQueue{" +
+				"submitted=" + submitted +
+				", completed=" + completed +
+				", timedOut=" + timedOut +
+				", skipped=" + skipped +
+				", pending=" + getPendingCount() +
+				'}';
+	}
+
+	private static ThreadFactory threadFactory(final String name) {
+		return new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, name);
+				t.setDaemon(true);
+				return t;
+			}
+		};
+	}
+
+	private static final class Request {
+		final AccessType type;
+		final byte[] password;
+		final int memBank;
+		final int startAddr;
+		final int wordLen;
+		final byte[] data;
+		final int timeoutMs;
+
+		Request(AccessType type, byte[] password, int memBank, int startAddr, int wordLen, byte[] data,
+				int timeoutMs) {
+			this.type = type;
+			this.password = password == null ? new byte[4] : password.clone();
+			this.memBank = memBank;
+			this.startAddr = startAddr;
+			this.wordLen = wordLen;
+			this.data = data == null ? null : data.clone();
+			this.timeoutMs = timeoutMs;
+		}
+	}
+}
@@ -0,0 +1,301 @@
+package com.uhf.access;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import com.uhf.structures.RwData;
+import com.uhf.utils.StringUtils;
+
+/**
+ * 标签存储区读取结果的缓存,键为(EPC, 区号, 起始地址, 字长度),按最近使用淘汰,条目数有上限
+ * 每个区有各自的有效期:TID出厂锁定,永久缓存;EPC和USER默认5秒;保留区(密码)不缓存
+ * 写入时按应答标签的EPC使重叠范围失效,写EPC区时该标签的所有条目失效(EPC变了,旧键不再对应这个标签);
+ * 应答中没有EPC时不知道写的是哪个标签,所有标签的重叠范围都失效;写EPC区又没有EPC时整个缓存清空
+ * onWrite由CacheInvalidatingReaderDriver在每次writeTagSync后调用,所有写入方都要经过它
+ * 有效期按System.nanoTime()计算,不受系统时间调整影响
+ *
+ * 读写器不能选择标签,缓存只能在调用方知道目标标签EPC时使用(见RetryingAccessor.read(String, ...));
+ * 应答来自其他标签时按实际应答的EPC缓存
+ */
+public class TagReadCache {
+
+	/** 永久缓存 */
+	public static final long FOREVER = -1;
+	/** 不缓存 */
+	public static final long NO_CACHE = 0;
+
+	private static final int BANKS = 4;
+
+	private final int maxEntries;
+	private final long[] ttlMs = { NO_CACHE, 5000, FOREVER, 5000 };
+	private final Map<Key, Cached> entries;
+
+	private final long[] hits = new long[BANKS];
+	private final long[] misses = new long[BANKS];
+	private long evictions;
+	private long expirations;
+	private long invalidations;
+	private long loads;
+	private long loadMs;        // 未命中后实际读取的总耗时,用来估计命中省下的时间
+
+	public TagReadCache(int maxEntries) {
+		this.maxEntries = maxEntries;
+		this.entries = new LinkedHashMap<Key, Cached>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key, Cached> eldest) {
+				if (size() > TagReadCache.this.maxEntries) {
+					evictions++;
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	/**
+	 * 设置某个区的有效期,FOREVER为永久,NO_CACHE为不缓存
+	 */
+	public synchronized void setTtlMs(int memBank, long ttl) {
+		ttlMs[checkBank(memBank)] = ttl;
+	}
+
+	public synchronized long getTtlMs(int memBank) {
+		return ttlMs[checkBank(memBank)];
+	}
+
+	/**
+	 * 查找缓存,命中时把数据和EPC填入rwData(status为0)并返回true
+	 */
+	public synchronized boolean get(String epc, int memBank, int startAddr, int wordLen, RwData rwData) {
+		int bank = checkBank(memBank);
+		Key key = new Key(epc.toUpperCase(), bank, startAddr, wordLen);
+		Cached e = entries.get(key);
+		if (e != null && !e.forever && System.nanoTime() - e.expiresAt >= 0) {
+			entries.remove(key);
+			expirations++;
+			e = null;
+		}
+		if (e == null) {
+			misses[bank]++;
+			return false;
+		}
+		hits[bank]++;
+		rwData.epc = StringUtils.stringToByte(key.epc);
+		rwData.epcLen = rwData.epc.length;
+		rwData.rwData = e.data.clone();
+		rwData.rwDataLen = e.data.length;
+		rwData.antennaPort = e.antennaPort;
+		rwData.rssi = e.rssi;
+		rwData.status = 0;
+		rwData.type = 0;
+		return true;
+	}
+
+	/**
+	 * 缓存一次成功的读取,键中的EPC取自应答
+	 *
+	 * @param latencyMs 这次读取的耗时
+	 */
+	public synchronized void put(int memBank, int startAddr, int wordLen, RwData rwData, long latencyMs) {
+		int bank = checkBank(memBank);
+		loads++;
+		loadMs += latencyMs;
+		long ttl = ttlMs[bank];
+		if (ttl == NO_CACHE || rwData.status != 0 || rwData.epcLen <= 0 || rwData.rwDataLen <= 0) {
+			return;
+		}
+		Key key = new Key(StringUtils.byteToHexString(rwData.epc, rwData.epcLen), bank, startAddr, wordLen);
+		long expiresAt = ttl == FOREVER ? 0 : System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ttl);
+		entries.put(key, new Cached(Arrays.copyOf(rwData.rwData, rwData.rwDataLen), rwData.antennaPort, rwData.rssi,
+				ttl == FOREVER, expiresAt));
+	}
+
+	/**
+	 * 一次写入之后调用(无论成败,失败的写入也可能改了部分数据),按应答的EPC使重叠范围失效;
+	 * 应答中没有EPC时使所有标签的重叠范围失效;写的是EPC区时清空,否则旧EPC下的条目(如TID)会留给以后换成这个EPC的标签
+	 */
+	public void onWrite(int memBank, int startAddr, int wordLen, RwData rwData) {
+		if (rwData.epcLen <= 0) {
+			if (memBank == 1) {
+				invalidateAll();
+			} else {
+				invalidate(null, memBank, startAddr, wordLen);
+			}
+			return;
+		}
+		String epc = StringUtils.byteToHexString(rwData.epc, rwData.epcLen);
+		if (memBank == 1) {
+			invalidate(epc);
+		} else {
+			invalidate(epc, memBank, startAddr, wordLen);
+		}
+	}
+
+	/**
+	 * 使某个标签与给定范围重叠的条目失效,epc为null时对所有标签
+	 */
+	public synchronized void invalidate(String epc, int memBank, int startAddr, int wordLen) {
+		epc = epc != null ? epc.toUpperCase() : null;
+		int end = startAddr + wordLen;
+		Iterator<Key> it = entries.keySet().iterator();
+		while (it.hasNext()) {
+			Key k = it.next();
+			if (k.bank == memBank && (epc == null || k.epc.equals(epc)) && k.startAddr < end && startAddr < k.startAddr + k.wordLen) {
+				it.remove();
+				invalidations++;
+			}
+		}
+	}
+
+	/**
+	 * 使某个标签的所有条目失效
+	 */
+	public synchronized void invalidate(String epc) {
+		epc = epc.toUpperCase();
+		Iterator<Key> it = entries.keySet().iterator();
+		while (it.hasNext()) {
+			if (it.next().epc.equals(epc)) {
+				it.remove();
+				invalidations++;
+			}
+		}
+	}
+
+	/**
+	 * 清空并计入失效次数
+	 */
+	public synchronized void invalidateAll() {
+		invalidations += entries.size();
+		entries.clear();
+	}
+
+	public synchronized void clear() {
+		entries.clear();
+	}
+
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	public synchronized long getHits() {
+		long n = 0;
+		for (long h : hits) {
+			n += h;
+		}
+		return n;
+	}
+
+	public synchronized long getMisses() {
+		long n = 0;
+		for (long m : misses) {
+			n += m;
+		}
+		return n;
+	}
+
+	public synchronized long getHits(int memBank) {
+		return hits[checkBank(memBank)];
+	}
+
+	public synchronized long getMisses(int memBank) {
+		return misses[checkBank(memBank)];
+	}
+
+	public synchronized double getHitRatio() {
+		long h = getHits();
+		long total = h + getMisses();
+		return total > 0 ? h / (double) total : 0;
+	}
+
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+
+	public synchronized long getExpirations() {
+		return expirations;
+	}
+
+	public synchronized long getInvalidations() {
+		return invalidations;
+	}
+
+	/**
+	 * 估计命中省下的读取时间:命中次数 x 平均读取耗时
+	 */
+	public synchronized long getSavedMs() {
+		return loads > 0 ? getHits() * loadMs / loads : 0;
+	}
+
+	private static int checkBank(int memBank) {
+		if (memBank < 0 || memBank >= BANKS) {
+			throw new IllegalArgumentException("bad memBank: " + memBank);
+		}
+		return memBank;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "TagReadCache{" +
+				"size=" + entries.size() + "/" + maxEntries +
+				", hits=" + getHits() +
+				", misses=" + getMisses() +
+				", hitRatio=" + String.format("%.2f", getHitRatio()) +
+				", evictions=" + evictions +
+				", expirations=" + expirations +
+				", invalidations=" + invalidations +
+				", savedMs~" + getSavedMs() +
+				'}';
+	}
+
+	private static final class Key {
+		final String epc;
+		final int bank;
+		final int startAddr;
+		final int wordLen;
+
+		Key(String epc, int bank, int startAddr, int wordLen) {
+			this.epc = epc;
+			this.bank = bank;
+			this.startAddr = startAddr;
+			this.wordLen = wordLen;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
+			}
+			if (!(o instanceof Key)) {
+				return false;
+			}
+			Key k = (Key) o;
+			return bank == k.bank && startAddr == k.startAddr && wordLen == k.wordLen && epc.equals(k.epc);
+		}
+
+		@Override
+		public int hashCode() {
+			return ((epc.hashCode() * 31 + bank) * 31 + startAddr) * 31 + wordLen;
+		}
+	}
+
+	private static final class Cached {
+		final byte[] data;
+		final int antennaPort;
+		final int rssi;
+		final boolean forever;
+		final long expiresAt;   // System.nanoTime()
+
+		Cached(byte[] data, int antennaPort, int rssi, boolean forever, long expiresAt) {
+			this.data = data;
+			this.antennaPort = antennaPort;
+			this.rssi = rssi;
+			this.forever = forever;
+			this.expiresAt = expiresAt;
+		}
+	}
+}
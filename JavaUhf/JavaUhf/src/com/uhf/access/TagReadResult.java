@@ -0,0 +1,60 @@
+package com.uhf.access;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 批量读取中一个标签的结果:每个存储区范围读到的数据(十六进制),未读到的记录最后一次的状态码
+ */
+public class TagReadResult {
+	private final String epc;
+	private final Map<BankSpec, String> data = new LinkedHashMap<>();
+	private final Map<BankSpec, Integer> failures = new LinkedHashMap<>();
+
+	public TagReadResult(String epc) {
+		this.epc = epc;
+	}
+
+	public String getEpc() {
+		return epc;
+	}
+
+	public String get(BankSpec spec) {
+		return data.get(spec);
+	}
+
+	public Map<BankSpec, String> getData() {
+		return data;
+	}
+
+	/**
+	 * 没有读到的范围及最后一次失败的状态码(-1表示一直没有轮到该标签应答)
+	 */
+	public Map<BankSpec, Integer> getFailures() {
+		return failures;
+	}
+
+	public boolean isComplete() {
+		return failures.isEmpty();
+	}
+
+	void put(BankSpec spec, String hex) {
+		data.put(spec, hex);
+		failures.remove(spec);
+	}
+
+	void fail(BankSpec spec, int status) {
+		if (!data.containsKey(spec)) {
+			failures.put(spec, status);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "TagReadResult{" +
+				"epc=" + epc +
+				", data=" + data +
+				", failures=" + failures +
+				'}';
+	}
+}
@@ -0,0 +1,113 @@
+package com.uhf.benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+
+import com.uhf.detailwith.TagTable;
+import com.uhf.structures.InventoryData;
+import com.uhf.structures.InventoryRecordView;
+import com.uhf.structures.OnInventoryRecordListener;
+
+/**
+ * 每次盘点回调的内存分配量:原有路径(每次读取新建InventoryData和数组)与享元视图路径对比
+ * 两条路径都把读取汇总进TagTable;分配量由ThreadMXBean.getThreadAllocatedBytes测得
+ * 运行: java com.uhf.benchmark.InventoryAllocationBenchmark [读取次数] [标签数]
+ */
+public class InventoryAllocationBenchmark {
+
+	private static final int ROUNDS = 3;   // 第一轮为预热
+	private static final byte[] FROM_DEV = { 'C', 'O', 'M', '4' };
+
+	public static void main(String[] args) {
+		int reads = args.length > 0 ? Integer.parseInt(args[0]) : 5000000;
+		int tags = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+		com.sun.management.ThreadMXBean mx = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		if (!mx.isThreadAllocatedMemorySupported()) {
+			System.out.println("ThreadAllocatedMemory not supported by this JVM");
+			return;
+		}
+		mx.setThreadAllocatedMemoryEnabled(true);
+
+		// 预先生成标签的EPC/TID,模拟读写器送来的数据
+		byte[][] epcs = new byte[tags][12];
+		byte[][] tids = new byte[tags][12];
+		for (int i = 0; i < tags; i++) {
+			epcs[i][0] = (byte) 0xE2;
+			epcs[i][10] = (byte) (i >>> 8);
+			epcs[i][11] = (byte) i;
+			tids[i][0] = (byte) 0xE2;
+			tids[i][1] = (byte) 0x80;
+			tids[i][11] = (byte) i;
+		}
+
+		System.out.println("reads=" + reads + " tags=" + tags);
+		System.out.printf("%-12s %14s %12s%n", "path", "bytes/read", "ns/read");
+		for (int round = 0; round < ROUNDS; round++) {
+			boolean print = round == ROUNDS - 1;
+			run("legacy", legacy(mx, epcs, tids, reads), reads, print);
+			run("flyweight", flyweight(mx, epcs, tids, reads), reads, print);
+		}
+	}
+
+	private static void run(String name, long[] r, int reads, boolean print) {
+		if (print) {
+			System.out.printf("%-12s %14.2f %12.1f%n", name, r[0] / (double) reads, r[1] / (double) reads);
+		}
+	}
+
+	/**
+	 * 原有路径:JNI每次回调新建InventoryData及其数组
+	 */
+	private static long[] legacy(com.sun.management.ThreadMXBean mx, byte[][] epcs, byte[][] tids, int reads) {
+		TagTable table = new TagTable(epcs.length);
+		long tid = Thread.currentThread().getId();
+		long bytes = mx.getThreadAllocatedBytes(tid);
+		long start = System.nanoTime();
+		for (int i = 0; i < reads; i++) {
+			int t = i % epcs.length;
+			InventoryData data = new InventoryData();
+			data.fromDev = FROM_DEV.clone();
+			data.antennaPort = 1 + (i & 3);
+			data.epc = epcs[t].clone();
+			data.epcLen = data.epc.length;
+			data.externalData = tids[t].clone();
+			data.externalDataLen = data.externalData.length;
+			data.rssi = -40 - (i & 31);
+			table.update(data, System.currentTimeMillis());
+		}
+		long ns = System.nanoTime() - start;
+		return new long[] { mx.getThreadAllocatedBytes(tid) - bytes, ns, table.size() };
+	}
+
+	/**
+	 * 享元路径:驱动填写直接内存中的槽位,监听通过视图读取,拷进复用的InventoryData后汇总
+	 */
+	private static long[] flyweight(com.sun.management.ThreadMXBean mx, byte[][] epcs, byte[][] tids,
+			int reads) {
+		final TagTable table = new TagTable(epcs.length);
+		final InventoryData scratch = new InventoryData();
+		OnInventoryRecordListener listener = new OnInventoryRecordListener() {
+			@Override
+			public void getInventoryRecord(InventoryRecordView record) {
+				record.copyTo(scratch);
+				table.update(scratch, System.currentTimeMillis());
+			}
+		};
+		ByteBuffer slots = InventoryRecordView.allocate(64);
+		InventoryRecordView view = new InventoryRecordView();
+		long tid = Thread.currentThread().getId();
+		long bytes = mx.getThreadAllocatedBytes(tid);
+		long start = System.nanoTime();
+		for (int i = 0; i < reads; i++) {
+			int t = i % epcs.length;
+			view.wrap(slots, i & 63)
+					.set(1 + (i & 3), 0, -40 - (i & 31))
+					.setEpc(epcs[t], 0, epcs[t].length)
+					.setExternalData(tids[t], 0, tids[t].length)
+					.setFromDev(FROM_DEV, 0, FROM_DEV.length);
+			listener.getInventoryRecord(view);
+		}
+		long ns = System.nanoTime() - start;
+		return new long[] { mx.getThreadAllocatedBytes(tid) - bytes, ns, table.size() };
+	}
+}
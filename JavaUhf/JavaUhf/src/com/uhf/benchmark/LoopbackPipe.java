@@ -0,0 +1,152 @@
+package com.uhf.benchmark;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * 进程内的单向串口回环:一端写入,另一端读出,缓冲区大小固定(相当于串口驱动的接收缓冲区)
+ * dropOnOverflow为true时写不下的字节直接丢弃并计数(串口溢出),否则写入方等待读出
+ * 每次写入后运行onWrite(如SerialChannel.wakeup,相当于RXTX的DATA_AVAILABLE通知)
+ */
+final class LoopbackPipe {
+
+	private final byte[] buffer;
+	private final boolean dropOnOverflow;
+	private volatile Runnable onWrite;
+	private int head;       // 下一个读出位置
+	private int size;
+	private boolean closed;
+	private long overflowBytes;
+
+	private final InputStream in = new InputStream() {
+		@Override
+		public int available() {
+			synchronized (LoopbackPipe.this) {
+				return size;
+			}
+		}
+
+		@Override
+		public int read() throws IOException {
+			byte[] b = new byte[1];
+			return read(b, 0, 1) < 0 ? -1 : b[0] & 0xFF;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			return LoopbackPipe.this.read(b, off, len);
+		}
+
+		@Override
+		public void close() {
+			LoopbackPipe.this.close();
+		}
+	};
+
+	private final OutputStream out = new OutputStream() {
+		@Override
+		public void write(int b) throws IOException {
+			write(new byte[] { (byte) b }, 0, 1);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			LoopbackPipe.this.write(b, off, len);
+		}
+
+		@Override
+		public void close() {
+			LoopbackPipe.this.close();
+		}
+	};
+
+	LoopbackPipe(int capacity, boolean dropOnOverflow) {
+		this.buffer = new byte[capacity];
+		this.dropOnOverflow = dropOnOverflow;
+	}
+
+	void setOnWrite(Runnable onWrite) {
+		this.onWrite = onWrite;
+	}
+
+	InputStream getInputStream() {
+		return in;
+	}
+
+	OutputStream getOutputStream() {
+		return out;
+	}
+
+	synchronized long getOverflowBytes() {
+		return overflowBytes;
+	}
+
+	private int read(byte[] b, int off, int len) throws IOException {
+		if (len == 0) {
+			return 0;
+		}
+		synchronized (this) {
+			while (size == 0) {
+				if (closed) {
+					return -1;
+				}
+				try {
+					wait();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new IOException("interrupted");
+				}
+			}
+			int n = Math.min(len, size);
+			int first = Math.min(n, buffer.length - head);
+			System.arraycopy(buffer, head, b, off, first);
+			System.arraycopy(buffer, 0, b, off + first, n - first);
+			head = (head + n) % buffer.length;
+			size -= n;
+			notifyAll();
+			return n;
+		}
+	}
+
+	private void write(byte[] b, int off, int len) throws IOException {
+		while (len > 0) {
+			int n;
+			synchronized (this) {
+				while (!dropOnOverflow && size == buffer.length && !closed) {
+					try {
+						wait();
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						throw new IOException("interrupted");
+					}
+				}
+				if (closed) {
+					throw new IOException("pipe closed");
+				}
+				n = Math.min(len, buffer.length - size);
+				int tail = (head + size) % buffer.length;
+				int first = Math.min(n, buffer.length - tail);
+				System.arraycopy(b, off, buffer, tail, first);
+				System.arraycopy(b, off + first, buffer, 0, n - first);
+				size += n;
+				if (dropOnOverflow) {
+					overflowBytes += len - n;
+					n = len;
+				}
+				notifyAll();
+			}
+			off += n;
+			len -= n;
+			Runnable r = onWrite;
+			if (r != null) {
+				r.run();
+			}
+		}
+	}
+
+	synchronized void close() {
+		closed = true;
+		notifyAll();
+	}
+}
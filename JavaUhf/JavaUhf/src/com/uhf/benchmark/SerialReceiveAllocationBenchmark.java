@@ -0,0 +1,185 @@
+package com.uhf.benchmark;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+
+import com.yang.serialport.frame.FrameDecoder;
+import com.yang.serialport.frame.OnFrameListener;
+import com.yang.serialport.manage.HexDebugSink;
+import com.yang.serialport.manage.PortHandler;
+import com.yang.serialport.manage.SerialChannel;
+import com.yang.serialport.manage.SerialIoEngine;
+import com.yang.serialport.utils.HexDump;
+
+/**
+ * 串口接收路径每字节的内存分配量,输入为连续的WSN传感器帧,每次读取chunk字节:
+ *  legacy  原有路径:每次新建byte[1024]和裁剪后的拷贝,再转成16进制字符串
+ *  engine  SerialIoEngine -> 复用的接收缓冲区 -> FrameDecoder,不设调试输出
+ *  debug   同engine,设置HexDebugSink(输出丢弃),即只在需要调试输出时才有的格式化开销
+ * 分配量由ThreadMXBean.getThreadAllocatedBytes测得(engine/debug测I/O线程),并按115200波特率折算成每秒分配量
+ * 运行: java com.uhf.benchmark.SerialReceiveAllocationBenchmark [每次读取字节数] [总字节数]
+ */
+public class SerialReceiveAllocationBenchmark {
+
+	private static final int FRAME_LENGTH = 26;
+	private static final byte[] HEADER = { (byte) 0xFF, (byte) 0xFF };
+	private static final byte[] TRAILER = { (byte) 0xFE, (byte) 0xFE };
+	private static final int BYTES_PER_SECOND_115200 = 115200 / 10;   // 8N1每字节10位
+	private static final int ROUNDS = 3;                              // 第一轮为预热
+
+	private static volatile Object sink;
+	private static volatile double illumination;
+
+	public static void main(String[] args) throws Exception {
+		int chunk = args.length > 0 ? Integer.parseInt(args[0]) : 32;
+		long total = args.length > 1 ? Long.parseLong(args[1]) : 20000000L;
+		com.sun.management.ThreadMXBean mx = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		if (!mx.isThreadAllocatedMemorySupported()) {
+			System.out.println("ThreadAllocatedMemory not supported by this JVM");
+			return;
+		}
+		mx.setThreadAllocatedMemoryEnabled(true);
+
+		System.out.println("chunk=" + chunk + " bytes=" + total);
+		System.out.printf("%-8s %14s %18s %12s%n", "path", "bytes/KB", "bytes/s@115200", "frames");
+		for (int round = 0; round < ROUNDS; round++) {
+			boolean print = round == ROUNDS - 1;
+			print("legacy", legacy(mx, chunk, total), print);
+			print("engine", engine(mx, chunk, total, false), print);
+			print("debug", engine(mx, chunk, total, true), print);
+		}
+	}
+
+	private static void print(String name, long[] r, boolean print) {
+		if (print) {
+			double perByte = r[0] / (double) r[1];
+			System.out.printf("%-8s %14.2f %18.1f %12d%n", name, perByte * 1024, perByte * BYTES_PER_SECOND_115200,
+					r[2]);
+		}
+	}
+
+	/**
+	 * 原有路径:SerialPortManager.readData的做法
+	 */
+	private static long[] legacy(com.sun.management.ThreadMXBean mx, int chunk, long total) throws IOException {
+		InputStream in = new FrameStream(chunk);
+		long tid = Thread.currentThread().getId();
+		long bytes = mx.getThreadAllocatedBytes(tid);
+		long read = 0;
+		long frames = 0;
+		while (read < total) {
+			byte[] buffer = new byte[1024];
+			int len = in.read(buffer);
+			byte[] realData = new byte[len];
+			System.arraycopy(buffer, 0, realData, 0, len);
+			String hexData = HexDump.toHex(realData, 0, len);
+			sink = "接收到数据: " + hexData;
+			if (len == FRAME_LENGTH) {
+				frames++;
+			}
+			read += len;
+		}
+		return new long[] { mx.getThreadAllocatedBytes(tid) - bytes, read, frames };
+	}
+
+	/**
+	 * 新路径:引擎I/O线程读入复用的缓冲区,交给分帧器
+	 */
+	private static long[] engine(com.sun.management.ThreadMXBean mx, int chunk, long total, boolean debug)
+			throws InterruptedException {
+		final FrameDecoder decoder = new FrameDecoder(HEADER, TRAILER, FRAME_LENGTH, 1024);
+		decoder.setOnFrameListener(new OnFrameListener() {
+			@Override
+			public void onFrame(byte[] frame, int off, int len) {
+				illumination = ((frame[off + 22] & 0xFF) + ((frame[off + 23] & 0xFF) << 8)) / 65536.0 * 16000;
+			}
+		});
+		final long[] ioThread = { -1 };
+		SerialIoEngine engine = new SerialIoEngine(1);
+		SerialChannel channel = engine.register("BENCH", new FrameStream(chunk), null, new PortHandler() {
+			@Override
+			public void onData(SerialChannel channel, byte[] buf, int off, int len) {
+				if (ioThread[0] < 0) {
+					ioThread[0] = Thread.currentThread().getId();
+				}
+				decoder.feed(buf, off, len);
+			}
+
+			@Override
+			public void onError(SerialChannel channel, IOException e) {
+				e.printStackTrace();
+			}
+		});
+		if (debug) {
+			channel.setDebugSink(new HexDebugSink(new PrintStream(new OutputStream() {
+				@Override
+				public void write(int b) {
+				}
+
+				@Override
+				public void write(byte[] b, int off, int len) {
+				}
+			})));
+		}
+		// 跳过开始阶段(类加载、首次回调),之后计量
+		while (channel.getBytesRead() < total / 10) {
+			Thread.sleep(1);
+		}
+		long tid = ioThread[0];
+		long bytes = mx.getThreadAllocatedBytes(tid);
+		long read = channel.getBytesRead();
+		long frames = decoder.getFramesDecoded();
+		while (channel.getBytesRead() - read < total) {
+			Thread.sleep(1);
+		}
+		long allocated = mx.getThreadAllocatedBytes(tid) - bytes;
+		read = channel.getBytesRead() - read;
+		frames = decoder.getFramesDecoded() - frames;
+		channel.close();
+		engine.shutdown();
+		return new long[] { allocated, read, frames };
+	}
+
+	/**
+	 * 无限循环的WSN帧流,每次最多读出chunk字节
+	 */
+	private static final class FrameStream extends InputStream {
+		private final byte[] data = new byte[FRAME_LENGTH * 64];
+		private final int chunk;
+		private int pos;
+
+		FrameStream(int chunk) {
+			this.chunk = chunk;
+			for (int f = 0; f < 64; f++) {
+				int base = f * FRAME_LENGTH;
+				data[base] = data[base + 1] = (byte) 0xFF;
+				data[base + 22] = (byte) (f * 37);
+				data[base + 23] = (byte) f;
+				data[base + 24] = data[base + 25] = (byte) 0xFE;
+			}
+		}
+
+		@Override
+		public int available() {
+			return chunk;
+		}
+
+		@Override
+		public int read() {
+			int b = data[pos] & 0xFF;
+			pos = (pos + 1) % data.length;
+			return b;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) {
+			int n = Math.min(Math.min(len, chunk), data.length - pos);
+			System.arraycopy(data, pos, b, off, n);
+			pos = (pos + n) % data.length;
+			return n;
+		}
+	}
+}
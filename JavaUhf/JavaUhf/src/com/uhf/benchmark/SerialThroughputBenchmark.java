@@ -0,0 +1,583 @@
+package com.uhf.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import com.yang.serialport.frame.FrameDecoder;
+import com.yang.serialport.frame.OnFrameListener;
+import com.yang.serialport.manage.OnDataListener;
+import com.yang.serialport.manage.PortHandler;
+import com.yang.serialport.manage.SerialChannel;
+import com.yang.serialport.manage.SerialIoEngine;
+import com.yang.serialport.manage.SerialPortManager;
+
+import gnu.io.CommPort;
+import gnu.io.CommPortIdentifier;
+import gnu.io.SerialPort;
+
+/**
+ * 串口收发链路的吞吐和延迟压测,不需要硬件:
+ *  上行  模拟的传感器按帧率发出WSN帧(帧内带序号和计划发送时间) -> SerialIoEngine/SerialPortManager -> FrameDecoder
+ *  下行  按命令速率调用SerialChannel.write -> DownlinkQueue -> I/O线程写出 -> 模拟的传感器读出
+ *        (SerialPortManager为在发送线程上直接sendToPort)
+ * 传输方式:
+ *  loopback  进程内回环(LoopbackPipe)接到SerialIoEngine,写入时唤醒I/O线程;限速发送时接收缓冲区满即丢弃(串口溢出)
+ *  pty       socat创建的一对伪终端(或用-Dbench.pty=/dev/pts/A,/dev/pts/B指定),两端都经RXTX打开
+ *            (gnu.io.rxtx.SerialPorts设为这两个路径),主机一端由SerialIoEngine.open打开
+ *  pty-mgr   同一对伪终端,主机一端由SerialPortManager打开(RXTX事件线程上读取)
+ * 每种配置先预热1秒再计量,输出上行帧/秒、KB/秒、延迟分位(微秒,从计划发送时间算起,发送方落后的时间也计入)、
+ * 丢帧数、下行命令/秒和延迟,以及I/O线程每帧分配的字节数;帧率0为不限速(回环时写满后等待读出)
+ * 运行: java -Djava.library.path=<rxtx> com.uhf.benchmark.SerialThroughputBenchmark [loopback|pty|pty-mgr|all]
+ *       [每种配置秒数] [帧率,...] [下行命令/秒]
+ */
+public class SerialThroughputBenchmark {
+
+	private static final int FRAME_LENGTH = 26;
+	private static final int COMMAND_LENGTH = 18;
+	private static final byte[] HEADER = { (byte) 0xFF, (byte) 0xFF };
+	private static final byte[] TRAILER = { (byte) 0xFE, (byte) 0xFE };
+	private static final int FRAMES_AT_115200 = 115200 / 10 / FRAME_LENGTH;   // 8N1每字节10位
+	private static final int PIPE_CAPACITY = 4096;                            // 回环的接收缓冲区
+	private static final int BAUD_RATE = 115200;                              // 伪终端不限速,只用来设置参数
+	private static final int MAX_SAMPLES = 1 << 20;                           // 超过后保留最近的样本
+	private static final long WARMUP_MS = 1000;
+	private static final long DRAIN_MS = 500;
+
+	public static void main(String[] args) throws Exception {
+		String which = args.length > 0 ? args[0] : "all";
+		int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+		int[] frameRates = { FRAMES_AT_115200, 5000, 0 };
+		if (args.length > 2) {
+			String[] parts = args[2].split(",");
+			frameRates = new int[parts.length];
+			for (int i = 0; i < parts.length; i++) {
+				frameRates[i] = Integer.parseInt(parts[i].trim());
+			}
+		}
+		int commandRate = args.length > 3 ? Integer.parseInt(args[3]) : 50;
+		int pollMs = Integer.getInteger("bench.pollMs", 10);
+		com.sun.management.ThreadMXBean mx = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		if (mx.isThreadAllocatedMemorySupported()) {
+			mx.setThreadAllocatedMemoryEnabled(true);
+		}
+
+		List<String> transports = new ArrayList<>();
+		if ("all".equals(which) || "loopback".equals(which)) {
+			transports.add("loopback");
+		}
+		if ("all".equals(which) || "pty".equals(which)) {
+			transports.add("pty");
+		}
+		if ("all".equals(which) || "pty-mgr".equals(which)) {
+			transports.add("pty-mgr");
+		}
+		System.out.println("seconds=" + seconds + " commands/s=" + commandRate + " pollMs=" + pollMs);
+		System.out.printf("%-9s %7s %9s %8s %7s %7s %8s %8s %8s %7s %8s %7s %7s %8s%n", "transport", "target",
+				"frames/s", "KB/s", "p50us", "p99us", "p999us", "maxus", "dropped", "resync", "cmds/s", "dn50us",
+				"dn99us", "B/frame");
+		// RXTX只在第一次使用时读取gnu.io.rxtx.SerialPorts,所有pty配置共用一对伪终端
+		Transport pty = null;
+		String ptyError = null;
+		try {
+			for (String transport : transports) {
+				boolean loopback = "loopback".equals(transport);
+				if (!loopback && pty == null && ptyError == null) {
+					try {
+						pty = Transport.pty();
+					} catch (IOException e) {
+						ptyError = e.getMessage();
+					}
+				}
+				for (int frameRate : frameRates) {
+					if (!loopback && pty == null) {
+						System.out.printf("%-9s %7s skipped: %s%n", transport, target(frameRate), ptyError);
+						break;
+					}
+					Run run = new Run(transport, frameRate, commandRate, seconds, pollMs, mx);
+					try {
+						run.execute(loopback ? Transport.loopback(frameRate > 0) : pty);
+					} catch (Exception e) {
+						System.out.printf("%-9s %7s skipped: %s%n", transport, target(frameRate),
+								e.getMessage() != null ? e.getMessage() : e);
+						break;
+					}
+					run.print();
+				}
+			}
+		} finally {
+			if (pty != null) {
+				pty.close();
+			}
+		}
+	}
+
+	private static String target(int frameRate) {
+		return frameRate > 0 ? String.valueOf(frameRate) : "max";
+	}
+
+	private static void putInt(byte[] b, int off, int v) {
+		b[off] = (byte) (v >>> 24);
+		b[off + 1] = (byte) (v >>> 16);
+		b[off + 2] = (byte) (v >>> 8);
+		b[off + 3] = (byte) v;
+	}
+
+	private static void putLong(byte[] b, int off, long v) {
+		putInt(b, off, (int) (v >>> 32));
+		putInt(b, off + 4, (int) v);
+	}
+
+	private static int getInt(byte[] b, int off) {
+		return (b[off] & 0xFF) << 24 | (b[off + 1] & 0xFF) << 16 | (b[off + 2] & 0xFF) << 8 | (b[off + 3] & 0xFF);
+	}
+
+	private static long getLong(byte[] b, int off) {
+		return (long) getInt(b, off) << 32 | (getInt(b, off + 4) & 0xFFFFFFFFL);
+	}
+
+	/**
+	 * 从排好序的样本中取分位值
+	 */
+	private static long percentile(long[] sorted, int n, double p) {
+		if (n == 0) {
+			return 0;
+		}
+		return sorted[Math.min(n - 1, (int) Math.ceil(p * n) - 1)];
+	}
+
+	private static void parkUntil(long due) {
+		long now;
+		while ((now = System.nanoTime()) < due) {
+			LockSupport.parkNanos(due - now);
+		}
+	}
+
+	/**
+	 * 一种配置的一次运行;计量窗口[measureFrom, measureUntil)按计划发送时间划分,
+	 * 窗口内发出的帧/命令计入发送数,收到的计入接收数和延迟样本
+	 */
+	private static final class Run implements OnFrameListener {
+		final String transport;
+		final int frameRate;
+		final int commandRate;
+		final int seconds;
+		final int pollMs;
+		final com.sun.management.ThreadMXBean mx;
+
+		long startNanos;
+		long measureFrom;
+		long measureUntil;
+		volatile long ioThreadId = -1;
+		volatile boolean stopped;
+
+		// I/O线程写,引擎停止(join)后读
+		final FrameDecoder decoder = new FrameDecoder(HEADER, TRAILER, FRAME_LENGTH, 4096);
+		final long[] upLatency = new long[MAX_SAMPLES];
+		long framesReceived;
+		long corrupt;
+		// 模拟传感器的读线程写,join后读
+		final long[] downLatency = new long[MAX_SAMPLES];
+		long commandsReceived;
+		// 发送线程写,join后读
+		long framesSent;
+		long commandsSent;
+		long allocated;
+
+		Run(String transport, int frameRate, int commandRate, int seconds, int pollMs,
+				com.sun.management.ThreadMXBean mx) {
+			this.transport = transport;
+			this.frameRate = frameRate;
+			this.commandRate = commandRate;
+			this.seconds = seconds;
+			this.pollMs = pollMs;
+			this.mx = mx;
+		}
+
+		void execute(Transport t) throws Exception {
+			decoder.setOnFrameListener(this);
+			SerialIoEngine engine = null;
+			SerialPortManager manager = null;
+			SerialChannel channel = null;
+			Thread reader = null;
+			t.openDevice();
+			try {
+				if ("pty-mgr".equals(transport)) {
+					manager = new SerialPortManager();
+					manager.addDataListener(new OnDataListener() {
+						@Override
+						public void onData(byte[] buf, int off, int len) {
+							received(buf, off, len);
+						}
+					});
+					manager.openPort(t.host, BAUD_RATE);
+				} else {
+					engine = new SerialIoEngine(1);
+					engine.setPollIntervalMs(pollMs);
+					PortHandler handler = new PortHandler() {
+						@Override
+						public void onData(SerialChannel channel, byte[] buf, int off, int len) {
+							received(buf, off, len);
+						}
+
+						@Override
+						public void onError(SerialChannel channel, IOException e) {
+							if (!stopped) {
+								e.printStackTrace();
+							}
+						}
+					};
+					if (t.host != null) {
+						channel = engine.open(t.host, BAUD_RATE, handler);
+					} else {
+						channel = engine.register(transport, t.hostIn, t.hostOut, handler);
+						final SerialChannel c = channel;
+						t.uplink.setOnWrite(new Runnable() {
+							@Override
+							public void run() {
+								c.wakeup();
+							}
+						});
+					}
+				}
+
+				startNanos = System.nanoTime();
+				measureFrom = startNanos + TimeUnit.MILLISECONDS.toNanos(WARMUP_MS);
+				measureUntil = measureFrom + TimeUnit.SECONDS.toNanos(seconds);
+				reader = start("bench-device-reader", deviceReader(t.deviceIn));
+				Thread uplink = start("bench-uplink", uplink(t.deviceOut));
+				Thread downlink = start("bench-downlink", downlink(channel, manager));
+
+				parkUntil(measureFrom);
+				long tid = ioThreadId;
+				long before = tid >= 0 && mx.isThreadAllocatedMemorySupported() ? mx.getThreadAllocatedBytes(tid) : -1;
+				parkUntil(measureUntil);
+				if (before >= 0) {
+					allocated = mx.getThreadAllocatedBytes(tid) - before;
+				}
+				uplink.join();
+				downlink.join();
+				Thread.sleep(DRAIN_MS);
+			} finally {
+				stopped = true;
+				if (channel != null) {
+					channel.close();
+				}
+				if (engine != null) {
+					engine.shutdown();
+				}
+				if (manager != null) {
+					manager.closePort();
+				}
+				t.closeDevice();
+				if (reader != null) {
+					reader.join(1000);
+				}
+			}
+		}
+
+		/**
+		 * 主机一端收到的数据,在I/O线程(SerialIoEngine)或RXTX事件线程(SerialPortManager)上调用
+		 */
+		void received(byte[] buf, int off, int len) {
+			if (ioThreadId < 0) {
+				ioThreadId = Thread.currentThread().getId();
+			}
+			decoder.feed(buf, off, len);
+		}
+
+		private static Thread start(String name, Runnable r) {
+			Thread t = new Thread(r, name);
+			t.setDaemon(true);
+			t.start();
+			return t;
+		}
+
+		/**
+		 * 模拟传感器上行:帧内2~5为序号,6~13为计划发送时间,22~23为光照值
+		 */
+		private Runnable uplink(final OutputStream out) {
+			return new Runnable() {
+				@Override
+				public void run() {
+					byte[] frame = new byte[FRAME_LENGTH];
+					System.arraycopy(HEADER, 0, frame, 0, 2);
+					System.arraycopy(TRAILER, 0, frame, FRAME_LENGTH - 2, 2);
+					long interval = frameRate > 0 ? TimeUnit.SECONDS.toNanos(1) / frameRate : 0;
+					try {
+						for (int seq = 0;; seq++) {
+							long planned;
+							if (frameRate > 0) {
+								planned = startNanos + seq * interval;
+								parkUntil(planned);
+							} else {
+								planned = System.nanoTime();
+							}
+							if (planned >= measureUntil) {
+								break;
+							}
+							putInt(frame, 2, seq);
+							putLong(frame, 6, planned);
+							frame[22] = (byte) seq;
+							frame[23] = (byte) (seq >>> 8);
+							out.write(frame, 0, FRAME_LENGTH);
+							if (planned >= measureFrom) {
+								framesSent++;
+							}
+						}
+						out.flush();
+					} catch (IOException e) {
+						e.printStackTrace();
+					}
+				}
+			};
+		}
+
+		/**
+		 * 下行:与LED命令相同的帧头帧尾,2~5为序号,6~13为计划发送时间;每条命令内容不同,不会被队列合并
+		 */
+		private Runnable downlink(final SerialChannel channel, final SerialPortManager manager) {
+			return new Runnable() {
+				@Override
+				public void run() {
+					if (commandRate <= 0) {
+						return;
+					}
+					long interval = TimeUnit.SECONDS.toNanos(1) / commandRate;
+					for (int seq = 0;; seq++) {
+						long planned = startNanos + seq * interval;
+						parkUntil(planned);
+						if (planned >= measureUntil) {
+							break;
+						}
+						byte[] command = new byte[COMMAND_LENGTH];
+						System.arraycopy(HEADER, 0, command, 0, 2);
+						System.arraycopy(TRAILER, 0, command, COMMAND_LENGTH - 2, 2);
+						putInt(command, 2, seq);
+						putLong(command, 6, planned);
+						boolean queued = true;
+						if (channel != null) {
+							queued = channel.write(command);
+						} else {
+							manager.sendToPort(command);
+						}
+						if (queued && planned >= measureFrom) {
+							commandsSent++;
+						}
+					}
+				}
+			};
+		}
+
+		/**
+		 * 模拟传感器读取下行命令
+		 */
+		private Runnable deviceReader(final InputStream in) {
+			return new Runnable() {
+				@Override
+				public void run() {
+					FrameDecoder commands = new FrameDecoder(HEADER, TRAILER, COMMAND_LENGTH, 1024);
+					commands.setOnFrameListener(new OnFrameListener() {
+						@Override
+						public void onFrame(byte[] frame, int off, int len) {
+							long now = System.nanoTime();
+							long planned = getLong(frame, off + 6);
+							if (planned >= measureFrom && planned < measureUntil) {
+								downLatency[(int) (commandsReceived++ % MAX_SAMPLES)] = (now - planned) / 1000;
+							}
+						}
+					});
+					byte[] buf = new byte[1024];
+					try {
+						int n;
+						// RXTX一端设置了接收超时,没有数据时返回0,以便检查stopped
+						while (!stopped && (n = in.read(buf, 0, buf.length)) >= 0) {
+							commands.feed(buf, 0, n);
+						}
+					} catch (IOException e) {
+						// 关闭时读取中断
+					}
+				}
+			};
+		}
+
+		@Override
+		public void onFrame(byte[] frame, int off, int len) {
+			long now = System.nanoTime();
+			long planned = getLong(frame, off + 6);
+			// 溢出丢字节后可能错位解出假帧,时间不在运行期间内的不计
+			if (planned < startNanos || planned > now) {
+				corrupt++;
+				return;
+			}
+			if (planned >= measureFrom && planned < measureUntil) {
+				upLatency[(int) (framesReceived++ % MAX_SAMPLES)] = (now - planned) / 1000;
+			}
+		}
+
+		void print() {
+			int up = (int) Math.min(framesReceived, MAX_SAMPLES);
+			int down = (int) Math.min(commandsReceived, MAX_SAMPLES);
+			Arrays.sort(upLatency, 0, up);
+			Arrays.sort(downLatency, 0, down);
+			System.out.printf("%-9s %7s %9.0f %8.1f %7d %7d %8d %8d %8d %7d %8.1f %7d %7d %8.2f%n", transport,
+					target(frameRate), framesReceived / (double) seconds,
+					framesReceived * FRAME_LENGTH / 1024.0 / seconds, percentile(upLatency, up, 0.5),
+					percentile(upLatency, up, 0.99), percentile(upLatency, up, 0.999),
+					up > 0 ? upLatency[up - 1] : 0, framesSent - framesReceived, decoder.getResyncs(),
+					commandsReceived / (double) seconds, percentile(downLatency, down, 0.5),
+					percentile(downLatency, down, 0.99), framesReceived > 0 ? allocated / (double) framesReceived : 0);
+			if (corrupt > 0) {
+				System.out.println("  uplink: " + corrupt + " misaligned frames after overflow ignored");
+			}
+			if (commandsSent != commandsReceived) {
+				System.out.println("  downlink: sent=" + commandsSent + " received=" + commandsReceived);
+			}
+		}
+	}
+
+	/**
+	 * 主机一端交给SerialIoEngine或SerialPortManager,传感器一端由压测线程读写
+	 * 回环时两端都是LoopbackPipe的流;伪终端时host为主机一端的路径(由被测对象经RXTX打开),
+	 * 传感器一端每次运行前由openDevice经RXTX打开
+	 */
+	private static final class Transport {
+		InputStream hostIn;
+		OutputStream hostOut;
+		InputStream deviceIn;
+		OutputStream deviceOut;
+		LoopbackPipe uplink;
+		String host;
+		String device;
+		SerialPort devicePort;
+		Process socat;
+		File dir;
+
+		static Transport loopback(boolean dropOnOverflow) {
+			Transport t = new Transport();
+			t.uplink = new LoopbackPipe(PIPE_CAPACITY, dropOnOverflow);
+			LoopbackPipe downlink = new LoopbackPipe(PIPE_CAPACITY, false);
+			t.hostIn = t.uplink.getInputStream();
+			t.hostOut = downlink.getOutputStream();
+			t.deviceIn = downlink.getInputStream();
+			t.deviceOut = t.uplink.getOutputStream();
+			return t;
+		}
+
+		/**
+		 * 准备一对伪终端:-Dbench.pty指定时直接使用,否则用socat创建;
+		 * 两个路径写入gnu.io.rxtx.SerialPorts,RXTX不会自己枚举到伪终端
+		 */
+		static Transport pty() throws IOException {
+			Transport t = new Transport();
+			String given = System.getProperty("bench.pty");
+			if (given != null) {
+				String[] parts = given.split(",");
+				if (parts.length != 2) {
+					throw new IOException("bench.pty must be <host pty>,<device pty>");
+				}
+				t.host = parts[0].trim();
+				t.device = parts[1].trim();
+			} else {
+				t.dir = Files.createTempDirectory("serial-bench").toFile();
+				t.host = new File(t.dir, "host").getPath();
+				t.device = new File(t.dir, "device").getPath();
+				try {
+					t.socat = new ProcessBuilder("socat", "pty,raw,echo=0,link=" + t.host,
+							"pty,raw,echo=0,link=" + t.device).redirectErrorStream(true).start();
+				} catch (IOException e) {
+					t.dir.delete();
+					throw new IOException("socat not available, install it or set -Dbench.pty");
+				}
+				long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+				while (!new File(t.host).exists() || !new File(t.device).exists()) {
+					if (System.nanoTime() > deadline || !t.socat.isAlive()) {
+						t.close();
+						throw new IOException("socat did not create the pty pair");
+					}
+					try {
+						Thread.sleep(10);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						t.close();
+						throw new IOException("interrupted");
+					}
+				}
+			}
+			System.setProperty("gnu.io.rxtx.SerialPorts", t.host + File.pathSeparator + t.device);
+			return t;
+		}
+
+		/**
+		 * 经RXTX打开传感器一端(回环时什么也不做,两端的流已经接好)
+		 */
+		void openDevice() throws Exception {
+			if (device == null) {
+				return;
+			}
+			CommPort port;
+			try {
+				port = CommPortIdentifier.getPortIdentifier(device).open("bench-device", 2000);
+			} catch (UnsatisfiedLinkError e) {
+				throw new IOException("RXTX native library not found, set -Djava.library.path");
+			}
+			if (!(port instanceof SerialPort)) {
+				port.close();
+				throw new IOException(device + " is not a serial port");
+			}
+			devicePort = (SerialPort) port;
+			devicePort.setSerialPortParams(BAUD_RATE, SerialPort.DATABITS_8, SerialPort.STOPBITS_1,
+					SerialPort.PARITY_NONE);
+			devicePort.enableReceiveTimeout(100);
+			deviceIn = devicePort.getInputStream();
+			deviceOut = devicePort.getOutputStream();
+		}
+
+		/**
+		 * 关闭传感器一端,读线程随之结束
+		 */
+		void closeDevice() {
+			closeQuietly(deviceIn);
+			closeQuietly(deviceOut);
+			if (devicePort != null) {
+				devicePort.close();
+				devicePort = null;
+			}
+		}
+
+		void close() {
+			closeDevice();
+			if (socat != null) {
+				socat.destroy();
+			}
+			if (dir != null) {
+				File[] links = dir.listFiles();
+				if (links != null) {
+					for (File f : links) {
+						f.delete();
+					}
+				}
+				dir.delete();
+			}
+		}
+
+		private static void closeQuietly(java.io.Closeable c) {
+			if (c == null) {
+				return;
+			}
+			try {
+				c.close();
+			} catch (IOException e) {
+				// 忽略
+			}
+		}
+	}
+}
@@ -0,0 +1,96 @@
+package com.uhf.benchmark;
+
+import com.uhf.detailwith.InventoryDetailWith;
+import com.uhf.driver.InMemoryReaderDriver;
+import com.uhf.driver.SyntheticTagGenerator;
+import com.uhf.structures.InventoryArea;
+import com.uhf.structures.InventoryRecordView;
+import com.uhf.structures.InventorySnapshot;
+
+/**
+ * 用合成标签群体压测盘点流水线:InMemoryReaderDriver -> inventoryCallBack -> InventoryDetailWith.store
+ * 每秒取走一次store的结果,输出实际读取速率、不同标签数和在场标签数;最后输出生成序列的校验值,
+ * 相同种子和参数的运行校验值相同
+ * 运行: java com.uhf.benchmark.SyntheticLoadBenchmark [读取/秒] [秒数] [标签总数] [STATIC|CONVEYOR|CHURN] [种子]
+ */
+public class SyntheticLoadBenchmark {
+
+	private static final int CHECKSUM_READS = 1000000;
+
+	public static void main(String[] args) throws InterruptedException {
+		int rate = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+		int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+		int population = args.length > 2 ? Integer.parseInt(args[2]) : 10000;
+		SyntheticTagGenerator.Mobility mobility = args.length > 3
+				? SyntheticTagGenerator.Mobility.valueOf(args[3]) : SyntheticTagGenerator.Mobility.CHURN;
+		long seed = args.length > 4 ? Long.parseLong(args[4]) : 42;
+
+		SyntheticTagGenerator generator = newGenerator(rate, population, mobility, seed);
+		InMemoryReaderDriver driver = new InMemoryReaderDriver(seed);
+		driver.setGenerator(generator);
+		InventoryArea area = new InventoryArea();
+		area.setValue(1, 0, 6);
+		driver.setInventoryArea(area);
+		if (driver.connect("SIM0") != 0) {
+			System.out.println("connect failed");
+			return;
+		}
+		InventoryDetailWith.getInstance().setListener(driver);
+
+		System.out.println("rate=" + rate + "/s population=" + population + " mobility=" + mobility + " seed=" + seed);
+		System.out.printf("%6s %12s %10s %10s%n", "sec", "reads/s", "tags", "in field");
+		InventoryDetailWith.store.swap();
+		driver.startInventory(0, 0);
+		long total = 0;
+		long start = System.nanoTime();
+		for (int s = 1; s <= seconds; s++) {
+			Thread.sleep(1000);
+			InventorySnapshot snapshot = InventoryDetailWith.store.swap();
+			total += snapshot.getReadCount();
+			// 在场数由盘点线程修改,这里只作展示
+			System.out.printf("%6d %12d %10d %10d%n", s, snapshot.getReadCount(), snapshot.getTagCount(),
+					generator.getInFieldCount());
+		}
+		driver.stopInventory();
+		double elapsed = (System.nanoTime() - start) / 1e9;
+		total += InventoryDetailWith.store.swap().getReadCount();
+		driver.disconnect();
+		System.out.printf("total reads=%d  avg=%.0f/s  target=%d/s%n", total, total / elapsed, rate);
+		System.out.printf("checksum(first %d reads)=%016x%n", CHECKSUM_READS,
+				checksum(newGenerator(rate, population, mobility, seed)));
+	}
+
+	private static SyntheticTagGenerator newGenerator(int rate, int population,
+			SyntheticTagGenerator.Mobility mobility, long seed) {
+		SyntheticTagGenerator generator = new SyntheticTagGenerator(seed);
+		generator.setReadsPerSecond(rate);
+		generator.setPopulationSize(population);
+		generator.setMobility(mobility);
+		generator.setArrivalsPerSecond(population / 10.0);
+		generator.setAntennaRssi(1, -50, 4);
+		generator.setAntennaRssi(2, -58, 6);
+		generator.setAntennaRssi(3, -62, 8);
+		generator.setAntennaRssi(4, -70, 10);
+		return generator;
+	}
+
+	/**
+	 * 直接运行生成器(不经过驱动和线程),对天线/RSSI/EPC做哈希
+	 */
+	private static long checksum(SyntheticTagGenerator generator) {
+		InventoryRecordView view = InventoryRecordView.allocate();
+		long hash = 1125899906842597L;
+		for (int i = 0; i < CHECKSUM_READS; i++) {
+			if (!generator.next(view, 1, 0, 6)) {
+				hash = 31 * hash - 1;
+				continue;
+			}
+			hash = 31 * hash + view.getAntennaPort();
+			hash = 31 * hash + view.getRssi();
+			for (int j = 0; j < view.getEpcLen(); j++) {
+				hash = 31 * hash + view.getEpc(j);
+			}
+		}
+		return hash;
+	}
+}
@@ -0,0 +1,124 @@
+package com.uhf.benchmark;
+
+import com.uhf.utils.TimingWheel;
+
+/**
+ * 时间轮在1万/10万/100万个标签下的刷新与到期开销,并与每个tick全表扫描对比
+ * 使用模拟时间,不依赖读写器;运行: java com.uhf.benchmark.TimingWheelBenchmark [标签数...]
+ */
+public class TimingWheelBenchmark {
+
+	private static final long TICK_MS = 50;
+	private static final long TIMEOUT_MS = 2000;
+	private static final int REFRESHES = 5000000;
+	private static final int ROUNDS = 3;   // 第一轮为预热
+
+	private static long sink;
+
+	public static void main(String[] args) {
+		int[] sizes = { 10000, 100000, 1000000 };
+		if (args.length > 0) {
+			sizes = new int[args.length];
+			for (int i = 0; i < args.length; i++) {
+				sizes[i] = Integer.parseInt(args[i]);
+			}
+		}
+		System.out.println("tick=" + TICK_MS + "ms timeout=" + TIMEOUT_MS + "ms refreshes=" + REFRESHES);
+		System.out.printf("%10s %14s %16s %16s %16s%n", "tags", "refresh ns/op", "expire ns/tag", "idle tick ns",
+				"full scan ns");
+		for (int n : sizes) {
+			for (int round = 0; round < ROUNDS; round++) {
+				Result r = run(n);
+				if (round == ROUNDS - 1) {
+					System.out.printf("%10d %14.1f %16.1f %16.1f %16.1f%n", n, r.refreshNs, r.expireNs, r.idleTickNs,
+							r.scanNs);
+				}
+			}
+		}
+		if (sink == 42) {
+			System.out.println();
+		}
+	}
+
+	private static Result run(int n) {
+		Result result = new Result();
+		long now = 0;
+		TimingWheel wheel = new TimingWheel(TICK_MS, TIMEOUT_MS, now);
+		final int[] expired = new int[1];
+		TimingWheel.ExpiryHandler handler = new TimingWheel.ExpiryHandler() {
+			@Override
+			public void expired(int id, long t) {
+				expired[0]++;
+			}
+		};
+		for (int id = 0; id < n; id++) {
+			wheel.schedule(id, now + TIMEOUT_MS);
+		}
+
+		// 刷新: 随机标签被读到,模拟时间每1000次读取前进1ms(100万次/秒读取的量级),每个tick推进一次时间轮
+		int seed = 0x9E3779B9;
+		long advanceNs = 0;
+		long start = System.nanoTime();
+		for (int i = 0; i < REFRESHES; i++) {
+			seed ^= seed << 13;
+			seed ^= seed >>> 17;
+			seed ^= seed << 5;
+			int id = (seed & 0x7fffffff) % n;
+			if ((i % 1000) == 0) {
+				now++;
+				if (now % TICK_MS == 0) {
+					long a = System.nanoTime();
+					wheel.advance(now, handler);
+					advanceNs += System.nanoTime() - a;
+				}
+			}
+			wheel.schedule(id, now + TIMEOUT_MS);
+		}
+		result.refreshNs = (System.nanoTime() - start - advanceNs) / (double) REFRESHES;
+
+		// 到期: 停止刷新,推进时间直到所有条目到期
+		expired[0] = 0;
+		start = System.nanoTime();
+		while (wheel.size() > 0) {
+			now += TICK_MS;
+			wheel.advance(now, handler);
+		}
+		result.expireNs = (System.nanoTime() - start) / (double) Math.max(1, expired[0]);
+
+		// 空转: 所有条目都在超时末尾,中间的tick没有条目到期
+		for (int id = 0; id < n; id++) {
+			wheel.schedule(id, now + TIMEOUT_MS);
+		}
+		int idleTicks = 0;
+		start = System.nanoTime();
+		for (long t = now + TICK_MS; t < now + TIMEOUT_MS - TICK_MS; t += TICK_MS) {
+			wheel.advance(t, handler);
+			idleTicks++;
+		}
+		result.idleTickNs = (System.nanoTime() - start) / (double) idleTicks;
+
+		// 对比: 每个tick扫描全部标签的最近读取时间
+		long[] lastSeen = new long[n];
+		int scans = 20;
+		start = System.nanoTime();
+		long departed = 0;
+		for (int s = 0; s < scans; s++) {
+			long scanNow = s * TICK_MS;
+			for (int id = 0; id < n; id++) {
+				if (scanNow - lastSeen[id] >= TIMEOUT_MS) {
+					departed++;
+				}
+			}
+		}
+		result.scanNs = (System.nanoTime() - start) / (double) scans;
+		sink += departed + expired[0];
+		return result;
+	}
+
+	private static class Result {
+		double refreshNs;
+		double expireNs;
+		double idleTickNs;
+		double scanNs;
+	}
+}
@@ -1,16 +1,32 @@
 package com.integrated.controller;
 
-import com.uhf.detailwith.InventoryDetailWith;
-import com.uhf.linkage.Linkage;
-import com.yang.serialport.exception.*;
-import com.yang.serialport.manage.SerialPortManager;
-import com.yang.serialport.utils.ByteUtils;
-import gnu.io.SerialPort;
-import gnu.io.SerialPortEvent;
-import gnu.io.SerialPortEventListener;
+import com.uhf.detailwith.RwDataDetailWith;
+import com.uhf.detailwith.TagPresenceTracker;
+import com.uhf.driver.ReaderDrivers;
+import com.uhf.linkage.ConnectionSupervisor;
+import com.uhf.linkage.ContinuousInventory;
+import com.uhf.linkage.OnLinkStateListener;
+import com.uhf.linkage.RfidLink;
+import com.uhf.linkage.SerialLink;
+import com.uhf.linkage.SupervisedLink;
+import com.uhf.pipeline.InventoryRingBuffer;
+import com.uhf.structures.TagEvent;
+import com.uhf.structures.TagRecord;
+import com.yang.serialport.capture.CaptureLog;
+import com.yang.serialport.frame.FrameDecoder;
+import com.yang.serialport.frame.OnFrameListener;
+import com.yang.serialport.manage.PortHandler;
+import com.yang.serialport.manage.SerialChannel;
+import com.yang.serialport.manage.SerialIoEngine;
+import com.yang.serialport.manage.SerialPortRegistry;
+import com.yang.serialport.utils.HexDump;
+
+import java.io.File;
+import java.io.IOException;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 /**
  * 集成控制器：管理RFID读卡器和WSN传感器系统
@@ -18,12 +34,54 @@ import java.util.Map;
  */
 public class IntegratedController {
     
-    // WSN传感器串口
-    private SerialPort wsnSerialPort;
+    // 串口I/O引擎与WSN传感器串口
+    private SerialIoEngine serialEngine;
+    private SerialLink wsnLink;
+    
+    // RFID读卡器连接与连接监视：USB串口适配器复位等导致断开时自动重连
+    private RfidLink rfidLink;
+    private ConnectionSupervisor supervisor;
+    private static final long LINK_CHECK_INTERVAL_MS = 1000;
+    // 超过该时间没有收到传感器数据即重连WSN串口
+    private static final long WSN_STALL_TIMEOUT_MS = 10000;
+    // 串口仍打开但超过该时间没有数据时重开WSN串口（传感器正常时数秒内总会上报）
+    private static final long WSN_MAX_SILENCE_MS = 60000;
+    // 超过该时间没有盘点回调时查询读写器（场内可能只是没有标签）
+    private static final long RFID_STALL_TIMEOUT_MS = 10000;
+    private static final int CONTINUOUS_INVENTORY_MODE = 2;
+    // 后台重新扫描串口的间隔，重连时按名称查找命中缓存，不在重连路径上枚举串口
+    private static final long PORT_RESCAN_INTERVAL_MS = 10000;
+    
+    // 链路中断标记：中断期间（及恢复后一个离开判定时间内）的离开判定和光照值可能不准确
+    private volatile boolean rfidDown;
+    private volatile long rfidRestoredAt;
+    private volatile boolean wsnDown;
+    // 链路断开时置位，由I/O线程在下一次收到数据时清空分帧器（分帧器只能在I/O线程上使用）
+    private volatile boolean wsnDecoderResetPending;
+    
+    // WSN串口收发数据的抓包日志（-Dwsn.capture=目录 时开启），可用CaptureReplay离线回放
+    private CaptureLog captureLog;
     
     // 最新光照强度值（线程安全）
     private volatile double currentIllumination = 0.0;
     
+    // WSN传感器上行数据帧，共26字节，[22-23]为光照原始值，无符号小端，lux = 原始值 / 65536 * 16000
+    // 默认按长度分帧：读到的字节攒起来每26字节切一帧，两次读之间超过WSN_FRAME_GAP_MS视为帧间隔，清掉不足一帧的残余重新对齐
+    // -Dwsn.framing=delimited 时按FFFF帧头、FEFE帧尾分帧（与下行LED命令相同的格式）；
+    // 上行帧是否带这样的帧头帧尾还没有用实际抓包（-Dwsn.capture）核对过，核对前不要作为默认
+    private static final byte[] WSN_FRAME_HEADER = { (byte) 0xFF, (byte) 0xFF };
+    private static final byte[] WSN_FRAME_TRAILER = { (byte) 0xFE, (byte) 0xFE };
+    private static final int WSN_FRAME_LENGTH = 26;
+    private static final int WSN_ILLUMINATION_OFFSET = 22;
+    private static final long WSN_FRAME_GAP_MS = 100;  // 9600波特率下一帧约27ms
+    private static final boolean WSN_DELIMITED_FRAMING = "delimited".equals(System.getProperty("wsn.framing"));
+    
+    // WSN串口数据的分帧器（串口事件线程使用）
+    private final FrameDecoder wsnDecoder = WSN_DELIMITED_FRAMING
+            ? new FrameDecoder(WSN_FRAME_HEADER, WSN_FRAME_TRAILER, WSN_FRAME_LENGTH, 1024)
+            : new FrameDecoder(null, null, WSN_FRAME_LENGTH, 1024);
+    private long wsnLastDataNanos;              // 串口事件线程使用
+    
     // 光照阈值（小于此值需要开灯）
     private static final double ILLUMINATION_THRESHOLD = 100.0;
     
@@ -35,7 +93,32 @@ public class IntegratedController {
     private static final String GREEN_LED_ON = "FFFFB6250001FEFE"; // 绿灯亮，红灯灭
     private static final String LED_OFF = "FFFFB6240000FEFE";      // 关闭LED
     
-    private boolean isRunning = false;
+    // 预先编码的命令字节，发送时不再解析
+    private static final byte[] RED_LED_ON_BYTES = HexDump.parse(RED_LED_ON);
+    private static final byte[] GREEN_LED_ON_BYTES = HexDump.parse(GREEN_LED_ON);
+    private static final byte[] LED_OFF_BYTES = HexDump.parse(LED_OFF);
+    
+    // LED命令互相替代：队列中尚未发出的LED命令被新的替换
+    private static final Object LED_COMMAND_KEY = "LED";
+    // 与上次发出的LED命令相同时，该时间内不再重复发送
+    private static final long LED_RESEND_INTERVAL_MS = 1000;
+    // 下行限速（9600bps约960字节/秒）
+    private static final long DOWNLINK_BYTES_PER_SECOND = 960;
+    private static final long DOWNLINK_BURST_BYTES = 64;
+    
+    // 标签离开判定时间：超过该时间没有再读到即认为标签已离开
+    private static final long TAG_ABSENCE_TIMEOUT_MS = 2000;
+    // 标签在场期间重新评估LED的间隔
+    private static final long TAG_PRESENCE_REPORT_MS = 1500;
+    // 离开检查间隔
+    private static final long PRESENCE_TICK_MS = 100;
+    
+    // RFID回调与标签处理之间的缓冲区
+    private InventoryRingBuffer inventoryBuffer;
+    
+    // 标签到达/离开跟踪与连续盘点
+    private TagPresenceTracker presenceTracker;
+    private ContinuousInventory continuousInventory;
     
     public IntegratedController() {
         // 初始化标签-颜色映射表
@@ -96,6 +179,7 @@ public class IntegratedController {
      */
     public void start(String rfidComPort, String wsnComPort, int baudrate) {
         System.out.println("=== 启动集成控制系统 ===");
+        SerialPortRegistry.getDefault().start(PORT_RESCAN_INTERVAL_MS);
         
         // 1. 初始化WSN传感器串口
         if (!initWsnSerialPort(wsnComPort, baudrate)) {
@@ -105,7 +189,9 @@ public class IntegratedController {
         System.out.println("✓ WSN传感器初始化成功");
         
         // 2. 初始化RFID读卡器
-        int rfidStatus = Linkage.getInstance().initial(rfidComPort);
+        rfidLink = new RfidLink(ReaderDrivers.getDefault(), rfidComPort);
+        rfidLink.setOnRwListener(RwDataDetailWith.getInstance());
+        int rfidStatus = rfidLink.open();
         if (rfidStatus != 0) {
             System.err.println("RFID读卡器初始化失败！");
             closeWsnSerialPort();
@@ -113,10 +199,22 @@ public class IntegratedController {
         }
         System.out.println("✓ RFID读卡器初始化成功");
         
+        // 回调线程只把数据放入环形缓冲区,在场状态跟踪在消费线程中进行
+        presenceTracker = new TagPresenceTracker(TAG_ABSENCE_TIMEOUT_MS, TAG_PRESENCE_REPORT_MS, PRESENCE_TICK_MS);
+        inventoryBuffer = new InventoryRingBuffer();
+        rfidLink.setOnInventoryListener(inventoryBuffer);
+        inventoryBuffer.start(presenceTracker, 1);
+        
         // 3. 启动RFID标签监听
-        isRunning = true;
         startRfidMonitoring();
         
+        // 4. 监视两条链路，断开后自动重连
+        supervisor = new ConnectionSupervisor(LINK_CHECK_INTERVAL_MS);
+        supervisor.setListener(new LinkStateListener());
+        supervisor.add(rfidLink, RFID_STALL_TIMEOUT_MS);
+        supervisor.add(wsnLink, WSN_STALL_TIMEOUT_MS);
+        supervisor.start();
+        
         System.out.println("=== 系统运行中，等待标签识别... ===\n");
     }
     
@@ -125,74 +223,76 @@ public class IntegratedController {
      */
     private boolean initWsnSerialPort(String portName, int baudrate) {
         try {
-            wsnSerialPort = SerialPortManager.openPort(portName, baudrate);
-            if (wsnSerialPort != null) {
-                // 添加串口监听器
-                SerialPortManager.addListener(wsnSerialPort, new WsnSerialListener());
+            // 串口的读取、分帧和命令发送都在引擎的I/O线程上进行
+            // 限速、去重和抓包的设置由wsnLink保存，重连后恢复
+            serialEngine = new SerialIoEngine(1);
+            wsnLink = new SerialLink(serialEngine, portName, baudrate, new WsnSerialListener());
+            wsnLink.setRateLimit(DOWNLINK_BYTES_PER_SECOND, DOWNLINK_BURST_BYTES);
+            wsnLink.setResendIntervalMs(LED_RESEND_INTERVAL_MS);
+            wsnLink.setMaxSilenceMs(WSN_MAX_SILENCE_MS);
+            String captureDir = System.getProperty("wsn.capture");
+            if (captureDir != null) {
+                captureLog = new CaptureLog(new File(captureDir));
+                wsnLink.setDebugSink(captureLog);
+                System.out.println("WSN串口抓包: " + captureLog.getDir());
+            }
+            if (wsnLink.open() == 0) {
                 return true;
             }
+            closeWsnSerialPort();
         } catch (Exception e) {
-            e.printStackTrace();
+            System.err.println(e);
+            closeWsnSerialPort();
         }
         return false;
     }
     
     /**
      * 启动RFID标签监听
+     * 读写器保持连续盘点,标签到达后立即处理,不再等待下一个盘点周期
      */
     private void startRfidMonitoring() {
-        new Thread(() -> {
-            while (isRunning) {
-                try {
-                    // 清空之前的盘点数据
-                    InventoryDetailWith.list.clear();
-                    InventoryDetailWith.tagCount = 0;
-                    InventoryDetailWith.totalCount = 0;
-                    
-                    // 开始盘点
-                    Linkage.getInstance().startInventory(2, 0);
-                    InventoryDetailWith.startTime = System.currentTimeMillis();
-                    
-                    // 等待盘点一段时间（500ms）
-                    Thread.sleep(500);
-                    
-                    // 停止盘点
-                    Linkage.getInstance().stopInventory();
-                    
-                    // 处理盘点到的标签
-                    if (!InventoryDetailWith.list.isEmpty()) {
-                        processDetectedTags();
-                    }
-                    
-                    // 短暂延迟后继续下一轮盘点
-                    Thread.sleep(1000);
-                    
-                } catch (InterruptedException e) {
-                    break;
-                } catch (Exception e) {
-                    e.printStackTrace();
-                }
-            }
-        }).start();
+        presenceTracker.setOnTagEventListener(this::onTagEvent);
+        continuousInventory = new ContinuousInventory(rfidLink.getDriver(), presenceTracker, CONTINUOUS_INVENTORY_MODE);
+        int status = continuousInventory.start();
+        if (status != 0) {
+            // 交给连接监视重连，重连后开始盘点
+            System.err.println("启动连续盘点失败，状态码: " + status);
+            rfidLink.reportError(status);
+        }
+        // 重连后恢复连续盘点
+        rfidLink.setResumeInventoryMode(CONTINUOUS_INVENTORY_MODE);
     }
     
     /**
-     * 处理检测到的RFID标签
+     * 处理标签到达/在场/离开事件
      */
-    private void processDetectedTags() {
-        for (Map<String, Object> tagData : InventoryDetailWith.list) {
-            String epcId = (String) tagData.get("epc");
-            
-            if (epcId != null && !epcId.isEmpty()) {
+    private void onTagEvent(TagEvent event) {
+        TagRecord tag = event.getTag();
+        String epcId = tag.getEpcHex();
+        if (epcId.isEmpty()) {
+            return;
+        }
+        switch (event.getType()) {
+            case ARRIVED:
                 System.out.println("\n>>> 检测到RFID标签 <<<");
                 System.out.println("标签ID (EPC): " + epcId);
-                System.out.println("天线端口: " + tagData.get("antennaPort"));
-                System.out.println("RSSI信号强度: " + tagData.get("rssi"));
-                System.out.println("读取次数: " + tagData.get("count"));
+                System.out.println("天线端口: " + tag.antennaPort);
+                System.out.println("RSSI信号强度: " + tag.rssi);
                 
                 // 执行LED控制逻辑
                 controlLedBasedOnTag(epcId);
-            }
+                break;
+            case STILL_PRESENT:
+                // 光照可能已变化,重新评估LED
+                controlLedBasedOnTag(epcId);
+                break;
+            case DEPARTED:
+                System.out.println("\n<<< RFID标签离开: " + epcId + " (读取次数: " + tag.count + ")");
+                if (rfidDown || System.currentTimeMillis() - rfidRestoredAt < TAG_ABSENCE_TIMEOUT_MS) {
+                    System.out.println("（RFID链路中断期间的离开判定，标签可能仍在场）");
+                }
+                break;
         }
     }
     
@@ -201,7 +301,8 @@ public class IntegratedController {
      */
     private void controlLedBasedOnTag(String epcId) {
         System.out.println("\n--- LED控制决策 ---");
-        System.out.println("当前光照强度: " + String.format("%.2f", currentIllumination) + " lux");
+        System.out.println("当前光照强度: " + String.format("%.2f", currentIllumination) + " lux"
+                + (wsnDown ? "（WSN链路中断，为中断前的值）" : ""));
         System.out.println("光照阈值: " + ILLUMINATION_THRESHOLD + " lux");
         
         if (currentIllumination < ILLUMINATION_THRESHOLD) {
@@ -210,57 +311,105 @@ public class IntegratedController {
             System.out.println("判断结果: 光照不足，需要开灯");
             System.out.println("标签映射颜色: " + color);
             
-            String command = color.equals("RED") ? RED_LED_ON : GREEN_LED_ON;
-            sendLedCommand(command, color + "灯");
+            boolean red = color.equals("RED");
+            sendLedCommand(red ? RED_LED_ON_BYTES : GREEN_LED_ON_BYTES, red ? RED_LED_ON : GREEN_LED_ON, color + "灯");
             
         } else {
             // 光照充足，关闭LED
             System.out.println("判断结果: 光照充足，关闭LED");
-            sendLedCommand(LED_OFF, "关闭LED");
+            sendLedCommand(LED_OFF_BYTES, LED_OFF, "关闭LED");
         }
         System.out.println("-------------------\n");
     }
     
     /**
      * 发送LED控制命令
+     * 命令放入WSN串口的下行队列，由I/O线程合并、限速后发出
      */
-    private void sendLedCommand(String hexCommand, String description) {
-        try {
-            byte[] command = ByteUtils.hexStr2Byte(hexCommand);
-            SerialPortManager.sendToPort(wsnSerialPort, command);
-            System.out.println("✓ 已发送命令: " + description + " (" + hexCommand + ")");
-        } catch (Exception e) {
-            System.err.println("✗ 发送命令失败: " + e.getMessage());
+    private void sendLedCommand(byte[] command, String hexCommand, String description) {
+        SerialChannel channel = wsnLink != null ? wsnLink.getChannel() : null;
+        if (channel == null || !channel.isOpen()) {
+            System.err.println("✗ 发送命令失败: WSN串口未打开");
+            return;
+        }
+        if (channel.write(command, LED_COMMAND_KEY)) {
+            System.out.println("✓ 已提交命令: " + description + " (" + hexCommand + ")");
+        } else {
+            System.out.println("· LED已是该状态，跳过: " + description);
         }
     }
     
     /**
      * WSN传感器串口监听器
+     * 一次读到的数据可能是半帧或多帧，交给分帧器拼出完整帧
      */
-    private class WsnSerialListener implements SerialPortEventListener {
+    private class WsnSerialListener implements PortHandler, OnFrameListener {
+        
+        WsnSerialListener() {
+            wsnDecoder.setOnFrameListener(this);
+        }
+        
         @Override
-        public void serialEvent(SerialPortEvent event) {
-            if (event.getEventType() == SerialPortEvent.DATA_AVAILABLE) {
-                try {
-                    byte[] data = SerialPortManager.readFromPort(wsnSerialPort);
-                    
-                    // 解析光照数据（数据长度为58字节）
-                    if (ByteUtils.byteArrayToHexString(data, true).length() == 58) {
-                        currentIllumination = parseIllumination(data);
-                        // 可选：打印传感器数据
-                        // System.out.println("更新光照强度: " + currentIllumination + " lux");
-                    }
-                } catch (Exception e) {
-                    // 静默处理，避免过多日志
-                }
+        public void onData(SerialChannel channel, byte[] buf, int off, int len) {
+            if (wsnDecoderResetPending) {
+                wsnDecoderResetPending = false;
+                wsnDecoder.reset();
             }
+            long now = System.nanoTime();
+            if (!WSN_DELIMITED_FRAMING
+                    && now - wsnLastDataNanos > TimeUnit.MILLISECONDS.toNanos(WSN_FRAME_GAP_MS)) {
+                wsnDecoder.reset();
+            }
+            wsnLastDataNanos = now;
+            wsnDecoder.feed(buf, off, len);
+        }
+        
+        @Override
+        public void onError(SerialChannel channel, IOException e) {
+            System.err.println("WSN串口读写失败: " + e.getMessage());
+        }
+        
+        @Override
+        public void onFrame(byte[] frame, int off, int len) {
+            currentIllumination = parseIllumination(frame, off + WSN_ILLUMINATION_OFFSET);
+            // 可选：打印传感器数据
+            // System.out.println("更新光照强度: " + currentIllumination + " lux");
         }
         
         /**
          * 解析光照强度
          */
-        private double parseIllumination(byte[] data) {
-            return (double) ((data[22] + (data[23] << 8)) / Math.pow(2, 16) * 16000);
+        private double parseIllumination(byte[] data, int i) {
+            return (double) (((data[i] & 0xFF) + ((data[i + 1] & 0xFF) << 8)) / Math.pow(2, 16) * 16000);
+        }
+    }
+    
+    /**
+     * 链路断开/恢复：标记数据缺口
+     */
+    private class LinkStateListener implements OnLinkStateListener {
+        @Override
+        public void onLinkDown(SupervisedLink link, String reason) {
+            if (link == rfidLink) {
+                rfidDown = true;
+            } else if (link == wsnLink) {
+                wsnDown = true;
+                // 丢弃断开前残留的半帧（在I/O线程上进行）
+                wsnDecoderResetPending = true;
+            }
+            System.err.println("✗ 链路断开: " + link.getName() + " (" + reason + ")，正在重连");
+        }
+        
+        @Override
+        public void onLinkRestored(SupervisedLink link, long gapMs, long recoveryMs, int attempts) {
+            if (link == rfidLink) {
+                rfidRestoredAt = System.currentTimeMillis();
+                rfidDown = false;
+            } else if (link == wsnLink) {
+                wsnDown = false;
+            }
+            System.out.println("✓ 链路恢复: " + link.getName() + "，恢复用时 " + recoveryMs + "ms（重试" + attempts
+                    + "次），数据中断 " + gapMs + "ms");
         }
     }
     
@@ -269,14 +418,37 @@ public class IntegratedController {
      */
     public void stop() {
         System.out.println("\n=== 停止集成控制系统 ===");
-        isRunning = false;
+        
+        // 先停止连接监视，避免关闭过程中被重连
+        if (supervisor != null) {
+            supervisor.stop();
+            System.out.println("连接监视统计: " + supervisor);
+            supervisor = null;
+        }
         
         // 停止RFID盘点
-        Linkage.getInstance().stopInventory();
-        Linkage.getInstance().deinitRFID();
+        if (continuousInventory != null) {
+            continuousInventory.stop();
+            continuousInventory = null;
+        }
+        if (rfidLink != null) {
+            rfidLink.close();
+            rfidLink = null;
+        }
+        if (inventoryBuffer != null) {
+            try {
+                inventoryBuffer.stop();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            System.out.println("盘点缓冲区统计: " + inventoryBuffer);
+            inventoryBuffer = null;
+        }
         
         // 关闭WSN串口
         closeWsnSerialPort();
+        System.out.println("WSN分帧统计: " + wsnDecoder);
+        SerialPortRegistry.getDefault().stop();
         
         System.out.println("系统已停止");
     }
@@ -285,9 +457,28 @@ public class IntegratedController {
      * 关闭WSN串口
      */
     private void closeWsnSerialPort() {
-        if (wsnSerialPort != null) {
-            SerialPortManager.closePort(wsnSerialPort);
-            wsnSerialPort = null;
+        if (wsnLink != null) {
+            SerialChannel channel = wsnLink.getChannel();
+            if (channel != null) {
+                System.out.println("WSN串口统计: " + channel);
+                System.out.println("下行队列统计: " + channel.getDownlink());
+            }
+            wsnLink.close();
+            wsnLink = null;
+        }
+        if (serialEngine != null) {
+            try {
+                // 等I/O线程写完已排队的命令并关闭串口
+                serialEngine.shutdown();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            serialEngine = null;
+        }
+        if (captureLog != null) {
+            System.out.println("WSN抓包统计: " + captureLog);
+            captureLog.close();
+            captureLog = null;
         }
     }
     
@@ -1,11 +1,23 @@
 package com.uhf.demo;
 
-import com.uhf.detailwith.InventoryDetailWith;
-import com.uhf.linkage.Linkage;
+import com.uhf.access.AccessResult;
+import com.uhf.access.AccessStats;
+import com.uhf.access.AdaptiveTimeoutPolicy;
+import com.uhf.access.CacheInvalidatingReaderDriver;
+import com.uhf.access.ExponentialBackoffPolicy;
+import com.uhf.access.RetryPolicy;
+import com.uhf.access.RetryingAccessor;
+import com.uhf.access.TagReadCache;
+import com.uhf.driver.ReaderDrivers;
+import com.uhf.linkage.InventoryTask;
 import com.uhf.structures.InventoryArea;
-import com.uhf.structures.RwData;
+import com.uhf.structures.InventoryResult;
+import com.uhf.structures.InventorySnapshot;
+import com.uhf.structures.TagRecord;
 import com.uhf.utils.StringUtils;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 
 /**
  * UHF RFID 实验程序 - 实现标签盘点和读写操作
@@ -18,7 +30,21 @@ public class UHF {
     private static final String ACCESS_PWD = "00000000";    // 访问密码（8位十六进制）
     private static final int READ_TIMEOUT_MS = 3000;        // 读取超时时间（毫秒）
     private static final int WRITE_TIMEOUT_MS = 500;        // 写入超时时间（毫秒）
-    private static final int RETRIES = 5;                   // 失败重试次数
+    private static final int RETRIES = 5;                   // 最多尝试次数
+    private static final int MIN_READ_TIMEOUT_MS = 100;     // 自适应读取超时下限（毫秒）
+    private static final long READ_BUDGET_MS = 6000;        // 单次读取操作的总时间预算（毫秒）
+    private static final int INVENTORY_TARGET_TAGS = 100;   // 盘点不同标签数目标
+    private static final long INVENTORY_QUIET_MS = 2000;    // 无新标签多久后停止盘点（毫秒）
+    private static final long INVENTORY_TIMEOUT_MS = 10000; // 盘点最长时间（毫秒）
+    private static final int READ_CACHE_SIZE = 1024;        // 读取缓存条目数（TID永久缓存，EPC/USER缓存5秒）
+    
+    // 读取：超时按最近读取耗时自适应，总时间有上限；写入：固定超时，失败后指数退避
+    private static final RetryPolicy READ_POLICY =
+            new AdaptiveTimeoutPolicy(RETRIES, MIN_READ_TIMEOUT_MS, READ_TIMEOUT_MS, READ_BUDGET_MS);
+    private static final RetryPolicy WRITE_POLICY =
+            new ExponentialBackoffPolicy(RETRIES, WRITE_TIMEOUT_MS, 20, 200);
+    private static RetryingAccessor accessor;
+    private static String tagEpc = "";                      // EPC区读取时应答标签的EPC，作为读取缓存的键
     
     // 写入测试数据（8位十六进制 = 4个字节 = 2个word）
     private static final String USER_WRITE_DATA = "12345678";   // 可修改为其他8位十六进制数
@@ -42,7 +68,10 @@ public class UHF {
         System.out.println("========== UHF RFID 实验开始 ==========\n");
         
         // 1. 初始化设备连接
-        int i = Linkage.getInstance().initial(COM_PORT);
+        // 默认驱动换成缓存失效的包装，所有经ReaderDrivers.getDefault()的写入（包括UhfDemo）都会使读取缓存失效
+        TagReadCache cache = new TagReadCache(READ_CACHE_SIZE);
+        ReaderDrivers.setDefault(CacheInvalidatingReaderDriver.wrap(ReaderDrivers.getDefault(), cache));
+        int i = ReaderDrivers.initial(COM_PORT);
         if (i != 0) {
             System.out.println("❌ 连接失败！请检查：");
             System.out.println("   1. 串口号是否正确（当前：" + COM_PORT + "）");
@@ -51,6 +80,8 @@ public class UHF {
             return;
         }
         System.out.println("✓ 设备连接成功\n");
+        accessor = new RetryingAccessor(ReaderDrivers.getDefault());
+        accessor.setCache(cache);
 
         // 2. 盘点操作流程
         System.out.println("========== 步骤1：标签盘点 ==========");
@@ -87,49 +118,44 @@ public class UHF {
         tidReadSync();
         System.out.println();
 
+        // 读写统计（用于调整重试策略）
+        for (AccessStats stats : accessor.getStats().values()) {
+            System.out.println(stats);
+        }
+        System.out.println(accessor.getCache());
+        System.out.println();
+
         // 6. 断开连接
-        Linkage.getInstance().deinitRFID();
+        ReaderDrivers.getDefault().deinitRFID();
         System.out.println("========== 实验结束，设备已断开 ==========");
     }
 
     // ============== EPC区读取函数 ==============
     /**
      * EPC区同步读取
-     * 参数说明：readTagSync(密码, Bank区号, 起始地址, 长度, 超时时间, 数据对象)
+     * 参数说明：read(密码, Bank区号, 起始地址, 长度, 重试策略)
      */
     public static void epcReadSync() {
         byte[] password = StringUtils.stringToByte(ACCESS_PWD);
-        RwData rwData = new RwData();
-
-        // 添加重试机制，提高成功率
-        for (int retry = 0; retry < RETRIES; retry++) {
-            int status = Linkage.getInstance().readTagSync(
-                    password,           // 访问密码
-                    BANK_EPC,          // Bank区号：1=EPC
-                    EPC_START_ADDR,    // 起始地址：2（跳过CRC和PC）
-                    EPC_WORD_LEN,      // 读取长度：1个word
-                    READ_TIMEOUT_MS,   // 超时时间：3000ms
-                    rwData             // 返回数据对象
-            );
-
-            // 判断是否读取成功
-            if (status == 0 && rwData.status == 0) {
-                String result = (rwData.rwDataLen > 0) 
-                        ? StringUtils.byteToHexString(rwData.rwData, rwData.rwDataLen) : "空";
-                String epc = (rwData.epcLen > 0) 
-                        ? StringUtils.byteToHexString(rwData.epc, rwData.epcLen) : "空";
-                
-                System.out.println("  读取数据: " + result);
-                System.out.println("  EPC码: " + epc);
-                System.out.println("  ✓ EPC读取成功");
-                return;
-            }
-            
-            if (retry < RETRIES - 1) {
-                System.out.println("  第" + (retry + 1) + "次读取失败，重试中...");
-            }
+
+        // 按读取策略重试：超时随最近的读取耗时和标签信号强度调整
+        AccessResult result = accessor.read(
+                password,           // 访问密码
+                BANK_EPC,          // Bank区号：1=EPC
+                EPC_START_ADDR,    // 起始地址：2（跳过CRC和PC）
+                EPC_WORD_LEN,      // 读取长度：1个word
+                READ_POLICY        // 重试策略
+        );
+
+        // 判断是否读取成功
+        if (result.isSuccess()) {
+            tagEpc = result.getEpcHex();
+            System.out.println("  读取数据: " + orEmpty(result.getDataHex()));
+            System.out.println("  EPC码: " + orEmpty(result.getEpcHex()));
+            System.out.println("  ✓ EPC读取成功（尝试" + result.getAttempts() + "次）");
+            return;
         }
-        System.out.println("  ❌ EPC读取失败（已重试" + RETRIES + "次）");
+        System.out.println("  ❌ EPC读取失败（尝试" + result.getAttempts() + "次，用时" + result.getAccessMs() + "ms）");
     }
 
     // ============== USER区读取函数 ==============
@@ -138,37 +164,25 @@ public class UHF {
      * 实验要求：起始地址=0，读取长度=2（8位十六进制）
      */
     public static String userReadSync() {
-        RwData rwData = new RwData();
         byte[] password = StringUtils.stringToByte(ACCESS_PWD);
 
-        // 添加重试机制
-        for (int retry = 0; retry < RETRIES; retry++) {
-            int status = Linkage.getInstance().readTagSync(
-                    password,           // 访问密码
-                    BANK_USER,         // Bank区号：3=USER
-                    USER_START_ADDR,   // 起始地址：0（实验要求）
-                    USER_WORD_LEN,     // 读取长度：2个word（8位十六进制）
-                    READ_TIMEOUT_MS,   // 超时时间
-                    rwData             // 返回数据对象
-            );
-
-            if (status == 0 && rwData.status == 0) {
-                String result = (rwData.rwDataLen > 0) 
-                        ? StringUtils.byteToHexString(rwData.rwData, rwData.rwDataLen) : "";
-                String epc = (rwData.epcLen > 0) 
-                        ? StringUtils.byteToHexString(rwData.epc, rwData.epcLen) : "空";
-                
-                System.out.println("  USER数据: " + (result.isEmpty() ? "空" : result));
-                System.out.println("  EPC码: " + epc);
-                System.out.println("  ✓ USER读取成功");
-                return result;
-            }
-            
-            if (retry < RETRIES - 1) {
-                System.out.println("  第" + (retry + 1) + "次读取失败，重试中...");
-            }
+        AccessResult result = accessor.read(
+                tagEpc,             // 目标标签EPC（命中缓存时不访问标签）
+                password,           // 访问密码
+                BANK_USER,         // Bank区号：3=USER
+                USER_START_ADDR,   // 起始地址：0（实验要求）
+                USER_WORD_LEN,     // 读取长度：2个word（8位十六进制）
+                READ_POLICY        // 重试策略
+        );
+
+        if (result.isSuccess()) {
+            String data = result.getDataHex();
+            System.out.println("  USER数据: " + orEmpty(data));
+            System.out.println("  EPC码: " + orEmpty(result.getEpcHex()));
+            System.out.println("  ✓ USER读取成功（" + attemptsText(result) + "）");
+            return data;
         }
-        System.out.println("  ❌ USER读取失败（已重试" + RETRIES + "次）");
+        System.out.println("  ❌ USER读取失败（尝试" + result.getAttempts() + "次，用时" + result.getAccessMs() + "ms）");
         return "";
     }
 
@@ -182,35 +196,24 @@ public class UHF {
     public static boolean userWriteSync(String hexData) {
         byte[] password = StringUtils.stringToByte(ACCESS_PWD);
         byte[] writeData = StringUtils.stringToByte(hexData);
-        RwData rwData = new RwData();
-
-        // 添加有限次重试
-        for (int retry = 0; retry < RETRIES; retry++) {
-            int status = Linkage.getInstance().writeTagSync(
-                    password,           // 访问密码
-                    BANK_USER,         // Bank区号：3=USER
-                    USER_START_ADDR,   // 起始地址：0（实验要求）
-                    USER_WORD_LEN,     // 写入长度：2个word
-                    writeData,         // 写入数据
-                    WRITE_TIMEOUT_MS,  // 超时时间
-                    rwData             // 返回数据对象
-            );
-
-            if (status == 0 && rwData.status == 0) {
-                String epc = (rwData.epcLen > 0) 
-                        ? StringUtils.byteToHexString(rwData.epc, rwData.epcLen) : "空";
-                
-                System.out.println("  写入数据: " + hexData);
-                System.out.println("  EPC码: " + epc);
-                System.out.println("  ✓ USER写入成功");
-                return true;
-            }
-            
-            if (retry < RETRIES - 1) {
-                System.out.println("  第" + (retry + 1) + "次写入失败，重试中...");
-            }
+
+        // 写入失败后按指数退避重试
+        AccessResult result = accessor.write(
+                password,           // 访问密码
+                BANK_USER,         // Bank区号：3=USER
+                USER_START_ADDR,   // 起始地址：0（实验要求）
+                USER_WORD_LEN,     // 写入长度：2个word
+                writeData,         // 写入数据
+                WRITE_POLICY       // 重试策略
+        );
+
+        if (result.isSuccess()) {
+            System.out.println("  写入数据: " + hexData);
+            System.out.println("  EPC码: " + orEmpty(result.getEpcHex()));
+            System.out.println("  ✓ USER写入成功（尝试" + result.getAttempts() + "次）");
+            return true;
         }
-        System.out.println("  ❌ USER写入失败（已重试" + RETRIES + "次）");
+        System.out.println("  ❌ USER写入失败（尝试" + result.getAttempts() + "次，用时" + result.getAccessMs() + "ms）");
         return false;
     }
 
@@ -220,37 +223,32 @@ public class UHF {
      * TID是标签唯一标识，只读不可写
      */
     public static void tidReadSync() {
-        RwData rwData = new RwData();
         byte[] password = StringUtils.stringToByte(ACCESS_PWD);
 
-        // 添加重试机制
-        for (int retry = 0; retry < RETRIES; retry++) {
-            int status = Linkage.getInstance().readTagSync(
-                    password,           // 访问密码
-                    BANK_TID,          // Bank区号：2=TID
-                    TID_START_ADDR,    // 起始地址：2
-                    TID_WORD_LEN,      // 读取长度：1个word
-                    READ_TIMEOUT_MS,   // 超时时间
-                    rwData             // 返回数据对象
-            );
-
-            if (status == 0 && rwData.status == 0) {
-                String result = (rwData.rwDataLen > 0) 
-                        ? StringUtils.byteToHexString(rwData.rwData, rwData.rwDataLen) : "空";
-                String epc = (rwData.epcLen > 0) 
-                        ? StringUtils.byteToHexString(rwData.epc, rwData.epcLen) : "空";
-                
-                System.out.println("  TID数据: " + result);
-                System.out.println("  EPC码: " + epc);
-                System.out.println("  ✓ TID读取成功");
-                return;
-            }
-            
-            if (retry < RETRIES - 1) {
-                System.out.println("  第" + (retry + 1) + "次读取失败，重试中...");
-            }
+        AccessResult result = accessor.read(
+                tagEpc,             // 目标标签EPC（命中缓存时不访问标签）
+                password,           // 访问密码
+                BANK_TID,          // Bank区号：2=TID
+                TID_START_ADDR,    // 起始地址：2
+                TID_WORD_LEN,      // 读取长度：1个word
+                READ_POLICY        // 重试策略
+        );
+
+        if (result.isSuccess()) {
+            System.out.println("  TID数据: " + orEmpty(result.getDataHex()));
+            System.out.println("  EPC码: " + orEmpty(result.getEpcHex()));
+            System.out.println("  ✓ TID读取成功（" + attemptsText(result) + "）");
+            return;
         }
-        System.out.println("  ❌ TID读取失败（已重试" + RETRIES + "次）");
+        System.out.println("  ❌ TID读取失败（尝试" + result.getAttempts() + "次，用时" + result.getAccessMs() + "ms）");
+    }
+
+    private static String orEmpty(String hex) {
+        return hex.isEmpty() ? "空" : hex;
+    }
+
+    private static String attemptsText(AccessResult result) {
+        return result.isCached() ? "缓存" : "尝试" + result.getAttempts() + "次";
     }
 
     // ============== 盘点相关函数 ==============
@@ -262,25 +260,28 @@ public class UHF {
     public static void startInventory() {
         InventoryArea inventory = new InventoryArea();
         inventory.setValue(2, 0, 6);  // 设置盘点区域：EPC+USER
-        Linkage.getInstance().setInventoryArea(inventory);
+        ReaderDrivers.getDefault().setInventoryArea(inventory);
         
-        InventoryDetailWith.tagCount = 0;
-        Linkage.getInstance().startInventory(2, 0);
-        InventoryDetailWith.startTime = System.currentTimeMillis();
-
-        // 等待盘点到100个标签或超时
-        while (InventoryDetailWith.totalCount < 100) {
-            try {
-                Thread.sleep(50);
-            } catch (InterruptedException e) {
-                e.printStackTrace();
-            }
+        // 读到目标标签数、一段时间没有新标签或超时，任一条件满足即停止盘点
+        InventoryTask task = new InventoryTask(ReaderDrivers.getDefault(), 2);
+        task.setTargetTags(INVENTORY_TARGET_TAGS);
+        task.setQuietPeriodMs(INVENTORY_QUIET_MS);
+        task.setTimeoutMs(INVENTORY_TIMEOUT_MS);
+        CompletableFuture<InventoryResult> future = task.start();
+        InventoryResult result;
+        try {
+            result = future.get();  // 完成时盘点已停止，可以直接进行读写操作
+        } catch (InterruptedException | ExecutionException e) {
+            future.cancel(true);
+            e.printStackTrace();
+            return;
         }
-
-        stopInventory();  // 必须停止盘点才能进行读写操作
+        InventorySnapshot snapshot = result.getSnapshot();
+        System.out.println("  结束原因: " + result.getReason());
 
         // 显示盘点结果
-        for (Map<String, Object> _map : InventoryDetailWith.list) {
+        for (TagRecord record : snapshot.getTags()) {
+            Map<String, Object> _map = record.toMap();
             System.out.println("  标签信息: " + _map);
             System.out.println("    天线号: " + _map.get("antennaPort"));
             System.out.println("    EPC码: " + _map.get("epc"));
@@ -290,12 +291,11 @@ public class UHF {
         }
 
         // 统计信息
-        long endTime = System.currentTimeMillis();
-        double rate = Math.ceil((InventoryDetailWith.tagCount * 1.0) * 1000 
-                / (endTime - InventoryDetailWith.startTime));
-        long totalTime = endTime - InventoryDetailWith.startTime;
+        long totalTime = result.getElapsedMs();
+        double rate = Math.ceil((snapshot.getReadCount() * 1.0) * 1000 
+                / Math.max(1, totalTime));
         String timeStr = StringUtils.getTimeFromMillisecond(totalTime);
-        int tagCount = InventoryDetailWith.list.size();
+        int tagCount = snapshot.getTagCount();
 
         System.out.println("\n  【盘点统计】");
         System.out.println("  盘点速率: " + rate + " 标签/秒");
@@ -307,7 +307,7 @@ public class UHF {
      * 停止盘点
      */
     public static void stopInventory() {
-        Linkage.getInstance().stopInventory();
+        ReaderDrivers.getDefault().stopInventory();
         System.out.println("  ✓ 盘点已停止");
     }
 
@@ -316,7 +316,7 @@ public class UHF {
      */
     public static void getInventoryArea() {
         InventoryArea inventoryArea = new InventoryArea();
-        int status = Linkage.getInstance().getInventoryArea(inventoryArea);
+        int status = ReaderDrivers.getDefault().getInventoryArea(inventoryArea);
         
         if (status == 0) {
             System.out.println("  区域代码: " + inventoryArea.area);
@@ -334,7 +334,7 @@ public class UHF {
     public static void setInventoryArea() {
         InventoryArea inventoryArea = new InventoryArea();
         inventoryArea.setValue(2, 0, 6);  // 2表示EPC+USER区域
-        int status = Linkage.getInstance().setInventoryArea(inventoryArea);
+        int status = ReaderDrivers.getDefault().setInventoryArea(inventoryArea);
         
         if (status == 0) {
             System.out.println("  ✓ 设置盘点区域成功（EPC+USER）");
@@ -342,4 +342,4 @@ public class UHF {
         }
         System.out.println("  ❌ 设置盘点区域失败");
     }
-}
\ No newline at end of file
+}
\ No newline at end of file
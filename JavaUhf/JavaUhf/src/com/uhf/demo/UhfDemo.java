@@ -1,18 +1,22 @@
 package com.uhf.demo;
 
-import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 
-import com.uhf.detailwith.InventoryDetailWith;
-import com.uhf.linkage.Linkage;
+import com.uhf.driver.ReaderDrivers;
+import com.uhf.linkage.InventoryTask;
 import com.uhf.structures.InventoryArea;
+import com.uhf.structures.InventoryResult;
+import com.uhf.structures.InventorySnapshot;
 import com.uhf.structures.RwData;
+import com.uhf.structures.TagRecord;
 import com.uhf.utils.StringUtils;
 
 public class UhfDemo {
 	@SuppressWarnings("static-access")
 	public static void main(String[] args) {
-		int i = Linkage.getInstance().initial("COM4") ;// 初始化连接设备,参数：端口号
+		int i = ReaderDrivers.initial("COM4") ;// 初始化连接设备,参数：端口号
 		// function：init， parameter：The port number
 		if (i == 0) {
 			System.out.println("connect success");
@@ -29,7 +33,7 @@ public class UhfDemo {
             userReadSync();// user同步读取 userReadSync
             userWriteSync();// user同步写入 userWriteSync
             tidReadSync();// tid同步读取 tidReadSync
-			Linkage.getInstance().deinitRFID();// 断开连接 deinit
+			ReaderDrivers.getDefault().deinitRFID();// 断开连接 deinit
 		} else {
 			System.out.println("connect failed");
 		}
@@ -40,7 +44,7 @@ public class UhfDemo {
 	public static void epcReadSync() {
 		byte[] password = StringUtils.stringToByte("00000000");
 		RwData rwData = new RwData();
-		int status = Linkage.getInstance().readTagSync(password,1,2,1,3000,rwData);//调用linkage中的epc读取函数 注意参数
+		int status = ReaderDrivers.getDefault().readTagSync(password,1,2,1,3000,rwData);//调用linkage中的epc读取函数 注意参数
 		// Invoking the epc reading function in linkage and note the arguments
 		//添加循环验证，避免读取失败 Add loop validation to avoid read failure
 
@@ -71,7 +75,7 @@ public class UhfDemo {
 		RwData rwData = new RwData();
 
         while(true) {
-            int status = Linkage.getInstance().writeTagSync(password, 1, 1, 1, writeData, 500, rwData);//调用linkage中的epc写入函数 注意参数
+            int status = ReaderDrivers.getDefault().writeTagSync(password, 1, 1, 1, writeData, 500, rwData);//调用linkage中的epc写入函数 注意参数
             // Invoking the epc writing function in linkage and note the arguments
             //添加循环验证，避免读取失败 Add loop validation to avoid write failure
             if (status == 0) {
@@ -93,7 +97,7 @@ public class UhfDemo {
 	public static void userReadSync() {
 		RwData rwData = new RwData();
 		byte[] password = StringUtils.stringToByte("00000000");
-		int status = Linkage.getInstance().readTagSync(password,3,2,1,3000,rwData);//调用linkage中的user读取函数 注意参数  Invoking the user reading function in linkage and note the arguments
+		int status = ReaderDrivers.getDefault().readTagSync(password,3,2,1,3000,rwData);//调用linkage中的user读取函数 注意参数  Invoking the user reading function in linkage and note the arguments
 		//添加循环验证，避免读取失败 Add loop validation to avoid read failure
 		if (status == 0) {
 			String result = "";
@@ -119,7 +123,7 @@ public class UhfDemo {
 	public static void tidReadSync() {
 		RwData rwData = new RwData();
 		byte[] password = StringUtils.stringToByte("00000000");
-		int status = Linkage.getInstance().readTagSync(password,2,2,1,3000,rwData);//调用linkage中的tid读取函数 注意参数  Invoking the tid reading function in linkage and note the arguments
+		int status = ReaderDrivers.getDefault().readTagSync(password,2,2,1,3000,rwData);//调用linkage中的tid读取函数 注意参数  Invoking the tid reading function in linkage and note the arguments
 		//添加循环验证，避免读取失败 Add loop validation to avoid read failure
 		if (status == 0) {
 			String result = "";
@@ -148,7 +152,7 @@ public class UhfDemo {
 		RwData rwData = new RwData();
 
         while(true) {
-            int status = Linkage.getInstance().writeTagSync(password, 3, 1, 1, writeData, 500, rwData);//调用linkage中的user写入函数 注意参数  Invoking the user writing function in linkage and note the arguments
+            int status = ReaderDrivers.getDefault().writeTagSync(password, 3, 1, 1, writeData, 500, rwData);//调用linkage中的user写入函数 注意参数  Invoking the user writing function in linkage and note the arguments
             //添加循环验证，避免读取失败 Add loop validation to avoid write failure
             if (status == 0) {
                 if (rwData.status == 0) {
@@ -169,25 +173,25 @@ public class UhfDemo {
 	public static void startInventory() {// 开始盘点 startInventory
 		InventoryArea inventory = new InventoryArea();
 		inventory.setValue(2, 0, 6);
-		Linkage.getInstance().setInventoryArea(inventory);
-		InventoryDetailWith.tagCount = 0;// 获取个数  Get the number
-		Linkage.getInstance().startInventory(2, 0);
-		InventoryDetailWith.startTime = System.currentTimeMillis();// 盘点的开始时间 Start time of Inventory
-
-		while (InventoryDetailWith.totalCount < 100) {
-
-			try {
-				Thread.sleep(50);
-			} catch (InterruptedException e) {
-				// TODO Auto-generated catch block
-				e.printStackTrace();
-			}
-
+		ReaderDrivers.getDefault().setInventoryArea(inventory);
+		InventoryTask task = new InventoryTask(ReaderDrivers.getDefault(), 2);
+		task.setTargetTags(100);// 读到100个不同标签,或2秒没有新标签,或10秒后停止  Stop after 100 distinct tags, 2s without new tags or 10s
+		task.setQuietPeriodMs(2000);
+		task.setTimeoutMs(10000);
+		CompletableFuture<InventoryResult> future = task.start();
+		InventoryResult result;
+		try {
+			result = future.get();// 满足条件后已停止盘点 Inventory is already stopped when it completes
+		} catch (InterruptedException | ExecutionException e) {
+			future.cancel(true);
+			e.printStackTrace();
+			return;
 		}
+		InventorySnapshot snapshot = result.getSnapshot();
+		System.out.println("结束原因(Stop reason)：" + result.getReason());
 
-		stopInventory();// 进行停止盘点 stopInventory
-
-		for (Map<String, Object> _map : InventoryDetailWith.list) {
+		for (TagRecord record : snapshot.getTags()) {
+			Map<String, Object> _map = record.toMap();
 			System.out.println(_map);
 			System.out.println("天线号(antennaPort)：" + _map.get("antennaPort"));
 			System.out.println("epc码：" + _map.get("epc"));
@@ -196,13 +200,12 @@ public class UhfDemo {
 			System.out.println("Rssi：" + _map.get("rssi"));
 		}
 
-		long m_lEndTime = System.currentTimeMillis();// 当前时间 The current time
-		double Rate = Math.ceil((InventoryDetailWith.tagCount * 1.0) * 1000
-				/ (m_lEndTime - InventoryDetailWith.startTime));
+		long total_time = result.getElapsedMs();// 盘点用时 Inventory time
+		double Rate = Math.ceil((snapshot.getReadCount() * 1.0) * 1000
+				/ Math.max(1, total_time));
 
-		long total_time = m_lEndTime - InventoryDetailWith.startTime;
 		String dateStr = StringUtils.getTimeFromMillisecond(total_time);
-		int tag = InventoryDetailWith.list.size();
+		int tag = snapshot.getTagCount();
 		System.out.println("盘点速率(Inventory rate)：" + Rate);
 
 		if (tag != 0) {
@@ -215,13 +218,13 @@ public class UhfDemo {
 	}
 
 	public static void stopInventory() {// 停止盘点 stopInventory
-		Linkage.getInstance().stopInventory();
+		ReaderDrivers.getDefault().stopInventory();
 	}
 
 	// 盘点区域获取 getInventoryArea
 	public static void getInventoryArea() {
 		InventoryArea inventoryArea = new InventoryArea();
-		int status = Linkage.getInstance().getInventoryArea(inventoryArea);
+		int status = ReaderDrivers.getDefault().getInventoryArea(inventoryArea);
 		if (status == 0) {
 			System.out.println("area:" + inventoryArea.area);
 			System.out.println("startAddr:" + inventoryArea.startAddr);
@@ -236,7 +239,7 @@ public class UhfDemo {
 	public static void setInventoryArea() {
 		InventoryArea inventoryArea = new InventoryArea();
 		inventoryArea.setValue(2, 0, 6);// 2为epc+user
-		int status = Linkage.getInstance().setInventoryArea(inventoryArea);
+		int status = ReaderDrivers.getDefault().setInventoryArea(inventoryArea);
 		if (status == 0) {
 			System.out.println("setInventoryArea success");
 			return;
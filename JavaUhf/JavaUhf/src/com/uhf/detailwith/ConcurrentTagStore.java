@@ -0,0 +1,160 @@
+package com.uhf.detailwith;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.uhf.structures.InventoryData;
+import com.uhf.structures.InventorySnapshot;
+import com.uhf.structures.TagRecord;
+
+/**
+ * 线程安全的盘点汇总存储
+ * 回调线程按标签哈希分段加锁更新当前周期(epoch);消费线程调用swap()原子地换上新周期,
+ * 并拿到已结束周期的只读结果,双方互不阻塞
+ */
+public class ConcurrentTagStore {
+
+	private static final int DEFAULT_STRIPES = 8;
+
+	private static final Comparator<TagRecord> FIRST_SEEN_ORDER = new Comparator<TagRecord>() {
+		@Override
+		public int compare(TagRecord a, TagRecord b) {
+			return Long.compare(a.firstSeen, b.firstSeen);
+		}
+	};
+
+	private final int stripeMask;
+	private final AtomicReference<Epoch> current;
+
+	public ConcurrentTagStore() {
+		this(DEFAULT_STRIPES);
+	}
+
+	/**
+	 * @param stripes 分段数,向上取整为2的幂;回调线程越多分段应越多
+	 */
+	public ConcurrentTagStore(int stripes) {
+		int n = 1;
+		while (n < stripes) {
+			n <<= 1;
+		}
+		this.stripeMask = n - 1;
+		this.current = new AtomicReference<>(new Epoch(n, 16, System.currentTimeMillis()));
+	}
+
+	/**
+	 * 记录一次读取,返回该标签是否在当前周期内第一次出现
+	 */
+	public boolean update(InventoryData inventoryData) {
+		long now = System.currentTimeMillis();
+		int epcLen = inventoryData.epc != null ? inventoryData.epcLen : 0;
+		int extLen = inventoryData.externalData != null ? inventoryData.externalDataLen : 0;
+		boolean hasKey = epcLen > 0 || extLen > 0;
+		int hash = hasKey ? TagTable.hash(inventoryData.epc, epcLen, inventoryData.externalData, extLen) : 0;
+		while (true) {
+			Epoch epoch = current.get();
+			epoch.writers.incrementAndGet();
+			try {
+				if (epoch.sealed) {
+					// 周期刚被换下,重新取当前周期
+					continue;
+				}
+				TagTable stripe = epoch.stripes[(hash >>> 24) & stripeMask];
+				synchronized (stripe) {
+					if (!hasKey) {
+						stripe.update(inventoryData, now);
+						return false;
+					}
+					return stripe.update(inventoryData, now, hash).count == 1;
+				}
+			} finally {
+				epoch.writers.decrementAndGet();
+			}
+		}
+	}
+
+	/**
+	 * 换上一个新的空周期,返回刚结束周期的结果
+	 * 只会等待正在进行中的单次更新完成,不会阻塞回调线程
+	 */
+	public InventorySnapshot swap() {
+		Epoch old = current.get();
+		long now = System.currentTimeMillis();
+		Epoch fresh = new Epoch(old.stripes.length, old.uniqueCount() / old.stripes.length, now);
+		old = current.getAndSet(fresh);
+		old.sealed = true;
+		while (old.writers.get() != 0) {
+			Thread.yield();
+		}
+		return old.toSnapshot(now);
+	}
+
+	/**
+	 * 当前周期内不同标签数量(并发读取,仅作进度参考)
+	 */
+	public int getTagCount() {
+		return current.get().uniqueCount();
+	}
+
+	/**
+	 * 当前周期内有效读取次数(并发读取,仅作进度参考)
+	 */
+	public int getReadCount() {
+		int n = 0;
+		for (TagTable t : current.get().stripes) {
+			n += t.getReadCount();
+		}
+		return n;
+	}
+
+	/**
+	 * 当前周期内回调总次数(并发读取,仅作进度参考)
+	 */
+	public int getTotalCount() {
+		int n = 0;
+		for (TagTable t : current.get().stripes) {
+			n += t.getTotalCount();
+		}
+		return n;
+	}
+
+	private static final class Epoch {
+		final TagTable[] stripes;
+		final AtomicInteger writers = new AtomicInteger();
+		final long startTime;
+		volatile boolean sealed;
+
+		Epoch(int stripeCount, int expectedPerStripe, long startTime) {
+			this.stripes = new TagTable[stripeCount];
+			for (int i = 0; i < stripeCount; i++) {
+				stripes[i] = new TagTable(Math.max(16, expectedPerStripe));
+			}
+			this.startTime = startTime;
+		}
+
+		int uniqueCount() {
+			int n = 0;
+			for (TagTable t : stripes) {
+				n += t.size();
+			}
+			return n;
+		}
+
+		InventorySnapshot toSnapshot(long endTime) {
+			List<TagRecord> tags = new ArrayList<>(uniqueCount());
+			int readCount = 0;
+			int totalCount = 0;
+			for (TagTable t : stripes) {
+				tags.addAll(t.records());
+				readCount += t.getReadCount();
+				totalCount += t.getTotalCount();
+			}
+			Collections.sort(tags, FIRST_SEEN_ORDER);
+			return new InventorySnapshot(Collections.unmodifiableList(tags), readCount, totalCount, startTime, endTime);
+		}
+	}
+}
@@ -0,0 +1,190 @@
+package com.uhf.detailwith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.uhf.driver.ReaderDriver;
+import com.uhf.structures.InventoryData;
+import com.uhf.structures.OnInventoryListener;
+import com.uhf.structures.RssiStats;
+import com.uhf.structures.TagRecord;
+import com.uhf.utils.StringUtils;
+
+/**
+ * 按(EPC, 天线号)流式统计RSSI:最小/最大/均值/方差(Welford)和EWMA平滑值
+ * 每个键只占固定的几个基本类型数组元素,不保存样本;resetWindow()开始新的统计窗口,
+ * 旧窗口的数据在该键下一次被读到时才清零,重置本身是O(1)
+ */
+public class RssiStatistics implements OnInventoryListener {
+
+	public static final double DEFAULT_EWMA_ALPHA = 0.2;
+
+	private final double alpha;
+	// 键为 EPC + 4字节天线号, TagTable 负责分配连续的id
+	private final TagTable table = new TagTable(1024);
+	private final InventoryData key = new InventoryData();
+	private final byte[] portBytes = new byte[4];
+
+	private int window;
+	private int[] windowOf = new int[1024];
+	private long[] count = new long[1024];
+	private int[] min = new int[1024];
+	private int[] max = new int[1024];
+	private double[] mean = new double[1024];
+	private double[] m2 = new double[1024];
+	private double[] ewma = new double[1024];
+	private boolean[] ewmaSet = new boolean[1024];
+
+	public RssiStatistics() {
+		this(DEFAULT_EWMA_ALPHA);
+	}
+
+	/**
+	 * @param alpha EWMA的平滑系数,取值(0, 1],越大越跟随最新读数
+	 */
+	public RssiStatistics(double alpha) {
+		if (alpha <= 0 || alpha > 1) {
+			throw new IllegalArgumentException("alpha must be in (0, 1]: " + alpha);
+		}
+		this.alpha = alpha;
+		key.externalData = portBytes;
+		key.externalDataLen = portBytes.length;
+	}
+
+	@Override
+	public synchronized void getInventoryData(InventoryData inventoryData) {
+		if (inventoryData == null || inventoryData.epc == null || inventoryData.epcLen <= 0) {
+			return;
+		}
+		key.epc = inventoryData.epc;
+		key.epcLen = inventoryData.epcLen;
+		key.antennaPort = inventoryData.antennaPort;
+		key.pc = inventoryData.pc;
+		key.rssi = inventoryData.rssi;
+		putPort(inventoryData.antennaPort);
+		TagRecord record = table.update(key, System.currentTimeMillis());
+		key.epc = null;
+		add(record.id, inventoryData.rssi);
+	}
+
+	private void add(int id, int rssi) {
+		ensureCapacity(id);
+		if (windowOf[id] != window) {
+			windowOf[id] = window;
+			count[id] = 0;
+		}
+		long n = ++count[id];
+		if (n == 1) {
+			min[id] = rssi;
+			max[id] = rssi;
+			mean[id] = rssi;
+			m2[id] = 0;
+		} else {
+			if (rssi < min[id]) {
+				min[id] = rssi;
+			}
+			if (rssi > max[id]) {
+				max[id] = rssi;
+			}
+			double delta = rssi - mean[id];
+			mean[id] += delta / n;
+			m2[id] += delta * (rssi - mean[id]);
+		}
+		if (ewmaSet[id]) {
+			ewma[id] += alpha * (rssi - ewma[id]);
+		} else {
+			ewma[id] = rssi;
+			ewmaSet[id] = true;
+		}
+	}
+
+	/**
+	 * 查询某个标签在某个天线上的当前窗口统计,当前窗口内没有读到返回null
+	 */
+	public synchronized RssiStats getStats(byte[] epc, int epcLen, int antennaPort) {
+		putPort(antennaPort);
+		TagRecord record = table.get(epc, epcLen, portBytes, portBytes.length);
+		if (record == null || windowOf[record.id] != window || count[record.id] == 0) {
+			return null;
+		}
+		return toStats(record);
+	}
+
+	public RssiStats getStats(String epcHex, int antennaPort) {
+		byte[] epc = StringUtils.stringToByte(epcHex);
+		return getStats(epc, epc.length, antennaPort);
+	}
+
+	/**
+	 * 当前窗口内所有(EPC, 天线号)的统计
+	 */
+	public synchronized List<RssiStats> snapshot() {
+		List<RssiStats> list = new ArrayList<>();
+		for (int id = 0; id < table.getIdLimit(); id++) {
+			if (windowOf[id] == window && count[id] > 0) {
+				list.add(toStats(table.get(id)));
+			}
+		}
+		return list;
+	}
+
+	/**
+	 * 开始新的统计窗口;EWMA不清零,继续跨窗口平滑
+	 */
+	public synchronized void resetWindow() {
+		window++;
+	}
+
+	/**
+	 * 清空所有键和统计
+	 */
+	public synchronized void clear() {
+		table.clear();
+		window = 0;
+		Arrays.fill(windowOf, 0);
+		Arrays.fill(count, 0);
+		Arrays.fill(ewmaSet, false);
+	}
+
+	/**
+	 * 出现过的(EPC, 天线号)数量
+	 */
+	public synchronized int size() {
+		return table.size();
+	}
+
+	private RssiStats toStats(TagRecord record) {
+		int id = record.id;
+		long n = count[id];
+		double variance = n > 1 ? m2[id] / (n - 1) : 0;
+		return new RssiStats(record.getEpcHex(), record.antennaPort, n, min[id], max[id], mean[id], variance,
+				ewma[id]);
+	}
+
+	private void putPort(int port) {
+		portBytes[0] = (byte) (port >>> 24);
+		portBytes[1] = (byte) (port >>> 16);
+		portBytes[2] = (byte) (port >>> 8);
+		portBytes[3] = (byte) port;
+	}
+
+	private void ensureCapacity(int id) {
+		if (id >= count.length) {
+			int cap = count.length << 1;
+			windowOf = Arrays.copyOf(windowOf, cap);
+			count = Arrays.copyOf(count, cap);
+			min = Arrays.copyOf(min, cap);
+			max = Arrays.copyOf(max, cap);
+			mean = Arrays.copyOf(mean, cap);
+			m2 = Arrays.copyOf(m2, cap);
+			ewma = Arrays.copyOf(ewma, cap);
+			ewmaSet = Arrays.copyOf(ewmaSet, cap);
+		}
+	}
+
+	@Override
+	public void setListener(ReaderDriver driver) {
+		driver.setOnInventoryListener(this);
+	}
+}
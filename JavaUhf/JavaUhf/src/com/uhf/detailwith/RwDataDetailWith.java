@@ -1,6 +1,6 @@
 package com.uhf.detailwith;
 
-import com.uhf.linkage.Linkage;
+import com.uhf.driver.ReaderDriver;
 import com.uhf.structures.OnRwListener;
 import com.uhf.structures.RwData;
 
@@ -12,8 +12,9 @@ public class RwDataDetailWith implements OnRwListener {
 		return rwDataDetailWith;
 	}
 
-	public static RwData rw = new RwData();
-	public static int flag = 0;
+	// 异步回调的最近一次结果;同步读写请使用 com.uhf.access.TagAccessQueue,每个请求有自己的RwData
+	public static volatile RwData rw = new RwData();
+	public static volatile int flag = 0;
 
 	@Override
 	public void getRwData(RwData rwData) {
@@ -24,8 +25,8 @@ public class RwDataDetailWith implements OnRwListener {
 		}
 	}
 
-	public void setListener(Linkage linkage) {
-		linkage.setOnRwListener(this);
+	public void setListener(ReaderDriver driver) {
+		driver.setOnRwListener(this);
 	}
 
 }
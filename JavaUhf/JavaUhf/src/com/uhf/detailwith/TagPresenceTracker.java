@@ -0,0 +1,202 @@
+package com.uhf.detailwith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.uhf.driver.ReaderDriver;
+import com.uhf.structures.InventoryData;
+import com.uhf.structures.OnInventoryListener;
+import com.uhf.structures.OnTagEventListener;
+import com.uhf.structures.TagEvent;
+import com.uhf.structures.TagEventType;
+import com.uhf.structures.TagRecord;
+import com.uhf.utils.TimingWheel;
+
+/**
+ * 连续盘点下的标签在场状态跟踪
+ * 第一次读到时立即产生ARRIVED,超过absenceTimeoutMs没有读到产生DEPARTED,
+ * 在场期间每隔stillPresentIntervalMs产生一次STILL_PRESENT(为0时不产生)
+ * 每个在场标签在时间轮上挂一个到期时间,每次读取O(1)刷新,tick()只处理到期的标签
+ * 离开的标签从表中删除,id由之后读到的标签复用,表和时间轮的大小只取决于同时在场的标签数;
+ * 离开后再次读到的标签按新标签处理(读取次数重新计数)
+ * 所有事件在锁内按发生顺序排队,同一时刻只有一个线程按顺序分发(盘点线程或定时线程),
+ * 监听不会在ARRIVED之后收到该标签过时的DEPARTED
+ * 离开判断用System.nanoTime()换算的毫秒,不受系统时间调整影响;事件中标签记录的firstSeen/lastSeen也是这个时钟,
+ * 事件时间(TagEvent.getTime)为墙上时间
+ */
+public class TagPresenceTracker implements OnInventoryListener {
+
+	private final long absenceTimeoutMs;
+	private final long stillPresentIntervalMs;
+	private final long tickMs;
+	private final TagTable table = new TagTable(1024);
+	private final TimingWheel wheel;
+	private boolean[] present = new boolean[1024];
+	private long[] lastReported = new long[1024];
+	private int presentCount;
+	private volatile OnTagEventListener onTagEventListener;
+
+	// 锁内按顺序收集事件,锁外由deliver()分发
+	private final List<TagEvent> pending = new ArrayList<>();
+	private boolean delivering;
+	private final TimingWheel.ExpiryHandler expiryHandler = new TimingWheel.ExpiryHandler() {
+		@Override
+		public void expired(int id, long now) {
+			onExpired(id, now);
+		}
+	};
+
+	/**
+	 * @param tickMs 离开判断的时间精度,也是tick()的建议调用间隔
+	 */
+	public TagPresenceTracker(long absenceTimeoutMs, long stillPresentIntervalMs, long tickMs) {
+		this.absenceTimeoutMs = absenceTimeoutMs;
+		this.stillPresentIntervalMs = stillPresentIntervalMs;
+		this.tickMs = tickMs;
+		this.wheel = new TimingWheel(tickMs, Math.max(absenceTimeoutMs, stillPresentIntervalMs), now());
+	}
+
+	public void setOnTagEventListener(OnTagEventListener onTagEventListener) {
+		this.onTagEventListener = onTagEventListener;
+	}
+
+	@Override
+	public void getInventoryData(InventoryData inventoryData) {
+		if (inventoryData == null) {
+			return;
+		}
+		long now = now();
+		synchronized (this) {
+			TagRecord record = table.update(inventoryData, now);
+			if (record == null) {
+				return;
+			}
+			int id = record.id;
+			ensureCapacity(id);
+			if (!present[id]) {
+				present[id] = true;
+				lastReported[id] = now;
+				presentCount++;
+				pending.add(new TagEvent(TagEventType.ARRIVED, record.copy(), System.currentTimeMillis()));
+			}
+			wheel.schedule(id, nextDeadline(id));
+		}
+		deliver();
+	}
+
+	/**
+	 * 处理到期的标签,由定时线程按tickMs间隔调用
+	 */
+	public void tick() {
+		synchronized (this) {
+			wheel.advance(now(), expiryHandler);
+		}
+		deliver();
+	}
+
+	/**
+	 * 按排队顺序分发事件;其他线程正在分发时由它接着分发,不等待
+	 */
+	private void deliver() {
+		synchronized (this) {
+			if (delivering || pending.isEmpty()) {
+				return;
+			}
+			delivering = true;
+		}
+		while (true) {
+			List<TagEvent> events;
+			synchronized (this) {
+				if (pending.isEmpty()) {
+					delivering = false;
+					return;
+				}
+				events = new ArrayList<>(pending);
+				pending.clear();
+			}
+			for (TagEvent event : events) {
+				fire(event);
+			}
+		}
+	}
+
+	private static long now() {
+		return TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
+	}
+
+	private void onExpired(int id, long now) {
+		TagRecord record = table.get(id);
+		if (now - record.lastSeen >= absenceTimeoutMs) {
+			present[id] = false;
+			presentCount--;
+			pending.add(new TagEvent(TagEventType.DEPARTED, record.copy(), System.currentTimeMillis()));
+			// 已不在时间轮上,回收id
+			table.remove(id);
+			return;
+		}
+		if (stillPresentIntervalMs > 0 && now - lastReported[id] >= stillPresentIntervalMs) {
+			lastReported[id] = now;
+			pending.add(new TagEvent(TagEventType.STILL_PRESENT, record.copy(), System.currentTimeMillis()));
+		}
+		wheel.schedule(id, nextDeadline(id));
+	}
+
+	/**
+	 * 离开超时与下一次在场上报中较早的一个;已过期的时间由时间轮在下一个tick处理
+	 */
+	private long nextDeadline(int id) {
+		long deadline = table.get(id).lastSeen + absenceTimeoutMs;
+		if (stillPresentIntervalMs > 0) {
+			deadline = Math.min(deadline, lastReported[id] + stillPresentIntervalMs);
+		}
+		return deadline;
+	}
+
+	/**
+	 * 当前在场的标签数量
+	 */
+	public synchronized int getPresentCount() {
+		return presentCount;
+	}
+
+	/**
+	 * 表中的标签数量(在场的标签,以及离开判定前尚在表中的标签)
+	 */
+	public synchronized int getKnownCount() {
+		return table.size();
+	}
+
+	public long getAbsenceTimeoutMs() {
+		return absenceTimeoutMs;
+	}
+
+	public long getTickMs() {
+		return tickMs;
+	}
+
+	private void ensureCapacity(int id) {
+		if (id >= present.length) {
+			int cap = present.length << 1;
+			present = Arrays.copyOf(present, cap);
+			lastReported = Arrays.copyOf(lastReported, cap);
+		}
+	}
+
+	private void fire(TagEvent event) {
+		OnTagEventListener listener = onTagEventListener;
+		if (listener != null) {
+			try {
+				listener.onTagEvent(event);
+			} catch (RuntimeException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	@Override
+	public void setListener(ReaderDriver driver) {
+		driver.setOnInventoryListener(this);
+	}
+}
@@ -0,0 +1,277 @@
+package com.uhf.detailwith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import com.uhf.structures.InventoryData;
+import com.uhf.structures.TagRecord;
+
+/**
+ * 以标签标识(EPC+TID/USR字节)为键的标签表,开放寻址,每次读取O(1)更新,不做字符串拼接和装箱
+ * remove后的id放入空闲表,之后插入的标签优先复用,id始终小于getIdLimit()
+ * 非线程安全,由调用方保证单线程写入
+ */
+public class TagTable {
+
+	private static final int DEFAULT_CAPACITY = 256;
+
+	private int[] slots;            // 哈希槽,存放 id + 1, 0 表示空
+	private int[] hashes;           // 按id存放的哈希值,扩容时不必重新计算
+	private TagRecord[] records;    // 按id存放的记录,已删除的为null
+	private int size;               // 记录数
+	private int idLimit;            // 用过的最大id + 1
+	private int[] freeIds = new int[16];
+	private int freeCount;
+	private int readCount;          // 有效读取次数(原 tagCount)
+	private int totalCount;         // 回调总次数(原 totalCount)
+
+	public TagTable() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	public TagTable(int expectedTags) {
+		int cap = 16;
+		while (cap < expectedTags * 2) {
+			cap <<= 1;
+		}
+		slots = new int[cap];
+		hashes = new int[cap >> 1];
+		records = new TagRecord[cap >> 1];
+	}
+
+	/**
+	 * 处理一次盘点读取,返回对应的标签记录;没有EPC和扩展数据的读取只计入totalCount,返回null
+	 */
+	public TagRecord update(InventoryData inventoryData, long now) {
+		int epcLen = inventoryData.epc != null ? inventoryData.epcLen : 0;
+		int extLen = inventoryData.externalData != null ? inventoryData.externalDataLen : 0;
+		if (epcLen <= 0 && extLen <= 0) {
+			totalCount++;
+			return null;
+		}
+		return update(inventoryData, now, hash(inventoryData.epc, epcLen, inventoryData.externalData, extLen));
+	}
+
+	/**
+	 * 同update(InventoryData, long),哈希值由调用方预先算好(分段存储用它选段)
+	 */
+	TagRecord update(InventoryData inventoryData, long now, int hash) {
+		int epcLen = inventoryData.epc != null ? inventoryData.epcLen : 0;
+		int extLen = inventoryData.externalData != null ? inventoryData.externalDataLen : 0;
+		totalCount++;
+		readCount++;
+		int mask = slots.length - 1;
+		int i = hash & mask;
+		TagRecord record;
+		while (true) {
+			int s = slots[i];
+			if (s == 0) {
+				record = insert(i, hash, inventoryData.epc, epcLen, inventoryData.externalData, extLen);
+				record.firstSeen = now;
+				break;
+			}
+			if (hashes[s - 1] == hash && matches(records[s - 1], inventoryData.epc, epcLen,
+					inventoryData.externalData, extLen)) {
+				record = records[s - 1];
+				break;
+			}
+			i = (i + 1) & mask;
+		}
+		record.count++;
+		record.lastSeen = now;
+		record.rssi = inventoryData.rssi;
+		record.antennaPort = inventoryData.antennaPort;
+		record.pc = inventoryData.pc;
+		return record;
+	}
+
+	/**
+	 * 按标识查找记录,不存在返回null
+	 */
+	public TagRecord get(byte[] epc, int epcLen, byte[] externalData, int externalDataLen) {
+		int hash = hash(epc, epcLen, externalData, externalDataLen);
+		int mask = slots.length - 1;
+		int i = hash & mask;
+		int s;
+		while ((s = slots[i]) != 0) {
+			if (hashes[s - 1] == hash && matches(records[s - 1], epc, epcLen, externalData, externalDataLen)) {
+				return records[s - 1];
+			}
+			i = (i + 1) & mask;
+		}
+		return null;
+	}
+
+	public boolean contains(byte[] epc, int epcLen, byte[] externalData, int externalDataLen) {
+		return get(epc, epcLen, externalData, externalDataLen) != null;
+	}
+
+	/**
+	 * 按id取记录, id 范围 [0, getIdLimit()),已删除的返回null
+	 */
+	public TagRecord get(int id) {
+		return records[id];
+	}
+
+	/**
+	 * 删除记录,id之后可能分给新插入的标签
+	 */
+	public void remove(int id) {
+		if (id < 0 || id >= idLimit || records[id] == null) {
+			return;
+		}
+		int mask = slots.length - 1;
+		int i = hashes[id] & mask;
+		while (slots[i] != id + 1) {
+			i = (i + 1) & mask;
+		}
+		// 线性探测的删除:把后面探测链上的条目前移填补空位,不留墓碑
+		int j = i;
+		while (true) {
+			j = (j + 1) & mask;
+			int s = slots[j];
+			if (s == 0) {
+				break;
+			}
+			int home = hashes[s - 1] & mask;
+			boolean between = i <= j ? home > i && home <= j : home > i || home <= j;
+			if (!between) {
+				slots[i] = s;
+				i = j;
+			}
+		}
+		slots[i] = 0;
+		records[id] = null;
+		if (freeCount == freeIds.length) {
+			freeIds = Arrays.copyOf(freeIds, freeCount << 1);
+		}
+		freeIds[freeCount++] = id;
+		size--;
+	}
+
+	/**
+	 * 不同标签数量
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * 用过的最大id + 1,按id遍历时的上界
+	 */
+	public int getIdLimit() {
+		return idLimit;
+	}
+
+	public int getReadCount() {
+		return readCount;
+	}
+
+	public int getTotalCount() {
+		return totalCount;
+	}
+
+	/**
+	 * 按id顺序返回所有记录(只读视图,不拷贝;没有删除过时即首次读到的顺序)
+	 * 视图只在下一次插入或clear之前有效:扩容会换掉底层数组,之后需要重新调用records()
+	 * 删除过记录时返回拷贝
+	 */
+	public List<TagRecord> records() {
+		if (size == idLimit) {
+			return Collections.unmodifiableList(Arrays.asList(records).subList(0, size));
+		}
+		List<TagRecord> list = new ArrayList<>(size);
+		for (int id = 0; id < idLimit; id++) {
+			if (records[id] != null) {
+				list.add(records[id]);
+			}
+		}
+		return Collections.unmodifiableList(list);
+	}
+
+	public void clear() {
+		Arrays.fill(slots, 0);
+		Arrays.fill(records, 0, idLimit, null);
+		size = 0;
+		idLimit = 0;
+		freeCount = 0;
+		readCount = 0;
+		totalCount = 0;
+	}
+
+	private TagRecord insert(int slot, int hash, byte[] epc, int epcLen, byte[] ext, int extLen) {
+		int id;
+		if (freeCount > 0) {
+			id = freeIds[--freeCount];
+		} else {
+			if (idLimit == records.length) {
+				grow();
+				int mask = slots.length - 1;
+				slot = hash & mask;
+				while (slots[slot] != 0) {
+					slot = (slot + 1) & mask;
+				}
+			}
+			id = idLimit++;
+		}
+		TagRecord record = new TagRecord(id, epc, epcLen, ext, extLen);
+		records[id] = record;
+		hashes[id] = hash;
+		slots[slot] = id + 1;
+		size++;
+		return record;
+	}
+
+	private void grow() {
+		int cap = slots.length << 1;
+		int mask = cap - 1;
+		int[] newSlots = new int[cap];
+		for (int id = 0; id < idLimit; id++) {
+			if (records[id] == null) {
+				continue;
+			}
+			int i = hashes[id] & mask;
+			while (newSlots[i] != 0) {
+				i = (i + 1) & mask;
+			}
+			newSlots[i] = id + 1;
+		}
+		slots = newSlots;
+		hashes = Arrays.copyOf(hashes, cap >> 1);
+		records = Arrays.copyOf(records, cap >> 1);
+	}
+
+	private static boolean matches(TagRecord r, byte[] epc, int epcLen, byte[] ext, int extLen) {
+		if (r.epcLen != epcLen || r.externalDataLen != extLen) {
+			return false;
+		}
+		for (int i = 0; i < epcLen; i++) {
+			if (r.epc[i] != epc[i]) {
+				return false;
+			}
+		}
+		for (int i = 0; i < extLen; i++) {
+			if (r.externalData[i] != ext[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	static int hash(byte[] epc, int epcLen, byte[] ext, int extLen) {
+		int h = epcLen * 31 + extLen;
+		for (int i = 0; i < epcLen; i++) {
+			h = h * 31 + epc[i];
+		}
+		for (int i = 0; i < extLen; i++) {
+			h = h * 31 + ext[i];
+		}
+		// 打散低位,避免EPC前缀相同导致聚集
+		h ^= h >>> 16;
+		h *= 0x85ebca6b;
+		h ^= h >>> 13;
+		return h;
+	}
+}
@@ -0,0 +1,155 @@
+package com.uhf.driver;
+
+import com.uhf.structures.InventoryData;
+import com.uhf.structures.InventoryRecordView;
+import com.uhf.structures.OnInventoryListener;
+import com.uhf.structures.OnInventoryRecordListener;
+import com.uhf.structures.OnRwListener;
+import com.uhf.structures.RwData;
+import com.uhf.structures.SerialNumber;
+import com.uhf.structures.SoftVersion;
+import com.uhf.utils.StringUtils;
+
+/**
+ * 驱动的公共部分:监听的保存和分发、connect/disconnect流程
+ * 子类实现底层调用,并在收到数据时调用inventoryCallBack/inventoryRecordCallBack/rwCallBack
+ */
+public abstract class AbstractReaderDriver implements ReaderDriver {
+
+	private volatile OnInventoryListener onInventoryListener;
+	private volatile OnRwListener onRwListener;
+	private volatile OnInventoryRecordListener onInventoryRecordListener;
+	// 回调线程复用的记录槽位
+	private final InventoryRecordView recordView = InventoryRecordView.allocate();
+	private String port;            // connect()成功后的端口号
+	private String serialNo;        // connect()时读到的模块序列号
+	private volatile int inventoryMode = -1;
+
+	@Override
+	public void setOnInventoryListener(OnInventoryListener onInventoryListener) {
+		this.onInventoryListener = onInventoryListener;
+	}
+
+	@Override
+	public OnInventoryListener getOnInventoryListener() {
+		return onInventoryListener;
+	}
+
+	@Override
+	public int getInventoryMode() {
+		return inventoryMode;
+	}
+
+	/**
+	 * 子类在startInventory成功后调用
+	 */
+	protected void inventoryStarted(int mode) {
+		inventoryMode = mode;
+	}
+
+	/**
+	 * 子类在stopInventory后调用
+	 */
+	protected void inventoryStopped() {
+		inventoryMode = -1;
+	}
+
+	@Override
+	public void setOnInventoryRecordListener(OnInventoryRecordListener onInventoryRecordListener) {
+		this.onInventoryRecordListener = onInventoryRecordListener;
+	}
+
+	@Override
+	public void setOnRwListener(OnRwListener onRwListener) {
+		this.onRwListener = onRwListener;
+	}
+
+	protected boolean hasInventoryListener() {
+		return onInventoryListener != null;
+	}
+
+	protected boolean hasInventoryRecordListener() {
+		return onInventoryRecordListener != null;
+	}
+
+	@Override
+	public int connect(String port) {
+		setRFModuleType(0);
+		setRFConnectMode(0);
+		if (initRFID() != 0) {
+			return -1;
+		}
+		if (openCom(port, 115200L) != 0) {
+			return -1;
+		}
+		SerialNumber serialNumber = new SerialNumber();
+		if (getModuleSerialNumber(serialNumber) != 0) {
+			System.out.println("序列号获取失败");
+			return -1;
+		}
+		String serialNo = StringUtils.byteToHexString(serialNumber.snData, serialNumber.snLen);
+		serialNo = StringUtils.convertHexToString(serialNo);
+
+		SoftVersion softVersion = new SoftVersion();
+		if (getModuleSoftVersion(softVersion) == 0) {
+			String versionNo = StringUtils.byteToHexString(softVersion.version, softVersion.versionLen);
+			versionNo = StringUtils.convertHexToString(versionNo);
+			// System.out.println("版本号" + versionNo);
+		}
+		this.port = port;
+		this.serialNo = serialNo;
+		return 0;
+	}
+
+	@Override
+	public int disconnect() {
+		int status = closeCom();
+		deinitRFID();
+		port = null;
+		inventoryMode = -1;
+		return status;
+	}
+
+	@Override
+	public String getPort() {
+		return port;
+	}
+
+	@Override
+	public String getSerialNo() {
+		return serialNo;
+	}
+
+	/**
+	 * 盘点回调,分发给两种监听
+	 */
+	public void inventoryCallBack(InventoryData inventoryData) {
+		if (inventoryData == null) {
+			return;
+		}
+		OnInventoryListener listener = onInventoryListener;
+		if (listener != null)
+			listener.getInventoryData(inventoryData);
+		OnInventoryRecordListener recordListener = onInventoryRecordListener;
+		if (recordListener != null)
+			recordListener.getInventoryRecord(recordView.copyFrom(inventoryData));
+	}
+
+	/**
+	 * 零分配的盘点回调入口,供直接填写记录槽位的驱动使用;只通知OnInventoryRecordListener
+	 */
+	public void inventoryRecordCallBack(InventoryRecordView record) {
+		OnInventoryRecordListener recordListener = onInventoryRecordListener;
+		if (record != null && recordListener != null)
+			recordListener.getInventoryRecord(record);
+	}
+
+	/**
+	 * 读写回调
+	 */
+	public void rwCallBack(RwData rwData) {
+		OnRwListener listener = onRwListener;
+		if (rwData != null && listener != null)
+			listener.getRwData(rwData);
+	}
+}
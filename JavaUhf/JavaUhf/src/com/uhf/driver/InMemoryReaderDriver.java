@@ -0,0 +1,412 @@
+package com.uhf.driver;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import com.uhf.structures.InventoryArea;
+import com.uhf.structures.InventoryRecordView;
+import com.uhf.structures.RwData;
+import com.uhf.structures.SerialNumber;
+import com.uhf.structures.SoftVersion;
+
+/**
+ * 进程内模拟的读写器驱动,不需要动态库和硬件,用于在Linux/CI上运行、压测上层流水线
+ * 盘点时由后台线程按readsPerSecond轮流上报场内标签,或由SyntheticTagGenerator生成;只注册了OnInventoryRecordListener时不分配对象
+ * 读写由场内随机一个标签应答(与真实设备一样没有选择标签的功能),可设置访问延迟和失败率
+ *
+ * 盘点区域:area 0 只有EPC,1 附带TID,2 附带USER(startAddr/wordLen为word)
+ */
+public class InMemoryReaderDriver extends AbstractReaderDriver {
+
+	/** 没有标签应答(超时) */
+	public static final int ERR_TIMEOUT = -1;
+	/** 未初始化或串口未打开 */
+	public static final int ERR_NOT_OPEN = -2;
+
+	// RwData.status,沿用Gen2标签错误码
+	public static final int TAG_MEMORY_OVERRUN = 0x03;
+	public static final int TAG_MEMORY_LOCKED = 0x04;
+	public static final int TAG_NON_SPECIFIC = 0x0F;
+
+	private static final int RSSI_JITTER = 3;
+
+	private final Object lock = new Object();
+	private final Random random;
+	private final long seed;
+	private volatile SimulatedTag[] tags = new SimulatedTag[0];
+	private volatile SyntheticTagGenerator generator;
+
+	private volatile int readsPerSecond = 1000;
+	private volatile int accessLatencyMs;
+	private volatile double accessFailureRate;
+
+	private boolean initialized;
+	private volatile byte[] fromDev;
+	private final InventoryArea inventoryArea = new InventoryArea();
+	private volatile Thread inventoryThread;
+	private final AtomicLong inventoryReads = new AtomicLong();
+
+	public InMemoryReaderDriver() {
+		this(System.nanoTime());
+	}
+
+	/**
+	 * 固定种子时标签选择、RSSI抖动和失败注入可重现
+	 */
+	public InMemoryReaderDriver(long seed) {
+		this.seed = seed;
+		this.random = new Random(seed);
+	}
+
+	// ---------- 模拟参数 ----------
+
+	public void addTag(SimulatedTag tag) {
+		synchronized (lock) {
+			SimulatedTag[] next = Arrays.copyOf(tags, tags.length + 1);
+			next[next.length - 1] = tag;
+			tags = next;
+		}
+	}
+
+	public boolean removeTag(SimulatedTag tag) {
+		synchronized (lock) {
+			List<SimulatedTag> list = new ArrayList<>(Arrays.asList(tags));
+			boolean removed = list.remove(tag);
+			tags = list.toArray(new SimulatedTag[0]);
+			return removed;
+		}
+	}
+
+	/**
+	 * 一次替换全部场内标签
+	 */
+	public void setTags(List<SimulatedTag> tags) {
+		this.tags = tags.toArray(new SimulatedTag[0]);
+	}
+
+	public void clearTags() {
+		tags = new SimulatedTag[0];
+	}
+
+	public List<SimulatedTag> getTags() {
+		return Arrays.asList(tags.clone());
+	}
+
+	/**
+	 * 盘点数据改由合成标签群体生成(场内的SimulatedTag仍用于读写),同时把上报速率设为生成器的速率;
+	 * null恢复为轮流上报SimulatedTag。需在startInventory之前设置
+	 */
+	public void setGenerator(SyntheticTagGenerator generator) {
+		this.generator = generator;
+		if (generator != null) {
+			readsPerSecond = generator.getReadsPerSecond();
+		}
+	}
+
+	/**
+	 * 盘点时每秒上报的读取次数,0表示不限速(使用生成器时只影响上报快慢,不改变生成的数据)
+	 */
+	public void setReadsPerSecond(int readsPerSecond) {
+		this.readsPerSecond = readsPerSecond;
+	}
+
+	/**
+	 * 每次读写的模拟耗时
+	 */
+	public void setAccessLatencyMs(int accessLatencyMs) {
+		this.accessLatencyMs = accessLatencyMs;
+	}
+
+	/**
+	 * 读写失败(RwData.status为TAG_NON_SPECIFIC)的概率
+	 */
+	public void setAccessFailureRate(double accessFailureRate) {
+		this.accessFailureRate = accessFailureRate;
+	}
+
+	/**
+	 * 启动以来上报的盘点次数
+	 */
+	public long getInventoryReads() {
+		return inventoryReads.get();
+	}
+
+	// ---------- 初始化/连接 ----------
+
+	@Override
+	public int initRFID() {
+		synchronized (lock) {
+			initialized = true;
+		}
+		return 0;
+	}
+
+	@Override
+	public int deinitRFID() {
+		stopInventory();
+		synchronized (lock) {
+			initialized = false;
+		}
+		return 0;
+	}
+
+	@Override
+	public int setRFModuleType(int moduleType) {
+		return 0;
+	}
+
+	@Override
+	public int setRFConnectMode(int flag) {
+		return 0;
+	}
+
+	@Override
+	public int openCom(String port, long baud) {
+		synchronized (lock) {
+			if (!initialized || port == null) {
+				return ERR_NOT_OPEN;
+			}
+			fromDev = port.getBytes(StandardCharsets.US_ASCII);
+		}
+		return 0;
+	}
+
+	@Override
+	public int closeCom() {
+		stopInventory();
+		fromDev = null;
+		return 0;
+	}
+
+	@Override
+	public int getModuleSerialNumber(SerialNumber serialNumber) {
+		byte[] dev = fromDev;
+		if (dev == null) {
+			return ERR_NOT_OPEN;
+		}
+		byte[] sn = ("SIM-" + new String(dev, StandardCharsets.US_ASCII)).getBytes(StandardCharsets.US_ASCII);
+		serialNumber.snLen = Math.min(sn.length, serialNumber.snData.length);
+		System.arraycopy(sn, 0, serialNumber.snData, 0, serialNumber.snLen);
+		return 0;
+	}
+
+	@Override
+	public int getModuleSoftVersion(SoftVersion softVersion) {
+		if (fromDev == null) {
+			return ERR_NOT_OPEN;
+		}
+		byte[] version = "1.0-sim".getBytes(StandardCharsets.US_ASCII);
+		softVersion.versionLen = Math.min(version.length, softVersion.version.length);
+		System.arraycopy(version, 0, softVersion.version, 0, softVersion.versionLen);
+		return 0;
+	}
+
+	// ---------- 盘点 ----------
+
+	@Override
+	public int setInventoryArea(InventoryArea area) {
+		synchronized (inventoryArea) {
+			inventoryArea.setValue(area.area, area.startAddr, area.wordLen);
+		}
+		return 0;
+	}
+
+	@Override
+	public int getInventoryArea(InventoryArea area) {
+		synchronized (inventoryArea) {
+			area.setValue(inventoryArea.area, inventoryArea.startAddr, inventoryArea.wordLen);
+		}
+		return 0;
+	}
+
+	@Override
+	public int startInventory(int mode, int maskFlag) {
+		synchronized (lock) {
+			if (fromDev == null) {
+				return ERR_NOT_OPEN;
+			}
+			inventoryStarted(mode);
+			if (inventoryThread != null) {
+				return 0;
+			}
+			final long runSeed = seed + inventoryReads.get();
+			Thread t = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					inventoryLoop(new Random(runSeed));
+				}
+			}, "inmemory-inventory");
+			t.setDaemon(true);
+			inventoryThread = t;
+			t.start();
+		}
+		return 0;
+	}
+
+	@Override
+	public int stopInventory() {
+		Thread t;
+		synchronized (lock) {
+			t = inventoryThread;
+			inventoryThread = null;
+			inventoryStopped();
+		}
+		// 监听可能在盘点线程里调用stopInventory,此时不能等待自己
+		if (t != null && t != Thread.currentThread()) {
+			try {
+				t.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * inventoryThread不再指向当前线程时退出,停止后立即重新开始也不会有两个线程同时上报
+	 */
+	private void inventoryLoop(Random rnd) {
+		Thread self = Thread.currentThread();
+		InventoryRecordView view = InventoryRecordView.allocate();
+		byte[] scratch = new byte[InventoryRecordView.MAX_EXTERNAL];
+		byte[] dev = fromDev;
+		if (dev == null) {
+			return;
+		}
+		view.setFromDev(dev, 0, dev.length);
+		SyntheticTagGenerator gen = generator;
+		int area;
+		int extBank;
+		int extStart;
+		int extWords;
+		synchronized (inventoryArea) {
+			area = inventoryArea.area;
+			extBank = inventoryArea.area == 1 ? SimulatedTag.BANK_TID : SimulatedTag.BANK_USER;
+			extStart = inventoryArea.startAddr;
+			extWords = inventoryArea.area == 0 ? 0 : Math.min(inventoryArea.wordLen, scratch.length / 2);
+		}
+
+		long emitted = 0;
+		long start = System.nanoTime();
+		int rate = readsPerSecond;
+		int cursor = 0;
+		while (inventoryThread == self) {
+			SimulatedTag[] ts = tags;
+			boolean empty = gen == null && ts.length == 0;
+			if (rate != readsPerSecond || empty) {
+				// 速率变化或场内无标签时重新计时,避免之后突发补发
+				rate = readsPerSecond;
+				emitted = 0;
+				start = System.nanoTime();
+				if (empty) {
+					LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+					continue;
+				}
+			}
+			long due = rate <= 0 ? emitted + 256 : (System.nanoTime() - start) * rate / 1000000000L;
+			if (due <= emitted) {
+				LockSupport.parkNanos(Math.min(TimeUnit.MILLISECONDS.toNanos(1), 1000000000L / rate));
+				continue;
+			}
+			for (; emitted < due && inventoryThread == self; emitted++) {
+				if (gen != null) {
+					if (!gen.next(view, area, extStart, extWords)) {
+						continue;
+					}
+				} else {
+					if (cursor >= ts.length) {
+						cursor = 0;
+					}
+					SimulatedTag tag = ts[cursor++];
+					int rssi = tag.getRssi() + rnd.nextInt(2 * RSSI_JITTER + 1) - RSSI_JITTER;
+					tag.fill(view, rssi, extBank, extStart, extWords, scratch);
+				}
+				inventoryReads.incrementAndGet();
+				if (hasInventoryListener()) {
+					// 旧接口需要独立的InventoryData,与JNI回调的语义一致
+					inventoryCallBack(view.toInventoryData());
+				} else {
+					inventoryRecordCallBack(view);
+				}
+			}
+		}
+	}
+
+	// ---------- 读写 ----------
+
+	@Override
+	public int readTagSync(byte[] accessPassword, int memBank, int startAddr, int wordLen, int timeOutMs,
+			RwData rwData) {
+		return access(0, accessPassword, memBank, startAddr, wordLen, null, timeOutMs, rwData);
+	}
+
+	@Override
+	public int writeTagSync(byte[] accessPassword, int memBank, int startAddr, int wordLen, byte[] pWriteData,
+			int timeOutMs, RwData rwData) {
+		return access(1, accessPassword, memBank, startAddr, wordLen, pWriteData, timeOutMs, rwData);
+	}
+
+	private int access(int type, byte[] password, int memBank, int startAddr, int wordLen, byte[] data,
+			int timeOutMs, RwData rwData) {
+		byte[] dev = fromDev;
+		if (dev == null) {
+			return ERR_NOT_OPEN;
+		}
+		SimulatedTag[] ts = tags;
+		int latency = accessLatencyMs;
+		if (ts.length == 0 || latency > timeOutMs) {
+			sleep(timeOutMs);
+			return ERR_TIMEOUT;
+		}
+		sleep(latency);
+		SimulatedTag tag;
+		boolean fail;
+		synchronized (random) {
+			tag = ts[random.nextInt(ts.length)];
+			fail = random.nextDouble() < accessFailureRate;
+		}
+		rwData.type = type;
+		rwData.fromDev = dev.clone();
+		rwData.antennaPort = tag.getAntennaPort();
+		rwData.rssi = tag.getRssi();
+		rwData.epc = tag.copyEpc();
+		rwData.epcLen = rwData.epc.length;
+		rwData.rwDataLen = 0;
+		rwData.rwData = null;
+		if (fail) {
+			rwData.status = TAG_NON_SPECIFIC;
+		} else if (!tag.checkPassword(password)) {
+			rwData.status = TAG_MEMORY_LOCKED;
+		} else if (type == 0) {
+			byte[] buf = new byte[Math.max(0, wordLen) * 2];
+			int n = tag.read(memBank, startAddr, wordLen, buf);
+			rwData.status = n < 0 ? TAG_MEMORY_OVERRUN : 0;
+			if (n >= 0) {
+				rwData.rwData = buf;
+				rwData.rwDataLen = n;
+			}
+		} else if (memBank == SimulatedTag.BANK_TID) {
+			rwData.status = TAG_MEMORY_LOCKED;
+		} else {
+			rwData.status = tag.write(memBank, startAddr, wordLen, data) ? 0 : TAG_MEMORY_OVERRUN;
+		}
+		return 0;
+	}
+
+	private static void sleep(int ms) {
+		if (ms <= 0) {
+			return;
+		}
+		try {
+			Thread.sleep(ms);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,92 @@
+package com.uhf.driver;
+
+import com.uhf.structures.InventoryArea;
+import com.uhf.structures.OnInventoryListener;
+import com.uhf.structures.OnInventoryRecordListener;
+import com.uhf.structures.OnRwListener;
+import com.uhf.structures.RwData;
+import com.uhf.structures.SerialNumber;
+import com.uhf.structures.SoftVersion;
+
+/**
+ * 读写器驱动接口,盘点/读写/监听都通过它调用,不依赖具体实现
+ * 实现:com.uhf.linkage.Linkage(JNI,调用uhf/uhfJni动态库)和InMemoryReaderDriver(进程内模拟)
+ * 启动时由ReaderDrivers按系统属性uhf.driver选择
+ *
+ * 返回int的方法沿用动态库的约定:0为成功,其他为错误码
+ */
+public interface ReaderDriver {
+
+	/** 暂停盘点做读写的作业(BulkEncodingJob、BatchReadJob)结束后恢复开始前的盘点模式,之前未在盘点则不恢复 */
+	int RESUME_PREVIOUS = -2;
+
+	// ---------- 初始化/连接 ----------
+
+	int initRFID();
+
+	int deinitRFID();
+
+	int setRFModuleType(int moduleType);
+
+	int setRFConnectMode(int flag);
+
+	int openCom(String port, long baud);
+
+	int closeCom();
+
+	int getModuleSerialNumber(SerialNumber serialNumber);
+
+	int getModuleSoftVersion(SoftVersion softVersion);
+
+	/**
+	 * 初始化并打开串口,读取模块序列号;不注册监听
+	 */
+	int connect(String port);
+
+	/**
+	 * 关闭串口并释放,返回closeCom的状态码
+	 */
+	int disconnect();
+
+	/**
+	 * connect()成功后的端口号,未连接时为null
+	 */
+	String getPort();
+
+	String getSerialNo();
+
+	// ---------- 盘点 ----------
+
+	int setInventoryArea(InventoryArea inventoryArea);
+
+	int getInventoryArea(InventoryArea inventoryArea);
+
+	int startInventory(int mode, int maskFlag);
+
+	int stopInventory();
+
+	/**
+	 * 最近一次startInventory成功时的模式,stopInventory/disconnect之后或从未开始时为-1
+	 */
+	int getInventoryMode();
+
+	// ---------- 读写 ----------
+
+	int readTagSync(byte[] accessPassword, int memBank, int startAddr, int wordLen, int timeOutMs, RwData rwData);
+
+	int writeTagSync(byte[] accessPassword, int memBank, int startAddr, int wordLen, byte[] pWriteData,
+			int timeOutMs, RwData rwData);
+
+	// ---------- 回调 ----------
+
+	void setOnInventoryListener(OnInventoryListener onInventoryListener);
+
+	OnInventoryListener getOnInventoryListener();
+
+	/**
+	 * 零分配的盘点监听,可与OnInventoryListener同时使用
+	 */
+	void setOnInventoryRecordListener(OnInventoryRecordListener onInventoryRecordListener);
+
+	void setOnRwListener(OnRwListener onRwListener);
+}
@@ -0,0 +1,106 @@
+package com.uhf.driver;
+
+import java.lang.reflect.InvocationTargetException;
+
+import com.uhf.detailwith.InventoryDetailWith;
+import com.uhf.detailwith.RwDataDetailWith;
+import com.uhf.linkage.JniReaderDriver;
+import com.uhf.linkage.Linkage;
+
+/**
+ * 启动时选择读写器驱动
+ * 系统属性uhf.driver:
+ *   jni(默认)  - com.uhf.linkage.JniReaderDriver(Linkage子类),需要uhf/uhfJni动态库
+ *   memory     - InMemoryReaderDriver,进程内模拟,可在Linux/CI上运行和压测
+ *   其他       - 按类名加载,需有无参构造函数
+ * 例: java -Duhf.driver=memory com.uhf.demo.UHF
+ */
+public final class ReaderDrivers {
+
+	public static final String PROPERTY = "uhf.driver";
+	public static final String JNI = "jni";
+	public static final String MEMORY = "memory";
+
+	private static ReaderDriver instance;
+
+	private ReaderDrivers() {
+	}
+
+	/**
+	 * 全局默认驱动(单例);JNI驱动时与Linkage.getInstance()是同一个对象
+	 */
+	public static synchronized ReaderDriver getDefault() {
+		if (instance == null) {
+			String name = driverName();
+			instance = JNI.equals(name) ? Linkage.getInstance() : create(name);
+		}
+		return instance;
+	}
+
+	/**
+	 * 替换默认驱动,需在第一次getDefault()之前或连接之前调用
+	 */
+	public static synchronized void setDefault(ReaderDriver driver) {
+		instance = driver;
+	}
+
+	/**
+	 * 按uhf.driver新建一个驱动实例(多读写器时每个设备一个,见ReaderPool)
+	 */
+	public static ReaderDriver create() {
+		return create(driverName());
+	}
+
+	public static ReaderDriver create(String name) {
+		if (JNI.equals(name)) {
+			return new JniReaderDriver();
+		}
+		if (MEMORY.equals(name)) {
+			return new InMemoryReaderDriver();
+		}
+		try {
+			return (ReaderDriver) Class.forName(name).getDeclaredConstructor().newInstance();
+		} catch (InvocationTargetException e) {
+			// 驱动构造函数本身抛出的异常原样抛出
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new IllegalArgumentException("reader driver " + name + " failed to initialize", cause);
+		} catch (ReflectiveOperationException | ClassCastException e) {
+			throw new IllegalArgumentException("unknown reader driver: " + name, e);
+		}
+	}
+
+	/**
+	 * 用默认驱动连接设备,并注册InventoryDetailWith和RwDataDetailWith
+	 */
+	public static int initial(String port) {
+		ReaderDriver driver = getDefault();
+		if (driver.connect(port) != 0) {
+			return -1;
+		}
+		InventoryDetailWith.getInstance().setListener(driver);
+		RwDataDetailWith.getInstance().setListener(driver);
+		return 0;
+	}
+
+	/**
+	 * 断开默认驱动
+	 */
+	public static void deinit() {
+		int status = getDefault().disconnect();
+		if (status == 0) {
+			System.out.println("断开成功");
+			return;
+		}
+		System.out.println("断开失败");
+	}
+
+	private static String driverName() {
+		return System.getProperty(PROPERTY, JNI).trim();
+	}
+}
@@ -0,0 +1,159 @@
+package com.uhf.driver;
+
+import com.uhf.structures.InventoryRecordView;
+import com.uhf.utils.StringUtils;
+
+/**
+ * InMemoryReaderDriver中的一个模拟标签,按Gen2的四个存储区保存数据
+ * 0 保留区(销毁密码+访问密码,4个word) 1 EPC区(CRC+PC+EPC) 2 TID区 3 USER区
+ * 读写按word(2字节)寻址,对标签加锁,可与盘点线程并发
+ */
+public class SimulatedTag {
+
+	public static final int BANK_RESERVED = 0;
+	public static final int BANK_EPC = 1;
+	public static final int BANK_TID = 2;
+	public static final int BANK_USER = 3;
+
+	private final byte[][] banks = new byte[4][];
+	private final int epcLen;
+	private volatile int antennaPort = 1;
+	private volatile int rssi = -50;
+
+	/**
+	 * @param userWords USER区大小(word)
+	 */
+	public SimulatedTag(byte[] epc, byte[] tid, int userWords) {
+		epcLen = epc.length & ~1;
+		banks[BANK_RESERVED] = new byte[8];
+		banks[BANK_EPC] = new byte[4 + epcLen];
+		System.arraycopy(epc, 0, banks[BANK_EPC], 4, epcLen);
+		int pc = (epcLen / 2) << 11;
+		banks[BANK_EPC][2] = (byte) (pc >>> 8);
+		banks[BANK_EPC][3] = (byte) pc;
+		banks[BANK_TID] = tid.clone();
+		banks[BANK_USER] = new byte[userWords * 2];
+	}
+
+	/**
+	 * 由十六进制EPC/TID创建,USER区32个word
+	 */
+	public static SimulatedTag of(String epcHex, String tidHex) {
+		return new SimulatedTag(StringUtils.stringToByte(epcHex), StringUtils.stringToByte(tidHex), 32);
+	}
+
+	public int getAntennaPort() {
+		return antennaPort;
+	}
+
+	public void setAntennaPort(int antennaPort) {
+		this.antennaPort = antennaPort;
+	}
+
+	/**
+	 * 基准RSSI,盘点时在此基础上加随机抖动
+	 */
+	public int getRssi() {
+		return rssi;
+	}
+
+	public void setRssi(int rssi) {
+		this.rssi = rssi;
+	}
+
+	public int getEpcLen() {
+		return epcLen;
+	}
+
+	public synchronized String getEpcHex() {
+		return StringUtils.byteToHexString(copyEpc(), epcLen);
+	}
+
+	public synchronized byte[] copyEpc() {
+		byte[] epc = new byte[epcLen];
+		System.arraycopy(banks[BANK_EPC], 4, epc, 0, epcLen);
+		return epc;
+	}
+
+	public synchronized String getTidHex() {
+		return StringUtils.byteToHexString(banks[BANK_TID], banks[BANK_TID].length);
+	}
+
+	/**
+	 * 设置访问密码(保留区第2、3个word),非0时读写需要匹配
+	 */
+	public synchronized void setAccessPassword(byte[] password) {
+		System.arraycopy(password, 0, banks[BANK_RESERVED], 4, 4);
+	}
+
+	synchronized boolean checkPassword(byte[] password) {
+		boolean zero = true;
+		for (int i = 0; i < 4; i++) {
+			if (banks[BANK_RESERVED][4 + i] != 0) {
+				zero = false;
+			}
+		}
+		if (zero) {
+			return true;
+		}
+		if (password == null || password.length < 4) {
+			return false;
+		}
+		for (int i = 0; i < 4; i++) {
+			if (banks[BANK_RESERVED][4 + i] != password[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * 读取bank中从startWord开始的wordLen个word到dst,返回字节数;越界返回-1
+	 */
+	public synchronized int read(int bank, int startWord, int wordLen, byte[] dst) {
+		byte[] mem = bank(bank);
+		int off = startWord * 2;
+		int len = wordLen * 2;
+		if (mem == null || startWord < 0 || wordLen < 0 || off + len > mem.length || len > dst.length) {
+			return -1;
+		}
+		System.arraycopy(mem, off, dst, 0, len);
+		return len;
+	}
+
+	/**
+	 * 写入,越界返回false;TID区只读,由调用方检查
+	 */
+	public synchronized boolean write(int bank, int startWord, int wordLen, byte[] data) {
+		byte[] mem = bank(bank);
+		int off = startWord * 2;
+		int len = wordLen * 2;
+		if (mem == null || startWord < 0 || wordLen < 0 || off + len > mem.length || data == null
+				|| data.length < len) {
+			return false;
+		}
+		System.arraycopy(data, 0, mem, off, len);
+		return true;
+	}
+
+	/**
+	 * 填写一条盘点记录(不含fromDev);extWords大于0时附带extBank中的数据
+	 */
+	synchronized void fill(InventoryRecordView view, int rssi, int extBank, int extStart, int extWords,
+			byte[] scratch) {
+		byte[] epcBank = banks[BANK_EPC];
+		int pc = ((epcBank[2] & 0xFF) << 8) | (epcBank[3] & 0xFF);
+		view.set(antennaPort, pc, rssi).setEpc(epcBank, 4, epcLen);
+		int n = extWords > 0 ? read(extBank, extStart, extWords, scratch) : 0;
+		view.setExternalData(scratch, 0, Math.max(n, 0));
+	}
+
+	private byte[] bank(int bank) {
+		return bank >= 0 && bank < banks.length ? banks[bank] : null;
+	}
+
+	@Override
+	public String toString() {
+		return "SimulatedTag{epc=" + getEpcHex() + ", antennaPort=" + antennaPort + ", rssi=" + rssi + '}';
+	}
+}
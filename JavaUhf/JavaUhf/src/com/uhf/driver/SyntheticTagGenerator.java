@@ -0,0 +1,405 @@
+package com.uhf.driver;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import com.uhf.structures.InventoryRecordView;
+import com.uhf.utils.StringUtils;
+
+/**
+ * 合成标签群体,为InMemoryReaderDriver生成大流量的盘点数据,用于压测和容量评估
+ *
+ * 按虚拟时钟生成:第n次读取发生在 n / readsPerSecond 秒,标签进出场、天线和RSSI都只由种子和参数决定,
+ * 与实际上报速度无关,因此相同种子和参数的两次运行产生完全相同的读取序列
+ * 每次读取不分配对象;EPC/TID由前缀加标签序号(大端)生成
+ *
+ * 移动模式:
+ *   STATIC   - 全部标签始终在场
+ *   CONVEYOR - 传送带:按arrivalsPerSecond依次进场,停留dwellMs后离场;经过的天线随位置变化,中间位置信号最强
+ *   CHURN    - 随机进出:在场/离场时间服从均值为dwellMs/absentMs的指数分布
+ *
+ * 非线程安全,由一个盘点线程调用;修改参数后在下一次next()时按种子重新开始
+ */
+public class SyntheticTagGenerator {
+
+	public enum Mobility {
+		STATIC, CONVEYOR, CHURN
+	}
+
+	private static final int MAX_ANTENNAS = 32;
+	private static final int MIN_RSSI = -100;
+	private static final int MAX_RSSI = -20;
+	private static final int CONVEYOR_FADE = 10;    // 传送带两端比中间弱的dB数
+
+	// ---------- 参数 ----------
+	private long seed;
+	private int populationSize = 1000;
+	private int readsPerSecond = 10000;
+	private int antennaCount = 4;
+	private byte[] epcPrefix = StringUtils.stringToByte("E200");
+	private int epcLength = 12;
+	private byte[] tidPrefix = StringUtils.stringToByte("E2801100");
+	private int tidLength = 12;
+	private final double[] rssiMean = new double[MAX_ANTENNAS + 1];
+	private final double[] rssiStdDev = new double[MAX_ANTENNAS + 1];
+	private Mobility mobility = Mobility.STATIC;
+	private double arrivalsPerSecond = 10;
+	private long dwellMs = 2000;
+	private long absentMs = 2000;
+
+	// ---------- 运行状态 ----------
+	private boolean initialized;
+	private Random random;
+	private long reads;
+	private long nowNanos;
+	private long nextArrivalNanos;
+	private long conveyorCursor;
+	private long arrivals;
+	private long departures;
+	// 在场标签:inField[0..inFieldCount)为标签序号,position[tag]为其下标,不在场为-1
+	private int[] inField;
+	private int inFieldCount;
+	private int[] position;
+	private long[] arrivedAt;
+	private long[] dwellNanos;
+	// 进出场事件的最小堆,每个标签最多一个待处理事件
+	private long[] eventTime;
+	private int[] eventTag;
+	private int eventCount;
+	private final byte[] epc = new byte[InventoryRecordView.MAX_EPC];
+	private final byte[] external = new byte[InventoryRecordView.MAX_EXTERNAL];
+
+	public SyntheticTagGenerator(long seed) {
+		this.seed = seed;
+		Arrays.fill(rssiMean, -55);
+		Arrays.fill(rssiStdDev, 6);
+	}
+
+	// ---------- 配置 ----------
+
+	public void setSeed(long seed) {
+		this.seed = seed;
+		initialized = false;
+	}
+
+	/**
+	 * 不同标签(EPC)的总数
+	 */
+	public void setPopulationSize(int populationSize) {
+		this.populationSize = Math.max(1, populationSize);
+		initialized = false;
+	}
+
+	/**
+	 * 虚拟时钟的读取速率,同时作为驱动的上报速率
+	 */
+	public void setReadsPerSecond(int readsPerSecond) {
+		this.readsPerSecond = Math.max(1, readsPerSecond);
+		initialized = false;
+	}
+
+	public int getReadsPerSecond() {
+		return readsPerSecond;
+	}
+
+	public void setAntennaCount(int antennaCount) {
+		this.antennaCount = Math.max(1, Math.min(MAX_ANTENNAS, antennaCount));
+		initialized = false;
+	}
+
+	/**
+	 * EPC格式:十六进制前缀 + 序号,总长lengthBytes字节(偶数)
+	 */
+	public void setEpcFormat(String prefixHex, int lengthBytes) {
+		this.epcPrefix = StringUtils.stringToByte(prefixHex);
+		this.epcLength = clampLength(lengthBytes, epcPrefix.length, InventoryRecordView.MAX_EPC);
+		initialized = false;
+	}
+
+	/**
+	 * TID格式:十六进制前缀(厂商/型号) + 序号,总长lengthBytes字节(偶数)
+	 */
+	public void setTidFormat(String prefixHex, int lengthBytes) {
+		this.tidPrefix = StringUtils.stringToByte(prefixHex);
+		this.tidLength = clampLength(lengthBytes, tidPrefix.length, InventoryRecordView.MAX_EXTERNAL);
+		initialized = false;
+	}
+
+	/**
+	 * 天线port(从1开始)上RSSI的正态分布
+	 */
+	public void setAntennaRssi(int port, double mean, double stdDev) {
+		if (port < 1 || port > MAX_ANTENNAS) {
+			throw new IllegalArgumentException("antenna port out of range: " + port);
+		}
+		rssiMean[port] = mean;
+		rssiStdDev[port] = stdDev;
+		initialized = false;
+	}
+
+	public void setMobility(Mobility mobility) {
+		this.mobility = mobility;
+		initialized = false;
+	}
+
+	/**
+	 * CONVEYOR模式每秒进场的标签数
+	 */
+	public void setArrivalsPerSecond(double arrivalsPerSecond) {
+		this.arrivalsPerSecond = arrivalsPerSecond;
+		initialized = false;
+	}
+
+	/**
+	 * 在场时间:CONVEYOR为固定停留时间(±10%抖动),CHURN为均值
+	 */
+	public void setDwellMs(long dwellMs) {
+		this.dwellMs = Math.max(1, dwellMs);
+		initialized = false;
+	}
+
+	/**
+	 * CHURN模式离场时间的均值
+	 */
+	public void setAbsentMs(long absentMs) {
+		this.absentMs = Math.max(1, absentMs);
+		initialized = false;
+	}
+
+	// ---------- 生成 ----------
+
+	/**
+	 * 按种子回到起点
+	 */
+	public void reset() {
+		random = new Random(seed);
+		reads = 0;
+		nowNanos = 0;
+		arrivals = 0;
+		departures = 0;
+		inField = new int[populationSize];
+		inFieldCount = 0;
+		position = new int[populationSize];
+		Arrays.fill(position, -1);
+		arrivedAt = new long[populationSize];
+		dwellNanos = new long[populationSize];
+		eventTime = new long[populationSize];
+		eventTag = new int[populationSize];
+		eventCount = 0;
+		nextArrivalNanos = 0;
+		conveyorCursor = 0;
+		switch (mobility) {
+		case STATIC:
+			for (int i = 0; i < populationSize; i++) {
+				arrive(i);
+			}
+			break;
+		case CHURN:
+			double present = dwellMs / (double) (dwellMs + absentMs);
+			for (int i = 0; i < populationSize; i++) {
+				if (random.nextDouble() < present) {
+					arrive(i);
+					schedule(i, exponential(dwellMs));
+				} else {
+					schedule(i, exponential(absentMs));
+				}
+			}
+			break;
+		default:
+			break;
+		}
+		initialized = true;
+	}
+
+	/**
+	 * 推进一次读取的虚拟时间并填写记录(不含fromDev)
+	 *
+	 * @param area      盘点区域:1附带TID,2附带USER(全0),其他只有EPC
+	 * @param startAddr 附带数据的起始word
+	 * @param wordLen   附带数据的word数
+	 * @return 该时刻没有在场标签时返回false,记录未填写
+	 */
+	public boolean next(InventoryRecordView view, int area, int startAddr, int wordLen) {
+		if (!initialized) {
+			reset();
+		}
+		nowNanos = reads / readsPerSecond * 1000000000L + reads % readsPerSecond * 1000000000L / readsPerSecond;
+		reads++;
+		advance();
+		if (inFieldCount == 0) {
+			return false;
+		}
+		int tag = inField[random.nextInt(inFieldCount)];
+		int antenna;
+		double shape = 0;
+		if (mobility == Mobility.CONVEYOR) {
+			double progress = Math.min(1.0, (nowNanos - arrivedAt[tag]) / (double) dwellNanos[tag]);
+			antenna = 1 + Math.min(antennaCount - 1, (int) (progress * antennaCount));
+			shape = -Math.abs(progress * 2 - 1) * CONVEYOR_FADE;
+		} else {
+			antenna = 1 + tag % antennaCount;
+		}
+		long rssi = Math.round(rssiMean[antenna] + shape + random.nextGaussian() * rssiStdDev[antenna]);
+		rssi = Math.max(MIN_RSSI, Math.min(MAX_RSSI, rssi));
+
+		int epcLen = format(epcPrefix, epcLength, tag, epc);
+		view.set(antenna, (epcLen / 2) << 11, (int) rssi).setEpc(epc, 0, epcLen);
+		if (area == 1) {
+			int tidLen = format(tidPrefix, tidLength, tag, external);
+			int off = Math.min(tidLen, Math.max(0, startAddr * 2));
+			view.setExternalData(external, off, Math.min(tidLen - off, wordLen * 2));
+		} else if (area == 2) {
+			int len = Math.min(wordLen * 2, external.length);
+			Arrays.fill(external, 0, len, (byte) 0);
+			view.setExternalData(external, 0, len);
+		} else {
+			view.setExternalData(external, 0, 0);
+		}
+		return true;
+	}
+
+	/**
+	 * 处理到当前虚拟时间为止的进出场
+	 */
+	private void advance() {
+		if (mobility == Mobility.CONVEYOR && arrivalsPerSecond > 0) {
+			long interval = Math.max(1, (long) (1000000000L / arrivalsPerSecond));
+			while (nextArrivalNanos <= nowNanos) {
+				// 依次轮到的标签还在场(进场速率x停留时间超过标签总数)时跳过
+				int tag = (int) (conveyorCursor++ % populationSize);
+				if (position[tag] < 0) {
+					arrive(tag);
+					arrivedAt[tag] = nextArrivalNanos;
+					long dwell = dwellMs * 1000000L;
+					dwellNanos[tag] = Math.max(1, dwell + (long) ((random.nextDouble() - 0.5) * 0.2 * dwell));
+					schedule(tag, arrivedAt[tag] + dwellNanos[tag]);
+				}
+				nextArrivalNanos += interval;
+			}
+		}
+		while (eventCount > 0 && eventTime[0] <= nowNanos) {
+			long time = eventTime[0];
+			int tag = pollEvent();
+			if (position[tag] >= 0) {
+				depart(tag);
+				if (mobility == Mobility.CHURN) {
+					schedule(tag, time + exponential(absentMs));
+				}
+			} else {
+				arrive(tag);
+				schedule(tag, time + exponential(dwellMs));
+			}
+		}
+	}
+
+	private void arrive(int tag) {
+		position[tag] = inFieldCount;
+		inField[inFieldCount++] = tag;
+		arrivals++;
+	}
+
+	private void depart(int tag) {
+		int index = position[tag];
+		int last = inField[--inFieldCount];
+		inField[index] = last;
+		position[last] = index;
+		position[tag] = -1;
+		departures++;
+	}
+
+	private long exponential(long meanMs) {
+		return (long) (-Math.log(1 - random.nextDouble()) * meanMs * 1000000L);
+	}
+
+	private void schedule(int tag, long time) {
+		int i = eventCount++;
+		while (i > 0) {
+			int parent = (i - 1) >>> 1;
+			if (eventTime[parent] <= time) {
+				break;
+			}
+			eventTime[i] = eventTime[parent];
+			eventTag[i] = eventTag[parent];
+			i = parent;
+		}
+		eventTime[i] = time;
+		eventTag[i] = tag;
+	}
+
+	private int pollEvent() {
+		int top = eventTag[0];
+		long time = eventTime[--eventCount];
+		int tag = eventTag[eventCount];
+		int i = 0;
+		while (true) {
+			int child = 2 * i + 1;
+			if (child >= eventCount) {
+				break;
+			}
+			if (child + 1 < eventCount && eventTime[child + 1] < eventTime[child]) {
+				child++;
+			}
+			if (time <= eventTime[child]) {
+				break;
+			}
+			eventTime[i] = eventTime[child];
+			eventTag[i] = eventTag[child];
+			i = child;
+		}
+		eventTime[i] = time;
+		eventTag[i] = tag;
+		return top;
+	}
+
+	/**
+	 * 前缀 + 序号(大端,占满剩余字节)
+	 */
+	private static int format(byte[] prefix, int length, int serial, byte[] dst) {
+		System.arraycopy(prefix, 0, dst, 0, prefix.length);
+		long value = serial;
+		for (int i = length - 1; i >= prefix.length; i--) {
+			dst[i] = (byte) value;
+			value >>>= 8;
+		}
+		return length;
+	}
+
+	private static int clampLength(int length, int prefixLength, int max) {
+		length = Math.max(length, prefixLength + 2);
+		return Math.min(max, (length + 1) & ~1);
+	}
+
+	// ---------- 状态 ----------
+
+	/**
+	 * 当前虚拟时间(纳秒)
+	 */
+	public long getVirtualTimeNanos() {
+		return nowNanos;
+	}
+
+	public long getReads() {
+		return reads;
+	}
+
+	public int getInFieldCount() {
+		return inFieldCount;
+	}
+
+	public long getArrivals() {
+		return arrivals;
+	}
+
+	public long getDepartures() {
+		return departures;
+	}
+
+	/**
+	 * 第serial个标签的EPC,十六进制
+	 */
+	public String getEpcHex(int serial) {
+		byte[] bytes = new byte[epcLength];
+		format(epcPrefix, epcLength, serial, bytes);
+		return StringUtils.byteToHexString(bytes, epcLength);
+	}
+}
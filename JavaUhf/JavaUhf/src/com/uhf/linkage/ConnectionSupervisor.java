@@ -0,0 +1,230 @@
+package com.uhf.linkage;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import com.uhf.access.ExponentialBackoffPolicy;
+import com.uhf.utils.LatencyHistogram;
+
+/**
+ * 连接监视:定时检查每个连接,句柄失效(isFailed)或超过stallTimeout没有数据且probe失败时判为断开,
+ * 关闭后按指数退避加随机抖动重连,直到open成功
+ * 断开期间的数据丢失,恢复时通过OnLinkStateListener报告这段数据缺口;恢复时间(检测到断开到重连成功)计入直方图
+ * 连接需已由调用方打开后再add
+ */
+public class ConnectionSupervisor {
+
+	private final long checkIntervalMs;
+	private final List<Watch> watches = new CopyOnWriteArrayList<>();
+	private ExponentialBackoffPolicy backoff = new ExponentialBackoffPolicy(1, 0, 500, 30000);
+	private volatile OnLinkStateListener listener;
+	private ScheduledExecutorService scheduler;
+
+	/**
+	 * @param checkIntervalMs 检查间隔
+	 */
+	public ConnectionSupervisor(long checkIntervalMs) {
+		this.checkIntervalMs = checkIntervalMs;
+	}
+
+	/**
+	 * 重连等待:第n次失败后在 [上限/2, 上限] 之间取值,上限 = min(initial * 2^n, max)
+	 */
+	public synchronized void setBackoff(long initialBackoffMs, long maxBackoffMs) {
+		backoff = new ExponentialBackoffPolicy(1, 0, initialBackoffMs, maxBackoffMs);
+	}
+
+	public void setListener(OnLinkStateListener listener) {
+		this.listener = listener;
+	}
+
+	/**
+	 * 监视一个已打开的连接
+	 *
+	 * @param stallTimeoutMs 超过该时间没有数据时检查连接,0为不检查(只按isFailed判断)
+	 */
+	public void add(SupervisedLink link, long stallTimeoutMs) {
+		watches.add(new Watch(link, stallTimeoutMs));
+	}
+
+	public void remove(SupervisedLink link) {
+		for (Watch w : watches) {
+			if (w.link == link) {
+				watches.remove(w);
+			}
+		}
+	}
+
+	public synchronized void start() {
+		if (scheduler != null) {
+			return;
+		}
+		scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "link-supervisor");
+				t.setDaemon(true);
+				return t;
+			}
+		});
+		scheduler.scheduleWithFixedDelay(new Runnable() {
+			@Override
+			public void run() {
+				check();
+			}
+		}, checkIntervalMs, checkIntervalMs, TimeUnit.MILLISECONDS);
+	}
+
+	public synchronized void stop() {
+		if (scheduler != null) {
+			scheduler.shutdownNow();
+			scheduler = null;
+		}
+	}
+
+	/**
+	 * 检查一遍所有连接,由检查线程定时调用
+	 */
+	void check() {
+		long now = System.nanoTime();
+		for (Watch w : watches) {
+			try {
+				w.check(now);
+			} catch (RuntimeException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	public boolean isUp(SupervisedLink link) {
+		Watch w = find(link);
+		return w != null && w.up;
+	}
+
+	/**
+	 * 该连接每次断开后的恢复时间
+	 */
+	public LatencyHistogram getRecoveryTimes(SupervisedLink link) {
+		Watch w = find(link);
+		return w != null ? w.recoveryTimes : null;
+	}
+
+	private Watch find(SupervisedLink link) {
+		for (Watch w : watches) {
+			if (w.link == link) {
+				return w;
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder("ConnectionSupervisor{");
+		for (Watch w : watches) {
+			sb.append("\n  ").append(w);
+		}
+		return sb.append('}').toString();
+	}
+
+	/**
+	 * 一个连接的监视状态,只在检查线程上修改
+	 */
+	private final class Watch {
+		final SupervisedLink link;
+		final long stallTimeoutNanos;
+		final LatencyHistogram recoveryTimes = new LatencyHistogram();
+		volatile boolean up = true;
+		long downAt;
+		long gapStart;
+		long probedAt = Long.MIN_VALUE;
+		long nextAttemptAt;
+		int attempts;
+		long outages;
+		long failedAttempts;
+		long probes;
+		long downtimeNanos;
+		String lastReason;
+
+		Watch(SupervisedLink link, long stallTimeoutMs) {
+			this.link = link;
+			this.stallTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(stallTimeoutMs);
+		}
+
+		void check(long now) {
+			if (up) {
+				String reason = null;
+				if (link.isFailed()) {
+					reason = "failed";
+				} else if (stallTimeoutNanos > 0
+						&& now - Math.max(link.getLastActivityNanos(), probedAt) > stallTimeoutNanos) {
+					// 检查通过后再等一个stallTimeout才再次检查
+					probes++;
+					if (link.probe()) {
+						probedAt = now;
+					} else {
+						reason = "stalled " + TimeUnit.NANOSECONDS.toMillis(now - link.getLastActivityNanos()) + "ms";
+					}
+				}
+				if (reason != null) {
+					down(now, reason);
+				}
+				return;
+			}
+			if (now < nextAttemptAt) {
+				return;
+			}
+			attempts++;
+			int status = link.open();
+			now = System.nanoTime();
+			if (status == 0) {
+				long recoveryMs = TimeUnit.NANOSECONDS.toMillis(now - downAt);
+				long gapMs = TimeUnit.NANOSECONDS.toMillis(now - gapStart);
+				downtimeNanos += now - downAt;
+				recoveryTimes.record(recoveryMs);
+				probedAt = now;
+				up = true;
+				OnLinkStateListener l = listener;
+				if (l != null) {
+					l.onLinkRestored(link, gapMs, recoveryMs, attempts);
+				}
+				return;
+			}
+			failedAttempts++;
+			lastReason = "open=" + status;
+			link.close();
+			nextAttemptAt = now + TimeUnit.MILLISECONDS.toNanos(backoff.backoffMs(attempts - 1));
+		}
+
+		private void down(long now, String reason) {
+			up = false;
+			outages++;
+			lastReason = reason;
+			downAt = now;
+			gapStart = Math.min(now, link.getLastActivityNanos());
+			attempts = 0;
+			link.close();
+			// 第一次重连不等待,适配器复位后通常马上可以打开
+			nextAttemptAt = now;
+			OnLinkStateListener l = listener;
+			if (l != null) {
+				l.onLinkDown(link, reason);
+			}
+		}
+
+		@Override
+		public String toString() {
+			return link.getName() + ": " + (up ? "UP" : "DOWN") +
+					", outages=" + outages +
+					", failedAttempts=" + failedAttempts +
+					", probes=" + probes +
+					", downtimeMs=" + TimeUnit.NANOSECONDS.toMillis(downtimeNanos) +
+					", recovery=" + recoveryTimes +
+					(lastReason != null ? ", last=" + lastReason : "");
+		}
+	}
+}
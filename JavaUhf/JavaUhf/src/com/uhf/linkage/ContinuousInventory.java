@@ -0,0 +1,78 @@
+package com.uhf.linkage;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import com.uhf.detailwith.TagPresenceTracker;
+import com.uhf.driver.ReaderDriver;
+
+/**
+ * 连续盘点模式:读写器一直处于盘点状态,不再按"盘点-停止-等待"循环占空比工作,
+ * 标签到达/离开由TagPresenceTracker按读取时间判断
+ */
+public class ContinuousInventory {
+
+	private final ReaderDriver driver;
+	private final TagPresenceTracker tracker;
+	private final int mode;
+	private ScheduledExecutorService scheduler;
+
+	/**
+	 * @param mode startInventory的盘点模式;离开检查按tracker的时间精度进行
+	 */
+	public ContinuousInventory(ReaderDriver driver, TagPresenceTracker tracker, int mode) {
+		this.driver = driver;
+		this.tracker = tracker;
+		this.mode = mode;
+	}
+
+	/**
+	 * 开始连续盘点,返回startInventory的状态码(0为成功)
+	 */
+	public synchronized int start() {
+		if (scheduler != null) {
+			return 0;
+		}
+		int status = driver.startInventory(mode, 0);
+		if (status != 0) {
+			return status;
+		}
+		scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "presence-tick");
+				t.setDaemon(true);
+				return t;
+			}
+		});
+		scheduler.scheduleAtFixedRate(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					tracker.tick();
+				} catch (RuntimeException e) {
+					e.printStackTrace();
+				}
+			}
+		}, tracker.getTickMs(), tracker.getTickMs(), TimeUnit.MILLISECONDS);
+		return 0;
+	}
+
+	/**
+	 * 停止盘点和离开检查,返回stopInventory的状态码
+	 */
+	public synchronized int stop() {
+		if (scheduler == null) {
+			return 0;
+		}
+		scheduler.shutdownNow();
+		scheduler = null;
+		return driver.stopInventory();
+	}
+
+	public synchronized boolean isRunning() {
+		return scheduler != null;
+	}
+}
@@ -0,0 +1,199 @@
+package com.uhf.linkage;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.uhf.detailwith.ConcurrentTagStore;
+import com.uhf.driver.ReaderDriver;
+import com.uhf.structures.InventoryData;
+import com.uhf.structures.InventoryResult;
+import com.uhf.structures.InventorySnapshot;
+import com.uhf.structures.InventoryStopReason;
+import com.uhf.structures.OnInventoryListener;
+
+/**
+ * 一次性盘点任务:开始盘点,满足任一结束条件后立即停止盘点并完成future
+ * 结束条件:不同标签数达到目标、有效读取次数达到目标、quietPeriodMs内没有新标签、达到timeoutMs;
+ * 值为0的条件不启用。标签数/读取数在回调中判断,时间条件由定时线程判断,不轮询
+ * start()会把本对象注册为driver的盘点监听,结束后恢复原来的监听
+ */
+public class InventoryTask implements OnInventoryListener {
+
+	private final ReaderDriver driver;
+	private final int mode;
+	private final ConcurrentTagStore store = new ConcurrentTagStore();
+	private final AtomicInteger tagCount = new AtomicInteger();
+	private final AtomicInteger readCount = new AtomicInteger();
+	private final AtomicBoolean finished = new AtomicBoolean();
+	private final CompletableFuture<InventoryResult> future = new CompletableFuture<>();
+
+	private int targetTags;
+	private int targetReads;
+	private long quietPeriodMs;
+	private long timeoutMs;
+
+	private ScheduledThreadPoolExecutor scheduler;
+	private OnInventoryListener previousListener;
+	private volatile long startNanos;
+	private volatile long lastNewTagNanos;
+
+	/**
+	 * @param mode startInventory的盘点模式
+	 */
+	public InventoryTask(ReaderDriver driver, int mode) {
+		this.driver = driver;
+		this.mode = mode;
+	}
+
+	public void setTargetTags(int targetTags) {
+		this.targetTags = targetTags;
+	}
+
+	public void setTargetReads(int targetReads) {
+		this.targetReads = targetReads;
+	}
+
+	/**
+	 * 从开始或最后一个新标签起,这么长时间没有新标签则结束
+	 */
+	public void setQuietPeriodMs(long quietPeriodMs) {
+		this.quietPeriodMs = quietPeriodMs;
+	}
+
+	public void setTimeoutMs(long timeoutMs) {
+		this.timeoutMs = timeoutMs;
+	}
+
+	/**
+	 * 开始盘点,返回的future在盘点停止后完成;取消future会立即停止盘点
+	 * 每个任务只能启动一次
+	 */
+	public synchronized CompletableFuture<InventoryResult> start() {
+		if (scheduler != null) {
+			throw new IllegalStateException("InventoryTask already started");
+		}
+		scheduler = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "inventory-task");
+				t.setDaemon(true);
+				return t;
+			}
+		});
+		// 结束后未到期的超时/静默检查直接丢弃
+		scheduler.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+		future.whenComplete((result, error) -> {
+			if (future.isCancelled()) {
+				finish(InventoryStopReason.CANCELLED);
+			}
+		});
+		previousListener = driver.getOnInventoryListener();
+		setListener(driver);
+		startNanos = System.nanoTime();
+		lastNewTagNanos = startNanos;
+		int status = driver.startInventory(mode, 0);
+		if (status != 0) {
+			finished.set(true);
+			restoreListener();
+			scheduler.shutdown();
+			future.complete(new InventoryResult(InventoryStopReason.START_FAILED, store.swap(), status, 0));
+			return future;
+		}
+		if (timeoutMs > 0) {
+			scheduler.schedule(new Runnable() {
+				@Override
+				public void run() {
+					finish(InventoryStopReason.TIMEOUT);
+				}
+			}, timeoutMs, TimeUnit.MILLISECONDS);
+		}
+		if (quietPeriodMs > 0) {
+			scheduleQuietCheck(quietPeriodMs);
+		}
+		return future;
+	}
+
+	@Override
+	public void getInventoryData(InventoryData inventoryData) {
+		if (inventoryData == null || finished.get()) {
+			return;
+		}
+		boolean isNew = store.update(inventoryData);
+		boolean hasEpc = inventoryData.epc != null && inventoryData.epcLen > 0;
+		boolean hasExt = inventoryData.externalData != null && inventoryData.externalDataLen > 0;
+		if (!hasEpc && !hasExt) {
+			return;
+		}
+		int reads = readCount.incrementAndGet();
+		if (isNew) {
+			lastNewTagNanos = System.nanoTime();
+			int tags = tagCount.incrementAndGet();
+			if (targetTags > 0 && tags >= targetTags) {
+				finish(InventoryStopReason.TAG_TARGET);
+				return;
+			}
+		}
+		if (targetReads > 0 && reads >= targetReads) {
+			finish(InventoryStopReason.READ_TARGET);
+		}
+	}
+
+	/**
+	 * 到期时检查最后一个新标签的时间,未满足则按剩余时间再检查一次
+	 */
+	private void scheduleQuietCheck(long delayMs) {
+		scheduler.schedule(new Runnable() {
+			@Override
+			public void run() {
+				long idleMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - lastNewTagNanos);
+				if (idleMs >= quietPeriodMs) {
+					finish(InventoryStopReason.QUIET_PERIOD);
+				} else if (!finished.get()) {
+					scheduleQuietCheck(quietPeriodMs - idleMs);
+				}
+			}
+		}, delayMs, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * 只有第一个满足的条件生效;停止盘点放到定时线程执行,不在回调线程里调用native接口
+	 */
+	private void finish(final InventoryStopReason reason) {
+		if (!finished.compareAndSet(false, true)) {
+			return;
+		}
+		final long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+		scheduler.execute(new Runnable() {
+			@Override
+			public void run() {
+				int status = driver.stopInventory();
+				restoreListener();
+				InventorySnapshot snapshot = store.swap();
+				scheduler.shutdown();
+				future.complete(new InventoryResult(reason, snapshot, status, elapsedMs));
+			}
+		});
+	}
+
+	/**
+	 * 恢复start()之前的盘点监听;期间已被其他调用方替换时不动
+	 */
+	private void restoreListener() {
+		if (driver.getOnInventoryListener() == this) {
+			driver.setOnInventoryListener(previousListener);
+		}
+	}
+
+	public boolean isFinished() {
+		return finished.get();
+	}
+
+	@Override
+	public void setListener(ReaderDriver driver) {
+		driver.setOnInventoryListener(this);
+	}
+}
@@ -0,0 +1,33 @@
+package com.uhf.linkage;
+
+/**
+ * 记录盘点状态(getInventoryMode)的JNI驱动
+ * native方法只能声明在Linkage中(动态库按类名绑定),无法在Linkage里包装,因此在子类中记录;
+ * Linkage.getInstance()和ReaderDrivers创建的都是本类实例
+ */
+public class JniReaderDriver extends Linkage {
+
+	public JniReaderDriver() {
+		super();
+	}
+
+	public JniReaderDriver(String strLibPath) {
+		super(strLibPath);
+	}
+
+	@Override
+	public int startInventory(int mode, int maskFlag) {
+		int status = super.startInventory(mode, maskFlag);
+		if (status == 0) {
+			inventoryStarted(mode);
+		}
+		return status;
+	}
+
+	@Override
+	public int stopInventory() {
+		int status = super.stopInventory();
+		inventoryStopped();
+		return status;
+	}
+}
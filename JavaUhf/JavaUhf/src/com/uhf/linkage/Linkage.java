@@ -1,61 +1,70 @@
 package com.uhf.linkage;
 
+import java.io.File;
+
 import com.uhf.detailwith.InventoryDetailWith;
 import com.uhf.detailwith.RwDataDetailWith;
+import com.uhf.driver.AbstractReaderDriver;
 import com.uhf.structures.InventoryArea;
 import com.uhf.structures.InventoryData;
-import com.uhf.structures.OnInventoryListener;
-import com.uhf.structures.OnRwListener;
 import com.uhf.structures.RwData;
 import com.uhf.structures.SerialNumber;
 import com.uhf.structures.SoftVersion;
-import com.uhf.utils.StringUtils;
 
-public class Linkage {
-	private OnInventoryListener onInventoryListener;
-	private OnRwListener onRwListener;
-	private static String path;
+/**
+ * JNI实现的读写器驱动,native方法由uhfJni动态库按本类名绑定,类名和包名不能修改
+ * 动态库在第一次创建实例时加载,只加载一次;不使用JNI的场景(如InMemoryReaderDriver)不会加载
+ */
+public class Linkage extends AbstractReaderDriver {
+	private static boolean loaded;
+
+
 
-	
-	
 	public Linkage(String strLibPath) {
-		System.load(strLibPath + "\\uhf.dll");
-		System.load(strLibPath + "\\uhfJni.dll");
+		loadLibraries(strLibPath);
 //		System.load("D:\\dll\\uhf.dll");
 //		System.load("D:\\dll\\uhfJni.dll");
 	}
 
 	public Linkage() {
-		System.loadLibrary("uhf");
-		System.loadLibrary("uhfJni");
+		loadLibraries(null);
+
+	}
 
+	/**
+	 * 加载uhf和uhfJni,libPath为null时从java.library.path查找;文件名按平台映射(Windows下为uhf.dll)
+	 */
+	private static synchronized void loadLibraries(String libPath) {
+		if (loaded) {
+			return;
+		}
+		if (libPath == null) {
+			System.loadLibrary("uhf");
+			System.loadLibrary("uhfJni");
+		} else {
+			System.load(new File(libPath, System.mapLibraryName("uhf")).getAbsolutePath());
+			System.load(new File(libPath, System.mapLibraryName("uhfJni")).getAbsolutePath());
+		}
+		loaded = true;
 	}
 
 	// 实现单例模式,外部直接可以用instance调用
 	private static Linkage instance = null;
 
-	public static Linkage getInstance(String strLibPath) {
+	public static synchronized Linkage getInstance(String strLibPath) {
 		if (instance == null) {
-			instance = new Linkage(strLibPath);
+			instance = new JniReaderDriver(strLibPath);
 		}
 		return instance;
 	}
 
-	public static Linkage getInstance() {
+	public static synchronized Linkage getInstance() {
 		if (instance == null) {
-			instance = new Linkage();
+			instance = new JniReaderDriver();
 		}
 		return instance;
 	}
 
-	public void setOnInventoryListener(OnInventoryListener onInventoryListener) {
-		this.onInventoryListener = onInventoryListener;
-	}
-
-	public void setOnRwListener(OnRwListener onRwListener) {
-		this.onRwListener = onRwListener;
-	}
-
 	// 初始化系统参数,uhf回调通过Listener传回
 	public native int initRFID();
 
@@ -87,46 +96,14 @@ public class Linkage {
 	public native int writeTagSync(byte[] accessPassword, int memBank, int startAddr, int wordLen, byte[] pWriteData,
 			int timeOutMs, RwData rwData);
 
-	// 初始化方法，连接设备
+	// 初始化方法，连接设备(JNI驱动);可选择驱动的版本见ReaderDrivers.initial
 	public static int initial(String port) {
-		Linkage.getInstance().setRFModuleType(0);
-		Linkage.getInstance().setRFConnectMode(0);
-		if (Linkage.getInstance().initRFID() == 0) {
-			// System.out.println("Init success!");
-		} else {
-			// System.out.println("初始化失败");
+		if (Linkage.getInstance().connect(port) != 0) {
 			return -1;
 		}
-		if (Linkage.getInstance().openCom(port, 115200L) == 0) {
-
-			SerialNumber serialNumber = new SerialNumber();
-
-			// System.out.println("Open com success!");
-
-			if (Linkage.getInstance().getModuleSerialNumber(serialNumber) == 0) {
-				String serialNo = com.uhf.utils.StringUtils.byteToHexString(serialNumber.snData, serialNumber.snLen);
-				serialNo = StringUtils.convertHexToString(serialNo);
-				// System.out.println("序列号" + serialNo);
-			} else {
-				System.out.println("序列号获取失败");
-				return -1;
-			}
-
-			SoftVersion softVersion = new SoftVersion();
-			if (Linkage.getInstance().getModuleSoftVersion(softVersion) == 0) {
-				String versionNo = StringUtils.byteToHexString(softVersion.version, softVersion.versionLen);
-				versionNo = StringUtils.convertHexToString(versionNo);
-				// System.out.println("版本号" + versionNo);
-			}
-			InventoryDetailWith.getInstance().setListener(Linkage.getInstance());
-			RwDataDetailWith.getInstance().setListener(Linkage.getInstance());
-			// System.out.println("连接成功");
-			return 0;
-		} else {
-			// System.out.println("打开串口失败");
-			return -1;
-		}
-
+		InventoryDetailWith.getInstance().setListener(Linkage.getInstance());
+		RwDataDetailWith.getInstance().setListener(Linkage.getInstance());
+		return 0;
 	}
 
 	// 断开连接
@@ -141,20 +118,19 @@ public class Linkage {
 	}
 
 	/**
-	 * RFID回调函数接口,目前处理盘点返回信息
+	 * RFID回调函数接口,目前处理盘点返回信息(由JNI层调用)
 	 */
+	@Override
 	public void inventoryCallBack(InventoryData inventoryData) {
-		if (inventoryData != null && onInventoryListener != null)
-			onInventoryListener.getInventoryData(inventoryData);
+		super.inventoryCallBack(inventoryData);
 	}
 
 	/**
-	 * RFID回调函数接口,处理读写返回信息
+	 * RFID回调函数接口,处理读写返回信息(由JNI层调用)
 	 */
+	@Override
 	public void rwCallBack(RwData rwData) {
-		System.out.println("rwCallBack");
-		if (rwData != null && onRwListener != null)
-			onRwListener.getRwData(rwData);
+		super.rwCallBack(rwData);
 	}
 
 }
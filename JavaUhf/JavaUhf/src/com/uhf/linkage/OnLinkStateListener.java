@@ -0,0 +1,23 @@
+package com.uhf.linkage;
+
+/**
+ * 连接断开/恢复通知,在ConnectionSupervisor的检查线程上调用
+ */
+public interface OnLinkStateListener {
+
+	/**
+	 * 检测到连接失效,之后开始重连
+	 *
+	 * @param reason 失效原因
+	 */
+	void onLinkDown(SupervisedLink link, String reason);
+
+	/**
+	 * 重连成功
+	 *
+	 * @param gapMs      最后一次收到数据到恢复的时间,这段时间内的数据丢失
+	 * @param recoveryMs 检测到失效到恢复的时间
+	 * @param attempts   重连尝试次数
+	 */
+	void onLinkRestored(SupervisedLink link, long gapMs, long recoveryMs, int attempts);
+}
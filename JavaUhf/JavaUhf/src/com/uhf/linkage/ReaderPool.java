@@ -0,0 +1,289 @@
+package com.uhf.linkage;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.uhf.detailwith.ConcurrentTagStore;
+import com.uhf.driver.ReaderDriver;
+import com.uhf.driver.ReaderDrivers;
+import com.uhf.structures.InventoryData;
+import com.uhf.structures.InventorySnapshot;
+import com.uhf.structures.OnInventoryListener;
+
+/**
+ * 同时管理多个读写器,每个设备一个驱动实例和一个串行执行驱动调用的线程,不同设备之间并行
+ * 每个设备的驱动上注册各自的监听,盘点回调按驱动实例计入该设备的ConcurrentTagStore(不依赖InventoryData.fromDev),
+ * 再交给可选的下游监听
+ * JNI驱动没有设备句柄,所有实例共用同一个native会话,池中最多只能有一个JNI读写器
+ */
+public class ReaderPool {
+
+	/**
+	 * 池中的一个读写器
+	 */
+	public final class Reader implements OnInventoryListener {
+		private final String port;
+		private final ReaderDriver driver;
+		private final ExecutorService executor;
+		private final ConcurrentTagStore store = new ConcurrentTagStore();
+		private final AtomicLong readCount = new AtomicLong();
+
+		Reader(String port, ReaderDriver driver, ExecutorService executor) {
+			this.port = port;
+			this.driver = driver;
+			this.executor = executor;
+		}
+
+		public String getPort() {
+			return port;
+		}
+
+		public ReaderDriver getDriver() {
+			return driver;
+		}
+
+		/**
+		 * 该设备当前周期的盘点结果
+		 */
+		public ConcurrentTagStore getStore() {
+			return store;
+		}
+
+		public long getReadCount() {
+			return readCount.get();
+		}
+
+		@Override
+		public void getInventoryData(InventoryData inventoryData) {
+			if (inventoryData == null) {
+				return;
+			}
+			store.update(inventoryData);
+			readCount.incrementAndGet();
+			OnInventoryListener listener = downstream;
+			if (listener != null) {
+				listener.getInventoryData(inventoryData);
+			}
+		}
+
+		@Override
+		public void setListener(ReaderDriver driver) {
+			driver.setOnInventoryListener(this);
+		}
+	}
+
+	// 写时复制
+	private volatile Reader[] readers = new Reader[0];
+	private volatile OnInventoryListener downstream;
+
+	/**
+	 * 连接一个读写器并加入池中,返回connect的状态码(0为成功)
+	 *
+	 * @throws IllegalStateException 池中已有JNI读写器时再加入JNI读写器(native会话只有一个)
+	 */
+	public synchronized int add(String port) {
+		if (get(port) != null) {
+			return 0;
+		}
+		final ReaderDriver driver = newDriver();
+		if (driver instanceof Linkage) {
+			for (Reader r : readers) {
+				if (r.driver instanceof Linkage) {
+					throw new IllegalStateException("JNI driver supports a single reader, " + r.port
+							+ " is already in the pool");
+				}
+			}
+		}
+		ExecutorService executor = Executors.newSingleThreadExecutor(threadFactory("reader-" + port));
+		int status;
+		try {
+			status = call(executor, new Callable<Integer>() {
+				@Override
+				public Integer call() {
+					return driver.connect(port);
+				}
+			});
+		} catch (ExecutionException e) {
+			status = -1;
+		}
+		if (status != 0) {
+			executor.shutdown();
+			return status;
+		}
+		Reader reader = new Reader(port, driver, executor);
+		Reader[] next = Arrays.copyOf(readers, readers.length + 1);
+		next[next.length - 1] = reader;
+		readers = next;
+		reader.setListener(driver);
+		return 0;
+	}
+
+	/**
+	 * 断开并移除一个读写器
+	 */
+	public synchronized int remove(String port) {
+		Reader reader = get(port);
+		if (reader == null) {
+			return -1;
+		}
+		Reader[] next = new Reader[readers.length - 1];
+		int n = 0;
+		for (Reader r : readers) {
+			if (r != reader) {
+				next[n++] = r;
+			}
+		}
+		readers = next;
+		return shutdown(reader);
+	}
+
+	public Reader get(String port) {
+		for (Reader r : readers) {
+			if (r.port.equals(port)) {
+				return r;
+			}
+		}
+		return null;
+	}
+
+	public int size() {
+		return readers.length;
+	}
+
+	/**
+	 * 所有读写器同时开始盘点,返回每个端口的startInventory状态码;上一周期的结果用swap()取走
+	 */
+	public Map<String, Integer> startInventory(final int mode) {
+		return invokeAll(new DriverCall() {
+			@Override
+			public int call(Reader reader) {
+				return reader.driver.startInventory(mode, 0);
+			}
+		});
+	}
+
+	/**
+	 * 所有读写器同时停止盘点,返回每个端口的stopInventory状态码
+	 */
+	public Map<String, Integer> stopInventory() {
+		return invokeAll(new DriverCall() {
+			@Override
+			public int call(Reader reader) {
+				return reader.driver.stopInventory();
+			}
+		});
+	}
+
+	/**
+	 * 取走每个读写器当前周期的结果并开始新周期
+	 */
+	public Map<String, InventorySnapshot> swap() {
+		Map<String, InventorySnapshot> result = new LinkedHashMap<>();
+		for (Reader r : readers) {
+			result.put(r.port, r.store.swap());
+		}
+		return result;
+	}
+
+	/**
+	 * 设置下游监听,收到的InventoryData已计入对应设备的store
+	 */
+	public void setOnInventoryListener(OnInventoryListener downstream) {
+		this.downstream = downstream;
+	}
+
+	/**
+	 * 停止盘点并断开所有读写器
+	 */
+	public synchronized void close() {
+		Reader[] rs = readers;
+		readers = new Reader[0];
+		for (Reader r : rs) {
+			shutdown(r);
+		}
+	}
+
+	private int shutdown(final Reader reader) {
+		int status;
+		try {
+			status = call(reader.executor, new Callable<Integer>() {
+				@Override
+				public Integer call() {
+					reader.driver.stopInventory();
+					return reader.driver.disconnect();
+				}
+			});
+		} catch (ExecutionException e) {
+			status = -1;
+		}
+		reader.executor.shutdown();
+		return status;
+	}
+
+	/**
+	 * 每个设备新建一个驱动实例,默认按系统属性uhf.driver选择(JNI驱动的native库只加载一次)
+	 */
+	protected ReaderDriver newDriver() {
+		return ReaderDrivers.create();
+	}
+
+	private interface DriverCall {
+		int call(Reader reader);
+	}
+
+	private Map<String, Integer> invokeAll(final DriverCall call) {
+		Reader[] rs = readers;
+		Map<String, Future<Integer>> futures = new LinkedHashMap<>();
+		for (final Reader r : rs) {
+			futures.put(r.port, r.executor.submit(new Callable<Integer>() {
+				@Override
+				public Integer call() {
+					return call.call(r);
+				}
+			}));
+		}
+		Map<String, Integer> result = new LinkedHashMap<>();
+		for (Map.Entry<String, Future<Integer>> e : futures.entrySet()) {
+			int status;
+			try {
+				status = e.getValue().get();
+			} catch (ExecutionException ex) {
+				ex.getCause().printStackTrace();
+				status = -1;
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				status = -1;
+			}
+			result.put(e.getKey(), status);
+		}
+		return result;
+	}
+
+	private static int call(ExecutorService executor, Callable<Integer> task) throws ExecutionException {
+		try {
+			return executor.submit(task).get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return -1;
+		}
+	}
+
+	private static ThreadFactory threadFactory(final String name) {
+		return new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, name);
+				t.setDaemon(true);
+				return t;
+			}
+		};
+	}
+}
@@ -0,0 +1,207 @@
+package com.uhf.linkage;
+
+import java.util.concurrent.TimeUnit;
+
+import com.uhf.access.TagAccessQueue;
+import com.uhf.driver.ReaderDriver;
+import com.uhf.structures.InventoryArea;
+import com.uhf.structures.InventoryData;
+import com.uhf.structures.InventoryRecordView;
+import com.uhf.structures.OnInventoryListener;
+import com.uhf.structures.OnInventoryRecordListener;
+import com.uhf.structures.OnRwListener;
+import com.uhf.structures.SoftVersion;
+
+/**
+ * 读写器连接:open时connect、恢复盘点区域和监听,按需重新开始盘点
+ * 监听经过这里转发,用来记录最近一次回调的时间;监听要通过这里设置,直接设置到驱动上的会在重连时被覆盖
+ * 盘点区域在第一次连接成功后读出(或由setInventoryArea指定),重连后写回
+ * probe查询版本号前先停止盘点、查询后恢复,不与盘点同时调用读写器;设置了TagAccessQueue时在其访问线程上进行
+ */
+public class RfidLink implements SupervisedLink, OnInventoryListener, OnInventoryRecordListener {
+
+	private static final long PROBE_TIMEOUT_MS = 3000;
+
+	private final ReaderDriver driver;
+	private final String port;
+	private volatile TagAccessQueue accessQueue;
+	private InventoryArea inventoryArea;
+	private int resumeInventoryMode = -1;
+	private volatile OnInventoryListener onInventoryListener;
+	private volatile OnInventoryRecordListener onInventoryRecordListener;
+	private volatile OnRwListener onRwListener;
+
+	private volatile long lastActivityNanos = System.nanoTime();
+	private volatile int lastError;
+
+	public RfidLink(ReaderDriver driver, String port) {
+		this.driver = driver;
+		this.port = port;
+	}
+
+	@Override
+	public String getName() {
+		return "RFID " + port;
+	}
+
+	public ReaderDriver getDriver() {
+		return driver;
+	}
+
+	/**
+	 * 每次连接后设置的盘点区域;不设置时使用第一次连接后读到的区域
+	 */
+	public synchronized void setInventoryArea(InventoryArea inventoryArea) {
+		this.inventoryArea = inventoryArea;
+	}
+
+	/**
+	 * open成功后以该模式开始盘点,-1表示不开始
+	 * 第一次连接通常由调用方(如ContinuousInventory)开始盘点,之后再设置,重连时由这里恢复
+	 */
+	public synchronized void setResumeInventoryMode(int resumeInventoryMode) {
+		this.resumeInventoryMode = resumeInventoryMode;
+	}
+
+	/**
+	 * 同一读写器上的标签读写队列,probe经由它执行,避免与排队中的读写同时调用读写器
+	 */
+	public void setAccessQueue(TagAccessQueue accessQueue) {
+		this.accessQueue = accessQueue;
+	}
+
+	public void setOnInventoryListener(OnInventoryListener onInventoryListener) {
+		this.onInventoryListener = onInventoryListener;
+		driver.setOnInventoryListener(onInventoryListener != null ? this : null);
+	}
+
+	public void setOnInventoryRecordListener(OnInventoryRecordListener onInventoryRecordListener) {
+		this.onInventoryRecordListener = onInventoryRecordListener;
+		driver.setOnInventoryRecordListener(onInventoryRecordListener != null ? this : null);
+	}
+
+	public void setOnRwListener(OnRwListener onRwListener) {
+		this.onRwListener = onRwListener;
+		driver.setOnRwListener(onRwListener);
+	}
+
+	@Override
+	public synchronized int open() {
+		lastError = 0;
+		int status = driver.connect(port);
+		if (status != 0) {
+			return status;
+		}
+		if (inventoryArea == null) {
+			InventoryArea area = new InventoryArea();
+			if (driver.getInventoryArea(area) == 0) {
+				inventoryArea = area;
+			}
+		} else {
+			status = driver.setInventoryArea(inventoryArea);
+			if (status != 0) {
+				return status;
+			}
+		}
+		// 只注册有下游的监听,驱动按是否有旧式监听选择回调方式
+		driver.setOnInventoryListener(onInventoryListener != null ? this : null);
+		driver.setOnInventoryRecordListener(onInventoryRecordListener != null ? this : null);
+		driver.setOnRwListener(onRwListener);
+		if (resumeInventoryMode >= 0) {
+			status = driver.startInventory(resumeInventoryMode, 0);
+			if (status != 0) {
+				return status;
+			}
+		}
+		lastActivityNanos = System.nanoTime();
+		return 0;
+	}
+
+	@Override
+	public synchronized void close() {
+		driver.stopInventory();
+		driver.disconnect();
+	}
+
+	/**
+	 * 调用方在驱动调用返回错误(如startInventory、readTagSync返回负数)时报告,连接会被重连
+	 */
+	public void reportError(int status) {
+		if (status != 0) {
+			lastError = status;
+		}
+	}
+
+	public int getLastError() {
+		return lastError;
+	}
+
+	@Override
+	public boolean isFailed() {
+		return lastError != 0;
+	}
+
+	@Override
+	public long getLastActivityNanos() {
+		return lastActivityNanos;
+	}
+
+	@Override
+	public boolean probe() {
+		TagAccessQueue queue = accessQueue;
+		if (queue == null) {
+			return queryVersion(driver);
+		}
+		try {
+			return queue.inWindow(new TagAccessQueue.AccessWindow<Boolean>() {
+				@Override
+				public Boolean run(ReaderDriver driver) {
+					return queryVersion(driver);
+				}
+			}).get(PROBE_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		} catch (Exception e) {
+			return false;
+		}
+	}
+
+	/**
+	 * 暂停盘点查询版本号,再以原来的模式恢复盘点;恢复失败时返回false,由重连恢复
+	 */
+	private static boolean queryVersion(ReaderDriver driver) {
+		int mode = driver.getInventoryMode();
+		if (mode >= 0) {
+			driver.stopInventory();
+		}
+		boolean ok = driver.getModuleSoftVersion(new SoftVersion()) == 0;
+		if (mode >= 0 && driver.startInventory(mode, 0) != 0) {
+			ok = false;
+		}
+		return ok;
+	}
+
+	@Override
+	public void getInventoryData(InventoryData inventoryData) {
+		lastActivityNanos = System.nanoTime();
+		OnInventoryListener listener = onInventoryListener;
+		if (listener != null) {
+			listener.getInventoryData(inventoryData);
+		}
+	}
+
+	@Override
+	public void setListener(ReaderDriver driver) {
+		driver.setOnInventoryListener(this);
+	}
+
+	@Override
+	public void getInventoryRecord(InventoryRecordView record) {
+		lastActivityNanos = System.nanoTime();
+		OnInventoryRecordListener listener = onInventoryRecordListener;
+		if (listener != null) {
+			listener.getInventoryRecord(record);
+		}
+	}
+}
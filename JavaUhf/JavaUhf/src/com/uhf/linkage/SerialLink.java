@@ -0,0 +1,161 @@
+package com.uhf.linkage;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import com.yang.serialport.manage.DebugSink;
+import com.yang.serialport.manage.PortHandler;
+import com.yang.serialport.manage.SerialChannel;
+import com.yang.serialport.manage.SerialIoEngine;
+
+/**
+ * 传感器串口连接:open时通过SerialIoEngine打开串口,并恢复下行限速/去重和调试输出的设置
+ * 收到的数据经过这里转发给handler,用来记录最近一次收到数据的时间;读写出错后串口关闭,判为失效
+ * 没有数据时串口仍打开即视为正常,设置了maxSilence时超过该时间没有数据才判为断开
+ */
+public class SerialLink implements SupervisedLink, PortHandler {
+
+	private final SerialIoEngine engine;
+	private final String portName;
+	private final int baudRate;
+	private final PortHandler handler;
+	private long bytesPerSecond;
+	private long burstBytes;
+	private long resendIntervalMs;
+	private DebugSink debugSink;
+	private volatile long maxSilenceNanos;
+
+	private volatile SerialChannel channel;
+	private volatile long lastActivityNanos = System.nanoTime();
+
+	public SerialLink(SerialIoEngine engine, String portName, int baudRate, PortHandler handler) {
+		this.engine = engine;
+		this.portName = portName;
+		this.baudRate = baudRate;
+		this.handler = handler;
+	}
+
+	@Override
+	public String getName() {
+		return "serial " + portName;
+	}
+
+	/**
+	 * 每次打开后设置的下行限速,见DownlinkQueue.setRateLimit
+	 */
+	public synchronized void setRateLimit(long bytesPerSecond, long burstBytes) {
+		this.bytesPerSecond = bytesPerSecond;
+		this.burstBytes = burstBytes;
+		SerialChannel c = channel;
+		if (c != null) {
+			c.getDownlink().setRateLimit(bytesPerSecond, burstBytes);
+		}
+	}
+
+	/**
+	 * 每次打开后设置的重复命令间隔,见DownlinkQueue.setResendIntervalMs
+	 */
+	public synchronized void setResendIntervalMs(long resendIntervalMs) {
+		this.resendIntervalMs = resendIntervalMs;
+		SerialChannel c = channel;
+		if (c != null) {
+			c.getDownlink().setResendIntervalMs(resendIntervalMs);
+		}
+	}
+
+	/**
+	 * 每次打开后设置的调试输出(如CaptureLog)
+	 */
+	public synchronized void setDebugSink(DebugSink debugSink) {
+		this.debugSink = debugSink;
+		SerialChannel c = channel;
+		if (c != null) {
+			c.setDebugSink(debugSink);
+		}
+	}
+
+	/**
+	 * 超过该时间没有收到数据时probe失败(重连串口),0为只要串口打开就正常
+	 */
+	public void setMaxSilenceMs(long maxSilenceMs) {
+		this.maxSilenceNanos = TimeUnit.MILLISECONDS.toNanos(maxSilenceMs);
+	}
+
+	/**
+	 * 当前的串口,未打开时为null
+	 */
+	public SerialChannel getChannel() {
+		return channel;
+	}
+
+	/**
+	 * 放入当前串口的下行队列,见SerialChannel.write(byte[], Object)
+	 *
+	 * @return 串口未打开或命令重复时返回false
+	 */
+	public boolean write(byte[] data, Object key) {
+		SerialChannel c = channel;
+		return c != null && c.write(data, key);
+	}
+
+	@Override
+	public synchronized int open() {
+		try {
+			SerialChannel c = engine.open(portName, baudRate, this);
+			if (bytesPerSecond > 0) {
+				c.getDownlink().setRateLimit(bytesPerSecond, burstBytes);
+			}
+			c.getDownlink().setResendIntervalMs(resendIntervalMs);
+			c.setDebugSink(debugSink);
+			lastActivityNanos = System.nanoTime();
+			channel = c;
+			return 0;
+		} catch (Exception e) {
+			System.err.println(portName + ": " + e);
+			return -1;
+		}
+	}
+
+	@Override
+	public synchronized void close() {
+		SerialChannel c = channel;
+		if (c != null) {
+			c.close();
+			channel = null;
+		}
+	}
+
+	@Override
+	public boolean isFailed() {
+		SerialChannel c = channel;
+		return c == null || !c.isOpen();
+	}
+
+	@Override
+	public long getLastActivityNanos() {
+		return lastActivityNanos;
+	}
+
+	/**
+	 * 串口没有可以查询的状态:仍然打开且没有超过maxSilence即视为正常(传感器可能只是暂时没有数据)
+	 */
+	@Override
+	public boolean probe() {
+		SerialChannel c = channel;
+		if (c == null || !c.isOpen()) {
+			return false;
+		}
+		return maxSilenceNanos <= 0 || System.nanoTime() - lastActivityNanos < maxSilenceNanos;
+	}
+
+	@Override
+	public void onData(SerialChannel channel, byte[] buf, int off, int len) {
+		lastActivityNanos = System.nanoTime();
+		handler.onData(channel, buf, off, len);
+	}
+
+	@Override
+	public void onError(SerialChannel channel, IOException e) {
+		handler.onError(channel, e);
+	}
+}
@@ -0,0 +1,34 @@
+package com.uhf.linkage;
+
+/**
+ * 由ConnectionSupervisor监视的连接(读写器、传感器串口等)
+ */
+public interface SupervisedLink {
+
+	String getName();
+
+	/**
+	 * 打开连接并恢复配置和监听,返回0为成功,否则为错误码
+	 */
+	int open();
+
+	/**
+	 * 释放连接,忽略错误;open失败后也会调用
+	 */
+	void close();
+
+	/**
+	 * 句柄已失效(读写出错、调用返回错误),需要重连
+	 */
+	boolean isFailed();
+
+	/**
+	 * 最近一次收到回调或数据的时间(System.nanoTime)
+	 */
+	long getLastActivityNanos();
+
+	/**
+	 * 长时间没有数据时检查连接是否仍然可用(如查询版本号);返回true时只是没有数据,不重连
+	 */
+	boolean probe();
+}
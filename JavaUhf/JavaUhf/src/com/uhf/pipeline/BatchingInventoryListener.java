@@ -0,0 +1,266 @@
+package com.uhf.pipeline;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import com.uhf.driver.ReaderDriver;
+import com.uhf.structures.InventoryBatch;
+import com.uhf.structures.InventoryData;
+import com.uhf.structures.OnInventoryBatchListener;
+import com.uhf.structures.OnInventoryListener;
+
+/**
+ * 把逐条的盘点回调攒成批再交给OnInventoryBatchListener
+ * 批满(maxBatchSize)或第一条数据起超过maxLatencyMs时交给投递线程,target只在投递线程上被调用,写入线程只拷贝数据和交换批
+ * 两个批交替使用:一个接收数据,另一个正在投递;两个都忙(接收的批已满、上一批还没投递完)时按overflowPolicy处理:
+ * DROP_NEWEST丢弃新数据,DROP_OLDEST丢弃已满未投递的整批,BLOCK等待投递结束(会阻塞回调线程);丢弃的条数见getDroppedCount
+ */
+public class BatchingInventoryListener implements OnInventoryListener {
+
+	private final OnInventoryBatchListener target;
+	private final long maxLatencyNanos;
+	private final OverflowPolicy overflowPolicy;
+	private final ScheduledThreadPoolExecutor scheduler;
+
+	private final Object fillLock = new Object();
+	private InventoryBatch filling;         // 以下均由fillLock保护
+	private InventoryBatch spare;           // 空闲的批,为null表示正在投递
+	private long generation;                // 每交出一批加1,定时投递据此判断那一批是否已经交出
+	private boolean flushRequested;         // 投递中调用了flush(),投递结束后立即交出当前批
+
+	private volatile long batchCount;
+	private volatile long sizeFlushCount;
+	private volatile long deadlineFlushCount;
+	private volatile long droppedCount;
+	private volatile boolean closed;
+
+	public BatchingInventoryListener(OnInventoryBatchListener target, int maxBatchSize, long maxLatencyMs) {
+		this(target, maxBatchSize, maxLatencyMs, OverflowPolicy.DROP_NEWEST);
+	}
+
+	/**
+	 * @param maxBatchSize 每批最多条数
+	 * @param maxLatencyMs 一条数据在批内最多停留的时间
+	 * @param overflowPolicy 两个批都忙时的处理方式
+	 */
+	public BatchingInventoryListener(OnInventoryBatchListener target, int maxBatchSize, long maxLatencyMs,
+			OverflowPolicy overflowPolicy) {
+		if (maxBatchSize < 1 || maxLatencyMs < 1) {
+			throw new IllegalArgumentException("maxBatchSize and maxLatencyMs must be positive");
+		}
+		this.target = target;
+		this.maxLatencyNanos = TimeUnit.MILLISECONDS.toNanos(maxLatencyMs);
+		this.overflowPolicy = overflowPolicy;
+		this.filling = new InventoryBatch(maxBatchSize);
+		this.spare = new InventoryBatch(maxBatchSize);
+		this.scheduler = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "inventory-batch-flush");
+				t.setDaemon(true);
+				return t;
+			}
+		});
+		this.scheduler.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+	}
+
+	@Override
+	public void getInventoryData(InventoryData inventoryData) {
+		if (inventoryData == null || closed) {
+			return;
+		}
+		synchronized (fillLock) {
+			// 批已满说明上一批还在投递,交不出去
+			while (filling.isFull()) {
+				if (spare != null) {
+					handOff();
+					break;
+				}
+				if (overflowPolicy == OverflowPolicy.DROP_NEWEST) {
+					droppedCount++;
+					return;
+				}
+				if (overflowPolicy == OverflowPolicy.DROP_OLDEST) {
+					droppedCount += filling.size();
+					filling.clear();
+					generation++;
+					break;
+				}
+				try {
+					fillLock.wait();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					droppedCount++;
+					return;
+				}
+			}
+			filling.add(inventoryData);
+			if (filling.isFull()) {
+				if (spare != null) {
+					sizeFlushCount++;
+					handOff();
+				}
+			} else if (filling.size() == 1) {
+				scheduleDeadline(generation);
+			}
+		}
+	}
+
+	/**
+	 * 把当前未满的批交给投递线程;正在投递时等那一批结束后再交出
+	 */
+	public void flush() {
+		synchronized (fillLock) {
+			if (filling.isEmpty()) {
+				return;
+			}
+			if (spare != null) {
+				handOff();
+			} else {
+				flushRequested = true;
+			}
+		}
+	}
+
+	/**
+	 * 交换两个批并把满的一批提交给投递线程,调用时持有fillLock且spare不为null
+	 */
+	private void handOff() {
+		final InventoryBatch batch = filling;
+		filling = spare;
+		spare = null;
+		generation++;
+		flushRequested = false;
+		try {
+			scheduler.execute(new Runnable() {
+				@Override
+				public void run() {
+					deliver(batch);
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			// 已停止,只有并发close时才会发生
+			droppedCount += batch.size();
+			batch.clear();
+			spare = batch;
+			fillLock.notifyAll();
+		}
+	}
+
+	/**
+	 * 在投递线程上调用target,结束后归还批;期间若接收的批已满、到期或被要求flush,立即交出
+	 */
+	private void deliver(InventoryBatch batch) {
+		try {
+			target.getInventoryBatch(batch);
+		} catch (RuntimeException e) {
+			e.printStackTrace();
+		} finally {
+			batch.clear();
+			batchCount++;
+			synchronized (fillLock) {
+				spare = batch;
+				fillLock.notifyAll();
+				if (!filling.isEmpty()) {
+					if (filling.isFull()) {
+						sizeFlushCount++;
+						handOff();
+					} else if (flushRequested || closed) {
+						handOff();
+					} else if (System.nanoTime() - filling.getFirstTime() >= maxLatencyNanos) {
+						deadlineFlushCount++;
+						handOff();
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * @param gen 安排时的批次号,批次已变说明该批已交出
+	 */
+	private void deadlineFlush(long gen) {
+		synchronized (fillLock) {
+			// 正在投递时由deliver结束后按时间判断
+			if (gen != generation || filling.isEmpty() || spare == null) {
+				return;
+			}
+			deadlineFlushCount++;
+			handOff();
+		}
+	}
+
+	private void scheduleDeadline(final long gen) {
+		try {
+			scheduler.schedule(new Runnable() {
+				@Override
+				public void run() {
+					deadlineFlush(gen);
+				}
+			}, maxLatencyNanos, TimeUnit.NANOSECONDS);
+		} catch (RejectedExecutionException e) {
+			// 已close,剩余数据由close()投递
+		}
+	}
+
+	/**
+	 * 投递剩余数据并停止投递线程,之后收到的数据被忽略;会等待剩余数据投递完
+	 */
+	public void close() {
+		closed = true;
+		// 正在投递时等它结束,再交出剩余数据,直到全部投递完
+		try {
+			synchronized (fillLock) {
+				while (true) {
+					if (spare != null) {
+						if (filling.isEmpty()) {
+							break;
+						}
+						handOff();
+					}
+					fillLock.wait();
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		scheduler.shutdown();
+	}
+
+	public long getBatchCount() {
+		return batchCount;
+	}
+
+	public long getSizeFlushCount() {
+		return sizeFlushCount;
+	}
+
+	public long getDeadlineFlushCount() {
+		return deadlineFlushCount;
+	}
+
+	/**
+	 * 两个批都忙时按overflowPolicy丢弃的条数
+	 */
+	public long getDroppedCount() {
+		return droppedCount;
+	}
+
+	@Override
+	public void setListener(ReaderDriver driver) {
+		driver.setOnInventoryListener(this);
+	}
+
+	@Override
+	public String toString() {
+		return "BatchingInventoryListener{" +
+				"batches=" + batchCount +
+				", bySize=" + sizeFlushCount +
+				", byDeadline=" + deadlineFlushCount +
+				", dropped=" + droppedCount +
+				", policy=" + overflowPolicy +
+				'}';
+	}
+}
@@ -0,0 +1,24 @@
+package com.uhf.pipeline;
+
+import com.uhf.structures.InventoryBatch;
+import com.uhf.structures.OnInventoryBatchListener;
+import com.uhf.structures.OnInventoryListener;
+
+/**
+ * 让原有的逐条监听器接在成批投递之后,批内数据按顺序逐条转交
+ */
+public class InventoryBatchAdapter implements OnInventoryBatchListener {
+
+	private final OnInventoryListener listener;
+
+	public InventoryBatchAdapter(OnInventoryListener listener) {
+		this.listener = listener;
+	}
+
+	@Override
+	public void getInventoryBatch(InventoryBatch batch) {
+		for (int i = 0; i < batch.size(); i++) {
+			listener.getInventoryData(batch.get(i));
+		}
+	}
+}
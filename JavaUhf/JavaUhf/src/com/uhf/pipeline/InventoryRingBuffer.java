@@ -0,0 +1,293 @@
+package com.uhf.pipeline;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.uhf.driver.ReaderDriver;
+import com.uhf.structures.InventoryData;
+import com.uhf.structures.OnInventoryListener;
+
+/**
+ * 盘点回调与业务处理之间的环形缓冲区
+ * 回调线程(唯一生产者)只把InventoryData拷贝进预分配的槽位后立即返回,
+ * 一个或多个消费线程成批取出并交给下游监听器处理
+ *
+ * 下游监听器收到的InventoryData是复用的槽位对象,回调返回后内容会被覆盖,需要保留的数据请自行拷贝
+ */
+public class InventoryRingBuffer implements OnInventoryListener {
+
+	private static final int SPIN_TRIES = 100;
+	private static final int YIELD_TRIES = 200;
+
+	private final InventoryData[] slots;
+	// 每个槽位下一次可以写入的序号,消费完成后置为 序号+容量
+	private final AtomicLongArray released;
+	private final int capacity;
+	private final int mask;
+	private final int maxBatch;
+	private final OverflowPolicy overflowPolicy;
+	private final WaitStrategy waitStrategy;
+
+	private final AtomicLong published = new AtomicLong();   // 已发布的序号上界(不含)
+	private final AtomicLong claimed = new AtomicLong();     // 已被消费者领取的序号上界(不含)
+	private long nextSequence;                               // 仅生产者线程访问
+
+	// BLOCKING 等待方式使用
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition notEmptyOrNotFull = lock.newCondition();
+	private final AtomicInteger waiters = new AtomicInteger();
+
+	// 统计,只由生产者线程写
+	private volatile long droppedOldest;
+	private volatile long droppedNewest;
+	private volatile long maxDepth;
+
+	private final List<Thread> consumers = new ArrayList<>();
+	private volatile boolean running;
+
+	/**
+	 * @param capacity 槽位数量,向上取整为2的幂
+	 * @param maxBatch 消费者每次最多领取的条数
+	 */
+	public InventoryRingBuffer(int capacity, int maxBatch, OverflowPolicy overflowPolicy, WaitStrategy waitStrategy) {
+		int n = 2;
+		while (n < capacity) {
+			n <<= 1;
+		}
+		this.capacity = n;
+		this.mask = n - 1;
+		this.maxBatch = Math.max(1, maxBatch);
+		this.overflowPolicy = overflowPolicy;
+		this.waitStrategy = waitStrategy;
+		this.slots = new InventoryData[n];
+		this.released = new AtomicLongArray(n);
+		for (int i = 0; i < n; i++) {
+			InventoryData slot = new InventoryData();
+			slot.epc = new byte[64];
+			slot.externalData = new byte[64];
+			slots[i] = slot;
+			released.set(i, i);
+		}
+	}
+
+	public InventoryRingBuffer() {
+		this(8192, 256, OverflowPolicy.DROP_OLDEST, WaitStrategy.SLEEPING);
+	}
+
+	/**
+	 * 生产者入口(驱动回调线程),拷贝数据后立即返回;只允许一个线程调用
+	 */
+	@Override
+	public void getInventoryData(InventoryData inventoryData) {
+		if (inventoryData == null) {
+			return;
+		}
+		long seq = nextSequence;
+		int index = (int) seq & mask;
+		int idle = 0;
+		while (released.get(index) != seq) {
+			if (overflowPolicy == OverflowPolicy.DROP_NEWEST) {
+				droppedNewest++;
+				return;
+			}
+			if (overflowPolicy == OverflowPolicy.DROP_OLDEST) {
+				// 最旧的一条还没被任何消费者领取时,由生产者直接领取并丢弃
+				long oldest = seq - capacity;
+				if (claimed.get() == oldest && claimed.compareAndSet(oldest, oldest + 1)) {
+					released.set(index, seq);
+					droppedOldest++;
+					break;
+				}
+				// 最旧的一条正在被消费者处理(消费者慢):不等待,丢弃这条新数据
+				droppedNewest++;
+				return;
+			}
+			idle = idle(idle);
+		}
+		slots[index].copyFrom(inventoryData);
+		nextSequence = seq + 1;
+		published.lazySet(seq + 1);
+		long depth = seq + 1 - claimed.get();
+		if (depth > maxDepth) {
+			maxDepth = depth;
+		}
+		signal();
+	}
+
+	/**
+	 * 启动消费线程,每个线程成批领取数据后依次交给listener
+	 * 多个消费线程时,同一批内有序,批与批之间不保证顺序
+	 */
+	public synchronized void start(final OnInventoryListener listener, int threads) {
+		if (running) {
+			throw new IllegalStateException("already started");
+		}
+		running = true;
+		for (int i = 0; i < threads; i++) {
+			Thread t = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					consume(listener);
+				}
+			}, "inventory-consumer-" + i);
+			t.setDaemon(true);
+			t.start();
+			consumers.add(t);
+		}
+	}
+
+	/**
+	 * 停止消费线程,已发布的数据处理完后返回
+	 */
+	public synchronized void stop() throws InterruptedException {
+		running = false;
+		signal();
+		for (Thread t : consumers) {
+			t.join();
+		}
+		consumers.clear();
+	}
+
+	private void consume(OnInventoryListener listener) {
+		int idle = 0;
+		while (true) {
+			long from = claimed.get();
+			long to = published.get();
+			if (from >= to) {
+				if (!running) {
+					return;
+				}
+				idle = idle(idle);
+				continue;
+			}
+			long end = Math.min(to, from + maxBatch);
+			if (!claimed.compareAndSet(from, end)) {
+				continue;
+			}
+			idle = 0;
+			for (long seq = from; seq < end; seq++) {
+				int index = (int) seq & mask;
+				try {
+					listener.getInventoryData(slots[index]);
+				} catch (RuntimeException e) {
+					e.printStackTrace();
+				}
+				released.lazySet(index, seq + capacity);
+			}
+			if (overflowPolicy == OverflowPolicy.BLOCK) {
+				signal();
+			}
+		}
+	}
+
+	/**
+	 * 按等待策略空转一次,返回新的计数
+	 */
+	private int idle(int counter) {
+		switch (waitStrategy) {
+		case BUSY_SPIN:
+			// 提示CPU处于自旋等待(x86上为PAUSE),降低功耗并让出超线程的执行资源
+			Thread.onSpinWait();
+			return counter;
+		case YIELDING:
+			if (counter >= SPIN_TRIES) {
+				Thread.yield();
+			} else {
+				Thread.onSpinWait();
+			}
+			return counter + 1;
+		case SLEEPING:
+			if (counter >= SPIN_TRIES + YIELD_TRIES) {
+				LockSupport.parkNanos(100_000L);
+			} else if (counter >= SPIN_TRIES) {
+				Thread.yield();
+			} else {
+				Thread.onSpinWait();
+			}
+			return counter + 1;
+		default:
+			if (counter < SPIN_TRIES) {
+				Thread.onSpinWait();
+				return counter + 1;
+			}
+			lock.lock();
+			try {
+				waiters.incrementAndGet();
+				// 带超时,避免错过唤醒时永久等待
+				notEmptyOrNotFull.await(1, TimeUnit.MILLISECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} finally {
+				waiters.decrementAndGet();
+				lock.unlock();
+			}
+			return counter;
+		}
+	}
+
+	private void signal() {
+		if (waitStrategy == WaitStrategy.BLOCKING && waiters.get() > 0) {
+			lock.lock();
+			try {
+				notEmptyOrNotFull.signalAll();
+			} finally {
+				lock.unlock();
+			}
+		}
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * 当前积压(已发布未被领取)的条数
+	 */
+	public long getDepth() {
+		return published.get() - claimed.get();
+	}
+
+	public long getMaxDepth() {
+		return maxDepth;
+	}
+
+	public long getPublishedCount() {
+		return published.get();
+	}
+
+	public long getDroppedOldest() {
+		return droppedOldest;
+	}
+
+	public long getDroppedNewest() {
+		return droppedNewest;
+	}
+
+	public long getDroppedCount() {
+		return droppedOldest + droppedNewest;
+	}
+
+	@Override
+	public void setListener(ReaderDriver driver) {
+		driver.setOnInventoryListener(this);
+	}
+
+	@Override
+	public String toString() {
+		return "InventoryRingBuffer{" +
+				"capacity=" + capacity +
+				", published=" + getPublishedCount() +
+				", depth=" + getDepth() +
+				", maxDepth=" + maxDepth +
+				", droppedOldest=" + droppedOldest +
+				", droppedNewest=" + droppedNewest +
+				'}';
+	}
+}
@@ -0,0 +1,13 @@
+package com.uhf.pipeline;
+
+/**
+ * 环形缓冲区写满(或BatchingInventoryListener两个批都忙)时生产者的处理方式
+ */
+public enum OverflowPolicy {
+	/** 等待消费者腾出位置(会阻塞回调线程) */
+	BLOCK,
+	/** 丢弃最旧的一条未被领取的数据;最旧的一条已被消费者领取但未处理完时丢弃新数据,不等待 */
+	DROP_OLDEST,
+	/** 丢弃当前这条新数据 */
+	DROP_NEWEST
+}
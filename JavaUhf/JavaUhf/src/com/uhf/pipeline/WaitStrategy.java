@@ -0,0 +1,15 @@
+package com.uhf.pipeline;
+
+/**
+ * 环形缓冲区上生产者/消费者没有可处理数据时的等待方式
+ */
+public enum WaitStrategy {
+	/** 一直自旋,延迟最低,独占一个CPU核 */
+	BUSY_SPIN,
+	/** 先自旋,之后Thread.yield() */
+	YIELDING,
+	/** 先自旋、让出,之后短暂park,空闲时几乎不占CPU */
+	SLEEPING,
+	/** 锁+条件变量等待,由对端唤醒,CPU占用最低,延迟最高 */
+	BLOCKING
+}
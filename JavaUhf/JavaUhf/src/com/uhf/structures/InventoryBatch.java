@@ -0,0 +1,65 @@
+package com.uhf.structures;
+
+/**
+ * 一批盘点数据,元素对象预先分配并反复复用,添加时只拷贝内容不分配内存
+ */
+public class InventoryBatch {
+	private final InventoryData[] items;
+	private int size;
+	private long firstTime;         // 本批第一条数据的加入时间(纳秒,System.nanoTime)
+
+	public InventoryBatch(int capacity) {
+		items = new InventoryData[capacity];
+		for (int i = 0; i < capacity; i++) {
+			InventoryData item = new InventoryData();
+			item.epc = new byte[64];
+			item.externalData = new byte[64];
+			items[i] = item;
+		}
+	}
+
+	/**
+	 * 拷贝一条数据到批内,批已满返回false
+	 */
+	public boolean add(InventoryData inventoryData) {
+		if (size == items.length) {
+			return false;
+		}
+		if (size == 0) {
+			firstTime = System.nanoTime();
+		}
+		items[size++].copyFrom(inventoryData);
+		return true;
+	}
+
+	public InventoryData get(int index) {
+		if (index >= size) {
+			throw new IndexOutOfBoundsException("index " + index + ", size " + size);
+		}
+		return items[index];
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public int capacity() {
+		return items.length;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public boolean isFull() {
+		return size == items.length;
+	}
+
+	public long getFirstTime() {
+		return firstTime;
+	}
+
+	public void clear() {
+		size = 0;
+	}
+}
@@ -21,6 +21,38 @@ public class InventoryData
 	public byte[] externalData;     // TID/USR数据信息
 	public int rssi = 0;		    // RSSI
     
+	/**
+	 * 把other的内容拷贝到本对象,尽量复用本对象已有的数组(长度足够时不分配内存)
+	 */
+	public void copyFrom(InventoryData other) {
+		if (other.fromDev == null) {
+			fromDev = null;
+		} else {
+			if (fromDev == null || fromDev.length != other.fromDev.length) {
+				fromDev = new byte[other.fromDev.length];
+			}
+			System.arraycopy(other.fromDev, 0, fromDev, 0, other.fromDev.length);
+		}
+		antennaPort = other.antennaPort;
+		pc = other.pc;
+		epcLen = other.epc != null ? other.epcLen : 0;
+		epc = copyBytes(other.epc, epcLen, epc);
+		epc_crc = other.epc_crc;
+		externalDataLen = other.externalData != null ? other.externalDataLen : 0;
+		externalData = copyBytes(other.externalData, externalDataLen, externalData);
+		rssi = other.rssi;
+	}
+
+	private static byte[] copyBytes(byte[] src, int len, byte[] dst) {
+		if (dst == null || dst.length < len) {
+			dst = new byte[Math.max(len, 64)];
+		}
+		if (len > 0) {
+			System.arraycopy(src, 0, dst, 0, len);
+		}
+		return dst;
+	}
+
     @Override
     public String toString()
     {
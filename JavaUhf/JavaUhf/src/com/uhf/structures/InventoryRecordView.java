@@ -0,0 +1,216 @@
+package com.uhf.structures;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * 盘点记录的享元视图,字段存放在(直接内存)ByteBuffer的一个定长槽位里,读写都不分配对象
+ * 同一个视图可以通过wrap()指向不同的槽位;视图只在回调期间有效,需要保留的数据用copyTo()显式拷贝
+ *
+ * 槽位布局(本机字节序):
+ * antennaPort(4) pc(4) rssi(4) epcLen(4) externalDataLen(4) fromDevLen(4) epc(64) externalData(64) fromDev(32)
+ */
+public final class InventoryRecordView {
+
+	public static final int MAX_EPC = 64;
+	public static final int MAX_EXTERNAL = 64;
+	public static final int MAX_FROM_DEV = 32;
+
+	private static final int ANTENNA = 0;
+	private static final int PC = 4;
+	private static final int RSSI = 8;
+	private static final int EPC_LEN = 12;
+	private static final int EXT_LEN = 16;
+	private static final int DEV_LEN = 20;
+	private static final int EPC = 24;
+	private static final int EXT = EPC + MAX_EPC;
+	private static final int DEV = EXT + MAX_EXTERNAL;
+
+	/** 每个槽位的字节数 */
+	public static final int RECORD_SIZE = DEV + MAX_FROM_DEV;
+
+	private ByteBuffer buffer;
+	private int base;
+
+	/**
+	 * 分配能容纳slots条记录的直接内存
+	 */
+	public static ByteBuffer allocate(int slots) {
+		return ByteBuffer.allocateDirect(slots * RECORD_SIZE).order(ByteOrder.nativeOrder());
+	}
+
+	/**
+	 * 新建一个指向独占单槽位的视图
+	 */
+	public static InventoryRecordView allocate() {
+		return new InventoryRecordView().wrap(allocate(1), 0);
+	}
+
+	/**
+	 * 指向buffer的第slot个槽位
+	 */
+	public InventoryRecordView wrap(ByteBuffer buffer, int slot) {
+		this.buffer = buffer;
+		this.base = slot * RECORD_SIZE;
+		return this;
+	}
+
+	// ---------- 读取 ----------
+
+	public int getAntennaPort() {
+		return buffer.getInt(base + ANTENNA);
+	}
+
+	public int getPc() {
+		return buffer.getInt(base + PC);
+	}
+
+	public int getRssi() {
+		return buffer.getInt(base + RSSI);
+	}
+
+	public int getEpcLen() {
+		return buffer.getInt(base + EPC_LEN);
+	}
+
+	public int getExternalDataLen() {
+		return buffer.getInt(base + EXT_LEN);
+	}
+
+	public int getFromDevLen() {
+		return buffer.getInt(base + DEV_LEN);
+	}
+
+	public byte getEpc(int index) {
+		return buffer.get(base + EPC + index);
+	}
+
+	public byte getExternalData(int index) {
+		return buffer.get(base + EXT + index);
+	}
+
+	public byte getFromDev(int index) {
+		return buffer.get(base + DEV + index);
+	}
+
+	/**
+	 * EPC是否与给定字节相同
+	 */
+	public boolean epcEquals(byte[] epc, int epcLen) {
+		if (getEpcLen() != epcLen) {
+			return false;
+		}
+		for (int i = 0; i < epcLen; i++) {
+			if (buffer.get(base + EPC + i) != epc[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * 把EPC拷贝到dst,返回长度
+	 */
+	public int copyEpc(byte[] dst) {
+		int len = getEpcLen();
+		for (int i = 0; i < len; i++) {
+			dst[i] = buffer.get(base + EPC + i);
+		}
+		return len;
+	}
+
+	/**
+	 * 把记录拷贝到已有的InventoryData,数组够长时复用
+	 */
+	public void copyTo(InventoryData target) {
+		target.antennaPort = getAntennaPort();
+		target.pc = getPc();
+		target.rssi = getRssi();
+		target.epcLen = getEpcLen();
+		target.externalDataLen = getExternalDataLen();
+		target.epc = copyOut(EPC, target.epcLen, target.epc);
+		target.externalData = copyOut(EXT, target.externalDataLen, target.externalData);
+		int devLen = getFromDevLen();
+		if (devLen == 0) {
+			target.fromDev = null;
+		} else {
+			if (target.fromDev == null || target.fromDev.length != devLen) {
+				target.fromDev = new byte[devLen];
+			}
+			copyOut(DEV, devLen, target.fromDev);
+		}
+	}
+
+	/**
+	 * 生成一个独立的InventoryData(会分配内存),用于需要在回调之后保留的数据
+	 */
+	public InventoryData toInventoryData() {
+		InventoryData data = new InventoryData();
+		copyTo(data);
+		return data;
+	}
+
+	// ---------- 写入(由驱动调用) ----------
+
+	public InventoryRecordView set(int antennaPort, int pc, int rssi) {
+		buffer.putInt(base + ANTENNA, antennaPort);
+		buffer.putInt(base + PC, pc);
+		buffer.putInt(base + RSSI, rssi);
+		return this;
+	}
+
+	public InventoryRecordView setEpc(byte[] src, int off, int len) {
+		buffer.putInt(base + EPC_LEN, putBytes(EPC, MAX_EPC, src, off, len));
+		return this;
+	}
+
+	public InventoryRecordView setExternalData(byte[] src, int off, int len) {
+		buffer.putInt(base + EXT_LEN, putBytes(EXT, MAX_EXTERNAL, src, off, len));
+		return this;
+	}
+
+	public InventoryRecordView setFromDev(byte[] src, int off, int len) {
+		buffer.putInt(base + DEV_LEN, putBytes(DEV, MAX_FROM_DEV, src, off, len));
+		return this;
+	}
+
+	/**
+	 * 从InventoryData填充(超长的字段截断)
+	 */
+	public InventoryRecordView copyFrom(InventoryData data) {
+		set(data.antennaPort, data.pc, data.rssi);
+		setEpc(data.epc, 0, data.epc != null ? data.epcLen : 0);
+		setExternalData(data.externalData, 0, data.externalData != null ? data.externalDataLen : 0);
+		setFromDev(data.fromDev, 0, data.fromDev != null ? data.fromDev.length : 0);
+		return this;
+	}
+
+	private int putBytes(int offset, int max, byte[] src, int off, int len) {
+		len = Math.max(0, Math.min(len, max));
+		for (int i = 0; i < len; i++) {
+			buffer.put(base + offset + i, src[off + i]);
+		}
+		return len;
+	}
+
+	private byte[] copyOut(int offset, int len, byte[] dst) {
+		if (dst == null || dst.length < len) {
+			dst = new byte[Math.max(len, 64)];
+		}
+		for (int i = 0; i < len; i++) {
+			dst[i] = buffer.get(base + offset + i);
+		}
+		return dst;
+	}
+
+	@Override
+	public String toString() {
+		return "InventoryRecordView{" +
+				"antennaPort=" + getAntennaPort() +
+				", pc=" + getPc() +
+				", rssi=" + getRssi() +
+				", epcLen=" + getEpcLen() +
+				", externalDataLen=" + getExternalDataLen() +
+				'}';
+	}
+}
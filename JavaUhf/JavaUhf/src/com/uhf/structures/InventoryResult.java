@@ -0,0 +1,45 @@
+package com.uhf.structures;
+
+/**
+ * 一次盘点任务的结果
+ */
+public class InventoryResult {
+	private final InventoryStopReason reason;
+	private final InventorySnapshot snapshot;
+	private final int status;               // startInventory失败时为其返回值,否则为stopInventory的返回值
+	private final long elapsedMs;           // 从开始盘点到决定停止的时间
+
+	public InventoryResult(InventoryStopReason reason, InventorySnapshot snapshot, int status, long elapsedMs) {
+		this.reason = reason;
+		this.snapshot = snapshot;
+		this.status = status;
+		this.elapsedMs = elapsedMs;
+	}
+
+	public InventoryStopReason getReason() {
+		return reason;
+	}
+
+	public InventorySnapshot getSnapshot() {
+		return snapshot;
+	}
+
+	public int getStatus() {
+		return status;
+	}
+
+	public long getElapsedMs() {
+		return elapsedMs;
+	}
+
+	@Override
+	public String toString() {
+		return "InventoryResult{" +
+				"reason=" + reason +
+				", tags=" + snapshot.getTagCount() +
+				", reads=" + snapshot.getReadCount() +
+				", status=" + status +
+				", elapsedMs=" + elapsedMs +
+				'}';
+	}
+}
@@ -0,0 +1,64 @@
+package com.uhf.structures;
+
+import java.util.List;
+
+/**
+ * 一个盘点周期(epoch)结束后的结果,生成后不再被回调线程修改
+ */
+public class InventorySnapshot {
+	private final List<TagRecord> tags;     // 按首次读到的时间排序
+	private final int readCount;            // 有效读取次数
+	private final int totalCount;           // 回调总次数
+	private final long startTime;           // 周期开始时间(毫秒)
+	private final long endTime;             // 周期结束时间(毫秒)
+
+	public InventorySnapshot(List<TagRecord> tags, int readCount, int totalCount, long startTime, long endTime) {
+		this.tags = tags;
+		this.readCount = readCount;
+		this.totalCount = totalCount;
+		this.startTime = startTime;
+		this.endTime = endTime;
+	}
+
+	public List<TagRecord> getTags() {
+		return tags;
+	}
+
+	/**
+	 * 不同标签数量
+	 */
+	public int getTagCount() {
+		return tags.size();
+	}
+
+	public int getReadCount() {
+		return readCount;
+	}
+
+	public int getTotalCount() {
+		return totalCount;
+	}
+
+	public long getStartTime() {
+		return startTime;
+	}
+
+	public long getEndTime() {
+		return endTime;
+	}
+
+	public boolean isEmpty() {
+		return tags.isEmpty();
+	}
+
+	@Override
+	public String toString() {
+		return "InventorySnapshot{" +
+				"tagCount=" + tags.size() +
+				", readCount=" + readCount +
+				", totalCount=" + totalCount +
+				", startTime=" + startTime +
+				", endTime=" + endTime +
+				'}';
+	}
+}
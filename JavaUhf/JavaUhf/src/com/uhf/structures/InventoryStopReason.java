@@ -0,0 +1,13 @@
+package com.uhf.structures;
+
+/**
+ * 盘点任务结束的原因
+ */
+public enum InventoryStopReason {
+	TAG_TARGET,         // 达到不同标签数目标
+	READ_TARGET,        // 达到读取次数目标
+	QUIET_PERIOD,       // 一段时间内没有新标签
+	TIMEOUT,            // 达到截止时间
+	CANCELLED,          // 调用方取消
+	START_FAILED        // startInventory返回非0
+}
@@ -0,0 +1,10 @@
+package com.uhf.structures;
+
+/**
+ * 成批接收盘点数据的监听
+ * batch在回调返回后会被复用,需要保留的数据请自行拷贝
+ */
+public interface OnInventoryBatchListener
+{
+    void getInventoryBatch(InventoryBatch batch);
+}
@@ -0,0 +1,9 @@
+package com.uhf.structures;
+
+/**
+ * 零分配的盘点回调:record为复用的享元视图,只在回调期间有效
+ */
+public interface OnInventoryRecordListener
+{
+    void getInventoryRecord(InventoryRecordView record);
+}
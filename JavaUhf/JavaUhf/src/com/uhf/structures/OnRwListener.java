@@ -1,6 +1,6 @@
 package com.uhf.structures;
 
-import com.uhf.linkage.Linkage;
+import com.uhf.driver.ReaderDriver;
 
 /**
  * Description：
@@ -11,5 +11,5 @@ import com.uhf.linkage.Linkage;
 public interface OnRwListener
 {
     void getRwData(RwData rwData);
-    void setListener(Linkage linkage);
+    void setListener(ReaderDriver driver);
 }
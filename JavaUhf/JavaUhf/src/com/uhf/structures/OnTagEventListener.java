@@ -0,0 +1,9 @@
+package com.uhf.structures;
+
+/**
+ * 标签到达/在场/离开事件监听
+ */
+public interface OnTagEventListener
+{
+    void onTagEvent(TagEvent tagEvent);
+}
@@ -0,0 +1,45 @@
+package com.uhf.structures;
+
+/**
+ * 某个标签在某个天线上的RSSI统计结果(查询时生成的快照)
+ */
+public class RssiStats {
+	public final String epc;            // EPC十六进制
+	public final int antennaPort;       // 天线号
+	public final long count;            // 当前统计窗口内的样本数
+	public final int min;
+	public final int max;
+	public final double mean;
+	public final double variance;       // 样本方差,样本数小于2时为0
+	public final double ewma;           // 指数加权平滑值,跨窗口延续
+
+	public RssiStats(String epc, int antennaPort, long count, int min, int max, double mean, double variance,
+			double ewma) {
+		this.epc = epc;
+		this.antennaPort = antennaPort;
+		this.count = count;
+		this.min = min;
+		this.max = max;
+		this.mean = mean;
+		this.variance = variance;
+		this.ewma = ewma;
+	}
+
+	public double getStdDev() {
+		return Math.sqrt(variance);
+	}
+
+	@Override
+	public String toString() {
+		return "RssiStats{" +
+				"epc=" + epc +
+				", antennaPort=" + antennaPort +
+				", count=" + count +
+				", min=" + min +
+				", max=" + max +
+				", mean=" + String.format("%.2f", mean) +
+				", stdDev=" + String.format("%.2f", getStdDev()) +
+				", ewma=" + String.format("%.2f", ewma) +
+				'}';
+	}
+}
@@ -0,0 +1,37 @@
+package com.uhf.structures;
+
+/**
+ * 标签在场状态事件,tag为事件发生时标签记录的拷贝
+ */
+public class TagEvent {
+	private final TagEventType type;
+	private final TagRecord tag;
+	private final long time;        // 事件产生时间(毫秒)
+
+	public TagEvent(TagEventType type, TagRecord tag, long time) {
+		this.type = type;
+		this.tag = tag;
+		this.time = time;
+	}
+
+	public TagEventType getType() {
+		return type;
+	}
+
+	public TagRecord getTag() {
+		return tag;
+	}
+
+	public long getTime() {
+		return time;
+	}
+
+	@Override
+	public String toString() {
+		return "TagEvent{" +
+				"type=" + type +
+				", tag=" + tag +
+				", time=" + time +
+				'}';
+	}
+}
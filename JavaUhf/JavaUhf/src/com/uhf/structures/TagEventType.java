@@ -0,0 +1,13 @@
+package com.uhf.structures;
+
+/**
+ * 标签在场状态事件类型
+ */
+public enum TagEventType {
+	/** 标签第一次被读到(或离开后再次被读到) */
+	ARRIVED,
+	/** 标签仍在读写器范围内(按配置的间隔周期性上报) */
+	STILL_PRESENT,
+	/** 超过离开超时时间没有再读到该标签 */
+	DEPARTED
+}
@@ -0,0 +1,97 @@
+package com.uhf.structures;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.uhf.utils.StringUtils;
+
+/**
+ * 单个标签的盘点记录,以EPC+TID/USR为标识,计数等字段都是原始类型,每次读取原地更新
+ */
+public class TagRecord {
+	public final int id;                // 在所属TagTable中的编号(0开始,删除的记录的编号会分给之后的标签)
+	public final byte[] epc;            // EPC信息(插入时拷贝)
+	public final int epcLen;            // EPC字节长度
+	public final byte[] externalData;   // TID/USR数据信息(插入时拷贝)
+	public final int externalDataLen;   // TID/USR字节长度
+	public int antennaPort;             // 最近一次读到的天线号
+	public int pc;                      // 最近一次读到的PC值
+	public int rssi;                    // 最近一次读到的RSSI
+	public int count;                   // 读取次数
+	public long firstSeen;              // 首次读到的时间(毫秒)
+	public long lastSeen;               // 最近读到的时间(毫秒)
+
+	private String epcHex;
+	private String externalDataHex;
+
+	public TagRecord(int id, byte[] epc, int epcLen, byte[] externalData, int externalDataLen) {
+		this.id = id;
+		this.epc = epcLen > 0 ? Arrays.copyOf(epc, epcLen) : new byte[0];
+		this.epcLen = epcLen;
+		this.externalData = externalDataLen > 0 ? Arrays.copyOf(externalData, externalDataLen) : new byte[0];
+		this.externalDataLen = externalDataLen;
+	}
+
+	/**
+	 * 拷贝一份当前状态,用于在其他线程读取
+	 */
+	public TagRecord copy() {
+		TagRecord r = new TagRecord(id, epc, epcLen, externalData, externalDataLen);
+		r.antennaPort = antennaPort;
+		r.pc = pc;
+		r.rssi = rssi;
+		r.count = count;
+		r.firstSeen = firstSeen;
+		r.lastSeen = lastSeen;
+		r.epcHex = epcHex;
+		r.externalDataHex = externalDataHex;
+		return r;
+	}
+
+	/**
+	 * EPC的十六进制字符串,第一次调用时生成并缓存
+	 */
+	public String getEpcHex() {
+		if (epcHex == null) {
+			epcHex = StringUtils.byteToHexString(epc, epcLen);
+		}
+		return epcHex;
+	}
+
+	/**
+	 * TID/USR的十六进制字符串,第一次调用时生成并缓存
+	 */
+	public String getExternalDataHex() {
+		if (externalDataHex == null) {
+			externalDataHex = StringUtils.byteToHexString(externalData, externalDataLen);
+		}
+		return externalDataHex;
+	}
+
+	/**
+	 * 与原先InventoryDetailWith.list中元素相同格式的Map
+	 */
+	public Map<String, Object> toMap() {
+		Map<String, Object> map = new HashMap<>();
+		map.put("antennaPort", String.valueOf(antennaPort));
+		map.put("epc", getEpcHex());
+		map.put("externalData", getExternalDataHex());
+		map.put("count", String.valueOf(count));
+		map.put("rssi", String.valueOf(rssi));
+		return map;
+	}
+
+	@Override
+	public String toString() {
+		return "TagRecord{" +
+				"epc=" + getEpcHex() +
+				", externalData=" + getExternalDataHex() +
+				", antennaPort=" + antennaPort +
+				", rssi=" + rssi +
+				", count=" + count +
+				", firstSeen=" + firstSeen +
+				", lastSeen=" + lastSeen +
+				'}';
+	}
+}
@@ -0,0 +1,86 @@
+package com.uhf.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 固定分桶的耗时直方图(毫秒),记录无锁、不分配内存,分位数按桶上界估计
+ */
+public class LatencyHistogram {
+
+	private static final long[] BOUNDS = { 1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000, 10000 };
+
+	private final AtomicLongArray buckets = new AtomicLongArray(BOUNDS.length + 1);
+	private final AtomicLong count = new AtomicLong();
+	private final AtomicLong sum = new AtomicLong();
+	private final AtomicLong max = new AtomicLong();
+
+	public void record(long ms) {
+		int i = 0;
+		while (i < BOUNDS.length && ms > BOUNDS[i]) {
+			i++;
+		}
+		buckets.incrementAndGet(i);
+		count.incrementAndGet();
+		sum.addAndGet(ms);
+		long m;
+		while (ms > (m = max.get()) && !max.compareAndSet(m, ms)) {
+			// 重试
+		}
+	}
+
+	public long getCount() {
+		return count.get();
+	}
+
+	public double getMean() {
+		long n = count.get();
+		return n == 0 ? 0 : sum.get() / (double) n;
+	}
+
+	public long getMax() {
+		return max.get();
+	}
+
+	/**
+	 * p取值(0, 1],返回该分位所在桶的上界(最后一个桶返回最大值)
+	 */
+	public long percentile(double p) {
+		long n = count.get();
+		if (n == 0) {
+			return 0;
+		}
+		long rank = (long) Math.ceil(p * n);
+		long seen = 0;
+		for (int i = 0; i < BOUNDS.length; i++) {
+			seen += buckets.get(i);
+			if (seen >= rank) {
+				return BOUNDS[i];
+			}
+		}
+		return max.get();
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		sb.append("n=").append(count.get())
+				.append(" mean=").append(String.format("%.1f", getMean()))
+				.append(" p50<=").append(percentile(0.5))
+				.append(" p90<=").append(percentile(0.9))
+				.append(" p99<=").append(percentile(0.99))
+				.append(" max=").append(max.get())
+				.append(" [");
+		for (int i = 0; i <= BOUNDS.length; i++) {
+			long c = buckets.get(i);
+			if (c > 0) {
+				sb.append(i < BOUNDS.length ? "<=" + BOUNDS[i] : ">" + BOUNDS[BOUNDS.length - 1]).append(':').append(c)
+						.append(' ');
+			}
+		}
+		if (sb.charAt(sb.length() - 1) == ' ') {
+			sb.setLength(sb.length() - 1);
+		}
+		return sb.append(']').toString();
+	}
+}
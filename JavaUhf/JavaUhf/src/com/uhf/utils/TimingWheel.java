@@ -0,0 +1,172 @@
+package com.uhf.utils;
+
+import java.util.Arrays;
+
+/**
+ * 哈希时间轮,用于大量标签的超时判断
+ * 条目用连续的int编号标识(如TagRecord.id),链表用int数组实现,不产生对象;
+ * schedule()刷新超时为O(1),advance()只访问到期的桶,轮的跨度覆盖最大超时时无需多圈计数
+ * 非线程安全
+ */
+public class TimingWheel {
+
+	/**
+	 * 到期回调,可以在回调中再次schedule同一个条目
+	 */
+	public interface ExpiryHandler {
+		void expired(int id, long now);
+	}
+
+	private static final int NONE = -1;
+
+	private final long tickMs;
+	private final int wheelMask;
+	private final int[] heads;          // 每个桶的链表头
+	private int[] next;
+	private int[] prev;
+	private int[] bucketOf;             // 条目所在的桶,NONE表示未调度
+	private long[] deadlineTick;        // 条目到期的tick
+	private long currentTick;           // 已处理到的tick
+	private int scheduled;
+
+	/**
+	 * @param tickMs       时间精度(毫秒),到期事件最多延迟一个tick
+	 * @param maxTimeoutMs 常用的最大超时,轮的跨度按它分配,超出时条目需要多转几圈
+	 * @param now          当前时间(毫秒)
+	 */
+	public TimingWheel(long tickMs, long maxTimeoutMs, long now) {
+		this.tickMs = tickMs;
+		int size = 16;
+		while (size < maxTimeoutMs / tickMs + 2) {
+			size <<= 1;
+		}
+		this.wheelMask = size - 1;
+		this.heads = new int[size];
+		Arrays.fill(heads, NONE);
+		this.currentTick = now / tickMs;
+		ensureCapacity(1024);
+	}
+
+	/**
+	 * 设置(或刷新)条目的到期时间,已过期的时间按下一个tick处理
+	 */
+	public void schedule(int id, long deadline) {
+		ensureCapacity(id + 1);
+		long tick = (deadline + tickMs - 1) / tickMs;
+		if (tick <= currentTick) {
+			tick = currentTick + 1;
+		}
+		int bucket = (int) tick & wheelMask;
+		deadlineTick[id] = tick;
+		int old = bucketOf[id];
+		if (old == bucket) {
+			return;
+		}
+		if (old != NONE) {
+			unlink(id, old);
+		} else {
+			scheduled++;
+		}
+		link(id, bucket);
+	}
+
+	/**
+	 * 取消条目
+	 */
+	public void cancel(int id) {
+		if (id < bucketOf.length && bucketOf[id] != NONE) {
+			unlink(id, bucketOf[id]);
+			scheduled--;
+		}
+	}
+
+	public boolean isScheduled(int id) {
+		return id < bucketOf.length && bucketOf[id] != NONE;
+	}
+
+	/**
+	 * 推进到now,对所有到期条目调用handler,返回到期数量
+	 */
+	public int advance(long now, ExpiryHandler handler) {
+		long target = now / tickMs;
+		if (target <= currentTick) {
+			return 0;
+		}
+		long last = Math.min(target, currentTick + wheelMask + 1);
+		int expired = 0;
+		for (long t = currentTick + 1; t <= last; t++) {
+			// 回调中再次调度的已过期条目落在下一个tick,本次推进内仍会处理
+			currentTick = t;
+			int bucket = (int) t & wheelMask;
+			int id = heads[bucket];
+			while (id != NONE) {
+				int following = next[id];
+				if (deadlineTick[id] <= target) {
+					unlink(id, bucket);
+					scheduled--;
+					expired++;
+					handler.expired(id, now);
+				}
+				id = following;
+			}
+		}
+		currentTick = target;
+		return expired;
+	}
+
+	/**
+	 * 已调度的条目数量
+	 */
+	public int size() {
+		return scheduled;
+	}
+
+	public long getTickMs() {
+		return tickMs;
+	}
+
+	private void link(int id, int bucket) {
+		int head = heads[bucket];
+		next[id] = head;
+		prev[id] = NONE;
+		if (head != NONE) {
+			prev[head] = id;
+		}
+		heads[bucket] = id;
+		bucketOf[id] = bucket;
+	}
+
+	private void unlink(int id, int bucket) {
+		int p = prev[id];
+		int n = next[id];
+		if (p != NONE) {
+			next[p] = n;
+		} else {
+			heads[bucket] = n;
+		}
+		if (n != NONE) {
+			prev[n] = p;
+		}
+		bucketOf[id] = NONE;
+	}
+
+	private void ensureCapacity(int required) {
+		int cap = next == null ? 0 : next.length;
+		if (required <= cap) {
+			return;
+		}
+		int newCap = Math.max(16, cap);
+		while (newCap < required) {
+			newCap <<= 1;
+		}
+		next = next == null ? new int[newCap] : Arrays.copyOf(next, newCap);
+		prev = prev == null ? new int[newCap] : Arrays.copyOf(prev, newCap);
+		deadlineTick = deadlineTick == null ? new long[newCap] : Arrays.copyOf(deadlineTick, newCap);
+		int[] b = new int[newCap];
+		Arrays.fill(b, cap, newCap, NONE);
+		if (bucketOf != null) {
+			System.arraycopy(bucketOf, 0, b, 0, cap);
+		}
+		bucketOf = b;
+	}
+}
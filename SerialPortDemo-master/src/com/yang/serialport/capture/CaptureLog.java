@@ -0,0 +1,241 @@
+package com.yang.serialport.capture;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.yang.serialport.manage.DebugSink;
+
+/**
+ * 串口收发数据的抓包日志:每次收到或发出的数据连同纳秒时间戳、串口编号追加到内存映射的分段文件中
+ * 作为DebugSink挂到SerialChannel或SerialPortManager上即可抓取该串口的双向数据;
+ * 追加时只写映射内存,不分配对象,也不逐条刷盘
+ *
+ * 每次打开日志在目录下新建一个子目录run-yyyyMMdd-HHmmss-SSS,不会覆盖以前的抓包,也不会与以前的抓包混在一起
+ * (各次的System.nanoTime基准不同,时间戳不可比较)
+ * 文件: run-.../capture-00000.bin, capture-00001.bin, ...
+ * 段头(32字节): magic "SCAP", 版本, 段号, 保留, 打开日志时的System.currentTimeMillis, 同一时刻的System.nanoTime
+ * 记录: 长度(int) 串口编号(short) 类型(byte) 保留(byte) 时间戳(long, System.nanoTime) 数据
+ * 长度为0表示本段结束(因此不写长度为0的记录);每段开头重新写出所有串口名,单独读取一段也能知道串口名
+ * 换段时解除上一段的映射,长时间抓包不会占住越来越多的地址空间
+ */
+public class CaptureLog implements DebugSink, Closeable {
+
+    static final int MAGIC = 0x53434150;    // "SCAP"
+    static final int VERSION = 1;
+    static final int SEGMENT_HEADER = 32;
+    static final int RECORD_HEADER = 16;
+    static final byte TYPE_RECEIVED = 0;
+    static final byte TYPE_SENT = 1;
+    static final byte TYPE_PORT_NAME = 2;
+    static final String RUN_PREFIX = "run-";
+
+    private final File dir;
+    private final int segmentSize;
+    private final long epochMillis = System.currentTimeMillis();
+    private final long nanoBase = System.nanoTime();
+    private final Map<String, Integer> portIds = new HashMap<>();
+    private final List<byte[]> portNames = new ArrayList<>();
+
+    private MappedByteBuffer segment;
+    private int segmentIndex = -1;
+    private long records;
+    private long bytes;
+    private boolean closed;
+
+    /**
+     * @param dir         日志目录,不存在时创建;本次抓包写在其下新建的run-子目录中(见getDir)
+     * @param segmentSize 每段文件大小
+     */
+    public CaptureLog(File dir, int segmentSize) throws IOException {
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("cannot create " + dir);
+        }
+        String name = RUN_PREFIX + new SimpleDateFormat("yyyyMMdd-HHmmss-SSS").format(new Date(epochMillis));
+        File run = new File(dir, name);
+        for (int i = 1; !run.mkdir(); i++) {
+            if (!run.exists()) {
+                throw new IOException("cannot create " + run);
+            }
+            run = new File(dir, name + "-" + i);
+        }
+        this.dir = run;
+        this.segmentSize = segmentSize;
+        roll(0);
+    }
+
+    public CaptureLog(File dir) throws IOException {
+        this(dir, 16 << 20);
+    }
+
+    /**
+     * 取得串口的编号,第一次出现时记下串口名
+     */
+    public synchronized int portId(String portName) {
+        Integer id = portIds.get(portName);
+        if (id == null) {
+            if (portName.isEmpty()) {
+                throw new IllegalArgumentException("empty port name");
+            }
+            id = portNames.size();
+            byte[] name = portName.getBytes(StandardCharsets.UTF_8);
+            portIds.put(portName, id);
+            portNames.add(name);
+            append(id, TYPE_PORT_NAME, System.nanoTime(), name, 0, name.length);
+        }
+        return id;
+    }
+
+    @Override
+    public void onBytes(String portName, boolean sent, byte[] buf, int off, int len) {
+        append(portId(portName), sent, buf, off, len);
+    }
+
+    /**
+     * 追加一条收发记录
+     */
+    public synchronized void append(int portId, boolean sent, byte[] buf, int off, int len) {
+        if (len > 0) {
+            append(portId, sent ? TYPE_SENT : TYPE_RECEIVED, System.nanoTime(), buf, off, len);
+            records++;
+            bytes += len;
+        }
+    }
+
+    private void append(int portId, byte type, long nanos, byte[] buf, int off, int len) {
+        if (len <= 0) {
+            // 长度0是段尾标记
+            throw new IllegalArgumentException("empty record");
+        }
+        if (closed) {
+            return;
+        }
+        // 末尾留出长度为0的结束标记
+        if (segment.remaining() < RECORD_HEADER + len + 4) {
+            try {
+                roll(RECORD_HEADER + len + 4);
+            } catch (IOException e) {
+                System.err.println("capture stopped: " + e);
+                closed = true;
+                return;
+            }
+        }
+        segment.putInt(len);
+        segment.putShort((short) portId);
+        segment.put(type);
+        segment.put((byte) 0);
+        segment.putLong(nanos);
+        segment.put(buf, off, len);
+    }
+
+    /**
+     * 换到下一段,段大小至少能放下needed字节的记录
+     */
+    private void roll(int needed) throws IOException {
+        if (segment != null) {
+            segment.putInt(0);
+            segment.force();
+            unmap(segment);
+            segment = null;
+        }
+        segmentIndex++;
+        int size = SEGMENT_HEADER + needed;
+        for (byte[] name : portNames) {
+            size += RECORD_HEADER + name.length;
+        }
+        size = Math.max(segmentSize, size);
+        File file = new File(dir, segmentName(segmentIndex));
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(0);
+            segment = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+        segment.putInt(MAGIC);
+        segment.putInt(VERSION);
+        segment.putInt(segmentIndex);
+        segment.putInt(0);
+        segment.putLong(epochMillis);
+        segment.putLong(nanoBase);
+        for (int id = 0; id < portNames.size(); id++) {
+            byte[] name = portNames.get(id);
+            append(id, TYPE_PORT_NAME, System.nanoTime(), name, 0, name.length);
+        }
+    }
+
+    static String segmentName(int index) {
+        return String.format("capture-%05d.bin", index);
+    }
+
+    /**
+     * 立即解除映射(不等GC),之后不能再访问buffer;不支持时什么也不做,由GC回收
+     */
+    static void unmap(MappedByteBuffer buffer) {
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field f = unsafeClass.getDeclaredField("theUnsafe");
+            f.setAccessible(true);
+            Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            invokeCleaner.invoke(f.get(null), buffer);
+        } catch (ReflectiveOperationException | RuntimeException ignored) {
+        }
+    }
+
+    /**
+     * 把已写入的数据刷到磁盘
+     */
+    public synchronized void force() {
+        if (!closed) {
+            segment.force();
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (!closed) {
+            segment.putInt(0);
+            segment.force();
+            closed = true;
+            unmap(segment);
+            segment = null;
+        }
+    }
+
+    public File getDir() {
+        return dir;
+    }
+
+    public synchronized long getRecords() {
+        return records;
+    }
+
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    public synchronized int getSegments() {
+        return segmentIndex + 1;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "CaptureLog{" +
+                "dir=" + dir +
+                ", records=" + records +
+                ", bytes=" + bytes +
+                ", segments=" + (segmentIndex + 1) +
+                ", ports=" + portNames.size() +
+                '}';
+    }
+}
@@ -0,0 +1,187 @@
+package com.yang.serialport.capture;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 按顺序读取CaptureLog写下的收发记录
+ * next()移到下一条收发记录,串口名记录在内部处理;数据用getPayload拷贝到调用方的缓冲区
+ * 目录可以是一次抓包的run-子目录,也可以是传给CaptureLog的目录(此时读最近一次抓包);
+ * 只读同一次抓包的段,遇到时间基准不同的段即结束
+ */
+public class CaptureReader implements Closeable {
+
+    private final File[] files;
+    private final List<String> portNames = new ArrayList<>();
+    private int fileIndex = -1;
+    private MappedByteBuffer segment;
+    private ByteBuffer payloadView;     // 同一段的另一个视图,拷贝数据时不改变segment的位置
+    private long epochMillis;
+    private long nanoBase;
+
+    private int length;
+    private int portId;
+    private byte type;
+    private long timestampNanos;
+    private int payloadPosition;
+
+    public CaptureReader(File dir) throws IOException {
+        File[] runs = dir.listFiles(new FilenameFilter() {
+            @Override
+            public boolean accept(File d, String name) {
+                return name.startsWith(CaptureLog.RUN_PREFIX) && new File(d, name).isDirectory();
+            }
+        });
+        if (runs != null && runs.length > 0) {
+            // 名字按时间排序,最后一个是最近一次
+            Arrays.sort(runs);
+            dir = runs[runs.length - 1];
+        }
+        files = dir.listFiles(new FilenameFilter() {
+            @Override
+            public boolean accept(File d, String name) {
+                return name.startsWith("capture-") && name.endsWith(".bin");
+            }
+        });
+        if (files == null || files.length == 0) {
+            throw new IOException("no capture segments in " + dir);
+        }
+        Arrays.sort(files);
+        openNext();
+    }
+
+    private boolean openNext() throws IOException {
+        if (segment != null) {
+            CaptureLog.unmap(segment);
+            segment = null;
+            payloadView = null;
+        }
+        if (++fileIndex >= files.length) {
+            return false;
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(files[fileIndex], "r")) {
+            segment = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length());
+        }
+        payloadView = segment.duplicate();
+        if (segment.remaining() < CaptureLog.SEGMENT_HEADER || segment.getInt() != CaptureLog.MAGIC) {
+            throw new IOException("not a capture segment: " + files[fileIndex]);
+        }
+        int version = segment.getInt();
+        if (version != CaptureLog.VERSION) {
+            throw new IOException("unsupported capture version " + version + ": " + files[fileIndex]);
+        }
+        segment.getInt();
+        segment.getInt();
+        long millis = segment.getLong();
+        long base = segment.getLong();
+        if (fileIndex > 0 && (millis != epochMillis || base != nanoBase)) {
+            // 另一次抓包留下的段,时间戳不能接着比较
+            CaptureLog.unmap(segment);
+            segment = null;
+            payloadView = null;
+            fileIndex = files.length;
+            return false;
+        }
+        epochMillis = millis;
+        nanoBase = base;
+        return true;
+    }
+
+    /**
+     * 移到下一条收发记录
+     *
+     * @return 没有更多记录时返回false
+     */
+    public boolean next() throws IOException {
+        while (segment != null) {
+            if (payloadPosition > 0) {
+                segment.position(payloadPosition + length);
+                payloadPosition = 0;
+            }
+            // 长度为0是段尾;超出文件的长度是写入时中断留下的不完整记录,同样当作段尾
+            if (segment.remaining() < CaptureLog.RECORD_HEADER || (length = segment.getInt()) <= 0
+                    || length > segment.remaining() - (CaptureLog.RECORD_HEADER - 4)) {
+                openNext();
+                continue;
+            }
+            portId = segment.getShort();
+            type = segment.get();
+            segment.get();
+            timestampNanos = segment.getLong();
+            payloadPosition = segment.position();
+            if (type == CaptureLog.TYPE_PORT_NAME) {
+                byte[] name = new byte[length];
+                segment.get(name);
+                payloadPosition = 0;
+                while (portNames.size() <= portId) {
+                    portNames.add(null);
+                }
+                portNames.set(portId, new String(name, StandardCharsets.UTF_8));
+                continue;
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 当前记录的数据长度
+     */
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * 把当前记录的数据拷贝到dst[off, off + getLength())
+     */
+    public void getPayload(byte[] dst, int off) {
+        payloadView.position(payloadPosition);
+        payloadView.get(dst, off, length);
+    }
+
+    public int getPortId() {
+        return portId;
+    }
+
+    public String getPortName() {
+        return portId < portNames.size() ? portNames.get(portId) : null;
+    }
+
+    public boolean isSent() {
+        return type == CaptureLog.TYPE_SENT;
+    }
+
+    /**
+     * 记录时的System.nanoTime,只在同一次抓包内可比较
+     */
+    public long getTimestampNanos() {
+        return timestampNanos;
+    }
+
+    /**
+     * 记录时的墙上时间(毫秒)
+     */
+    public long getEpochMillis() {
+        return epochMillis + (timestampNanos - nanoBase) / 1000000;
+    }
+
+    @Override
+    public void close() {
+        if (segment != null) {
+            CaptureLog.unmap(segment);
+        }
+        segment = null;
+        payloadView = null;
+        fileIndex = files.length;
+    }
+}
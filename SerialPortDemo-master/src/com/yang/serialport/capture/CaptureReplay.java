@@ -0,0 +1,139 @@
+package com.yang.serialport.capture;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import com.yang.serialport.manage.OnDataListener;
+
+/**
+ * 把抓包日志按原来的时间间隔重新送给解码器(如FrameDecoder),用于离线复现和压测
+ * speed为1时按原速,N为N倍速,0为不等待(最快)
+ * 收到的数据按串口名交给setListener设置的监听器,发出的数据交给setSentListener设置的监听器,
+ * 没有监听器的串口跳过;回调在调用run的线程上执行,数据缓冲区复用
+ */
+public class CaptureReplay {
+
+    private final File dir;
+    private final Map<String, OnDataListener> listeners = new HashMap<>();
+    private final Map<String, OnDataListener> sentListeners = new HashMap<>();
+    private double speed = 1;
+    private byte[] buffer = new byte[1024];
+
+    private long chunks;
+    private long bytes;
+    private long elapsedNanos;
+    private long maxLagNanos;
+    private long capturedNanos;
+
+    public CaptureReplay(File dir) {
+        this.dir = dir;
+    }
+
+    /**
+     * 回放速度,1为原速,0为最快
+     */
+    public void setSpeed(double speed) {
+        if (speed < 0) {
+            throw new IllegalArgumentException("speed must not be negative");
+        }
+        this.speed = speed;
+    }
+
+    /**
+     * 该串口收到的数据交给listener
+     */
+    public void setListener(String portName, OnDataListener listener) {
+        listeners.put(portName, listener);
+    }
+
+    /**
+     * 该串口发出的数据交给listener
+     */
+    public void setSentListener(String portName, OnDataListener listener) {
+        sentListeners.put(portName, listener);
+    }
+
+    /**
+     * 回放整个日志,返回时已送完所有记录
+     */
+    public void run() throws IOException {
+        chunks = 0;
+        bytes = 0;
+        maxLagNanos = 0;
+        long start = System.nanoTime();
+        long first = 0;
+        try (CaptureReader reader = new CaptureReader(dir)) {
+            while (reader.next()) {
+                OnDataListener listener = (reader.isSent() ? sentListeners : listeners).get(reader.getPortName());
+                if (listener == null) {
+                    continue;
+                }
+                long offset = chunks == 0 ? 0 : reader.getTimestampNanos() - first;
+                if (chunks == 0) {
+                    first = reader.getTimestampNanos();
+                }
+                if (speed > 0) {
+                    long due = start + (long) (offset / speed);
+                    long now = System.nanoTime();
+                    while (now < due) {
+                        LockSupport.parkNanos(due - now);
+                        now = System.nanoTime();
+                    }
+                    maxLagNanos = Math.max(maxLagNanos, now - due);
+                }
+                int len = reader.getLength();
+                if (len > buffer.length) {
+                    buffer = new byte[Math.max(len, buffer.length * 2)];
+                }
+                reader.getPayload(buffer, 0);
+                listener.onData(buffer, 0, len);
+                chunks++;
+                bytes += len;
+                capturedNanos = offset;
+            }
+        }
+        elapsedNanos = System.nanoTime() - start;
+    }
+
+    public long getChunks() {
+        return chunks;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    public long getElapsedMs() {
+        return TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+    }
+
+    /**
+     * 回放的记录在抓包时跨越的时间
+     */
+    public long getCapturedMs() {
+        return TimeUnit.NANOSECONDS.toMillis(capturedNanos);
+    }
+
+    /**
+     * 按速度计算的送出时间与实际送出时间的最大差距
+     */
+    public double getMaxLagMs() {
+        return maxLagNanos / 1e6;
+    }
+
+    @Override
+    public String toString() {
+        return "CaptureReplay{" +
+                "speed=" + (speed > 0 ? speed + "x" : "max") +
+                ", chunks=" + chunks +
+                ", bytes=" + bytes +
+                ", capturedMs=" + getCapturedMs() +
+                ", elapsedMs=" + getElapsedMs() +
+                ", maxLagMs=" + String.format("%.2f", getMaxLagMs()) +
+                '}';
+    }
+}
@@ -0,0 +1,181 @@
+package com.yang.serialport.frame;
+
+/**
+ * 定长帧的流式解码器
+ * 串口每次DATA_AVAILABLE读到的字节数不固定:一帧可能分在两次事件里,也可能几帧连在一起,
+ * 这里把读到的字节依次放进复用的环形缓冲区,按帧头对齐,凑够一帧且帧尾正确时回调,
+ * 帧头或帧尾不对时丢弃一个字节重新找帧头
+ * 没有帧头时只按长度切分,每凑够frameLength个字节回调一帧,对齐靠调用方在帧间隔处reset
+ *
+ * 只能由一个线程调用feed(串口事件线程),统计值可以在其他线程读取
+ */
+public class FrameDecoder {
+
+    private final byte[] header;
+    private final byte[] trailer;
+    private final int frameLength;
+
+    private final byte[] ring;          // 环形缓冲区,长度为2的幂
+    private final int mask;
+    private final byte[] frame;         // 回调用的连续帧,复用
+    private long head;                  // 读位置
+    private long tail;                  // 写位置
+    private boolean inSync = true;
+
+    private volatile long framesDecoded;
+    private volatile long bytesDiscarded;
+    private volatile long resyncs;
+
+    private OnFrameListener listener;
+
+    /**
+     * @param header      帧头,null或空表示没有帧头
+     * @param trailer     帧尾,null表示不校验帧尾
+     * @param frameLength 帧长度(含帧头帧尾)
+     * @param capacity    缓冲区大小,不足2帧时按2帧
+     */
+    public FrameDecoder(byte[] header, byte[] trailer, int frameLength, int capacity) {
+        if (header == null) {
+            header = new byte[0];
+        }
+        int trailerLength = trailer != null ? trailer.length : 0;
+        if (frameLength < 1 || frameLength < header.length + trailerLength) {
+            throw new IllegalArgumentException("frameLength too small: " + frameLength);
+        }
+        this.header = header.clone();
+        this.trailer = trailer != null ? trailer.clone() : null;
+        this.frameLength = frameLength;
+        int size = Integer.highestOneBit(Math.max(capacity, 2 * frameLength) - 1) << 1;
+        this.ring = new byte[size];
+        this.mask = size - 1;
+        this.frame = new byte[frameLength];
+    }
+
+    public void setOnFrameListener(OnFrameListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * 放入读到的字节并解出其中所有完整的帧
+     *
+     * @return 本次解出的帧数
+     */
+    public int feed(byte[] data, int off, int len) {
+        int decoded = 0;
+        while (len > 0) {
+            // 每次处理后剩余不足一帧,至少能再放入capacity - frameLength个字节
+            int n = Math.min(len, ring.length - (int) (tail - head));
+            int pos = (int) (tail & mask);
+            int first = Math.min(n, ring.length - pos);
+            System.arraycopy(data, off, ring, pos, first);
+            System.arraycopy(data, off + first, ring, 0, n - first);
+            tail += n;
+            off += n;
+            len -= n;
+            decoded += process();
+        }
+        return decoded;
+    }
+
+    public int feed(byte[] data) {
+        return data != null ? feed(data, 0, data.length) : 0;
+    }
+
+    private int process() {
+        int decoded = 0;
+        while (tail - head >= header.length) {
+            if (!matches(head, header)) {
+                discard();
+                continue;
+            }
+            if (tail - head < frameLength) {
+                break;
+            }
+            if (trailer != null && !matches(head + frameLength - trailer.length, trailer)) {
+                // 帧头是数据中碰巧出现的字节,或者这一帧不完整
+                discard();
+                continue;
+            }
+            int pos = (int) (head & mask);
+            int first = Math.min(frameLength, ring.length - pos);
+            System.arraycopy(ring, pos, frame, 0, first);
+            System.arraycopy(ring, 0, frame, first, frameLength - first);
+            head += frameLength;
+            inSync = true;
+            framesDecoded++;
+            decoded++;
+            if (listener != null) {
+                listener.onFrame(frame, 0, frameLength);
+            }
+        }
+        return decoded;
+    }
+
+    private boolean matches(long at, byte[] pattern) {
+        for (int i = 0; i < pattern.length; i++) {
+            if (ring[(int) ((at + i) & mask)] != pattern[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void discard() {
+        head++;
+        bytesDiscarded++;
+        if (inSync) {
+            inSync = false;
+            resyncs++;
+        }
+    }
+
+    /**
+     * 清空缓冲区(如重新打开串口后),统计值保留
+     */
+    public void reset() {
+        head = tail;
+        inSync = true;
+    }
+
+    public int getFrameLength() {
+        return frameLength;
+    }
+
+    /**
+     * 已解出的帧数
+     */
+    public long getFramesDecoded() {
+        return framesDecoded;
+    }
+
+    /**
+     * 因帧头/帧尾不对丢弃的字节数
+     */
+    public long getBytesDiscarded() {
+        return bytesDiscarded;
+    }
+
+    /**
+     * 失去同步(开始丢弃字节)的次数
+     */
+    public long getResyncs() {
+        return resyncs;
+    }
+
+    /**
+     * 缓冲区中尚未组成完整帧的字节数
+     */
+    public int getBuffered() {
+        return (int) (tail - head);
+    }
+
+    @Override
+    public String toString() {
+        return "FrameDecoder{" +
+                "frames=" + framesDecoded +
+                ", discarded=" + bytesDiscarded +
+                ", resyncs=" + resyncs +
+                ", buffered=" + getBuffered() +
+                '}';
+    }
+}
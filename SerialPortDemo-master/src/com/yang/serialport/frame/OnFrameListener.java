@@ -0,0 +1,13 @@
+package com.yang.serialport.frame;
+
+/**
+ * 完整帧回调
+ */
+public interface OnFrameListener {
+
+    /**
+     * 解出一帧,frame[off, off + len)为包含帧头帧尾的完整帧
+     * frame是解码器复用的缓冲区,只在回调期间有效,需要保留时自行拷贝
+     */
+    void onFrame(byte[] frame, int off, int len);
+}
@@ -0,0 +1,16 @@
+package com.yang.serialport.manage;
+
+/**
+ * 串口收发数据的调试输出
+ * 只有设置了DebugSink才会把数据交给它,16进制格式化由实现自己决定是否进行(见HexDebugSink),
+ * 正常收发路径上不做格式化
+ */
+public interface DebugSink {
+
+    /**
+     * buf[off, off + len)只在调用期间有效
+     *
+     * @param sent true为发送,false为接收
+     */
+    void onBytes(String portName, boolean sent, byte[] buf, int off, int len);
+}
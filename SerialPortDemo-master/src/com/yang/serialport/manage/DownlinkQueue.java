@@ -0,0 +1,260 @@
+package com.yang.serialport.manage;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 一个串口的下行命令队列
+ * 1. 合并:带key的命令会替换队列中同一key尚未发出的命令(如LED状态,只有最后一条有意义);
+ *    不带key的命令与队尾相同时丢弃
+ * 2. 去重:带key的命令与该key上次发出的命令相同且在resendInterval之内时丢弃;
+ *    该key有尚未发出的命令时,与上次发出的相同且在resendInterval之内即撤掉那条命令(对端状态已经是这条命令),
+ *    否则只替换那条命令的数据
+ * 3. 批量:drain把可发送的命令拼进同一个缓冲区,由调用方一次write + flush
+ * 4. 限速:按字节/秒的令牌桶,超出时命令留在队列中,下次drain再发
+ * 命令放入队列后不能再修改
+ */
+public class DownlinkQueue {
+
+    private final ArrayDeque<Pending> queue = new ArrayDeque<>();
+    private final Map<Object, Pending> pendingByKey = new HashMap<>();
+    private final Map<Object, Sent> lastSent = new HashMap<>();
+    private byte[] batch = new byte[256];
+
+    private long bytesPerSecond;        // 0为不限速
+    private long burstBytes;
+    private double tokens;
+    private long lastRefillNanos = System.nanoTime();
+    private long resendIntervalNanos;
+
+    private long offered;
+    private long sent;
+    private long bytesSent;
+    private long collapsed;
+    private long suppressed;
+    private long bytesSaved;
+    private long batches;
+    private long totalLatencyNanos;
+    private long maxLatencyNanos;
+
+    /**
+     * 限速,bytesPerSecond为0时不限
+     *
+     * @param burstBytes 空闲后允许连续发送的字节数
+     */
+    public synchronized void setRateLimit(long bytesPerSecond, long burstBytes) {
+        this.bytesPerSecond = bytesPerSecond;
+        this.burstBytes = Math.max(1, burstBytes);
+        this.tokens = this.burstBytes;
+        this.lastRefillNanos = System.nanoTime();
+    }
+
+    /**
+     * 与上次发出的相同的带key命令,在这个间隔内不再发送;0为总是发送
+     */
+    public synchronized void setResendIntervalMs(long resendIntervalMs) {
+        this.resendIntervalNanos = TimeUnit.MILLISECONDS.toNanos(resendIntervalMs);
+    }
+
+    /**
+     * 放入队列
+     *
+     * @param key 同一key的命令互相替代,null为独立的命令
+     * @return 是否会发送(被合并到队列中的命令也算),false表示与已发出或队尾的命令重复而丢弃
+     */
+    public synchronized boolean offer(byte[] command, Object key) {
+        long now = System.nanoTime();
+        offered++;
+        if (key == null) {
+            Pending last = queue.peekLast();
+            if (last != null && last.key == null && Arrays.equals(last.data, command)) {
+                collapsed++;
+                bytesSaved += command.length;
+                return true;
+            }
+            queue.addLast(new Pending(command, null, now));
+            return true;
+        }
+        Pending pending = pendingByKey.get(key);
+        Sent previous = lastSent.get(key);
+        if (pending != null) {
+            collapsed++;
+            bytesSaved += pending.data.length;
+            if (previous != null && resendIntervalNanos > 0 && now - previous.at < resendIntervalNanos
+                    && Arrays.equals(previous.data, command)) {
+                // 如已发RED、排队GREEN、又来RED:撤掉GREEN,对端仍是RED,不必再发;超过resendInterval则照常重发
+                queue.remove(pending);
+                pendingByKey.remove(key);
+                suppressed++;
+                bytesSaved += command.length;
+                return false;
+            }
+            // 替换尚未发出的命令,保留原来的排队位置和时间
+            pending.data = command;
+            return true;
+        }
+        if (previous != null && resendIntervalNanos > 0 && now - previous.at < resendIntervalNanos
+                && Arrays.equals(previous.data, command)) {
+            suppressed++;
+            bytesSaved += command.length;
+            return false;
+        }
+        pending = new Pending(command, key, now);
+        queue.addLast(pending);
+        pendingByKey.put(key, pending);
+        return true;
+    }
+
+    /**
+     * 取出当前可以发送的命令拼成一批,数据在getBatch()[0, 返回值)
+     * 限速时取出的字节数不超过令牌数,至少取出一条命令要等令牌攒够
+     *
+     * @return 这一批的字节数,0为没有可发送的
+     */
+    synchronized int drain() {
+        if (queue.isEmpty()) {
+            return 0;
+        }
+        long now = System.nanoTime();
+        if (bytesPerSecond > 0) {
+            tokens = Math.min(burstBytes, tokens + (now - lastRefillNanos) * bytesPerSecond / 1e9);
+            lastRefillNanos = now;
+        }
+        int n = 0;
+        Pending p;
+        while ((p = queue.peekFirst()) != null) {
+            int len = p.data.length;
+            // 超过桶容量的命令等桶满时发送
+            if (bytesPerSecond > 0 && tokens < Math.min(len, burstBytes)) {
+                break;
+            }
+            queue.pollFirst();
+            if (p.key != null) {
+                pendingByKey.remove(p.key);
+                lastSent.put(p.key, new Sent(p.data, now));
+            }
+            if (n + len > batch.length) {
+                batch = Arrays.copyOf(batch, Math.max(batch.length * 2, n + len));
+            }
+            System.arraycopy(p.data, 0, batch, n, len);
+            n += len;
+            tokens -= len;
+            sent++;
+            long latency = now - p.enqueuedAt;
+            totalLatencyNanos += latency;
+            maxLatencyNanos = Math.max(maxLatencyNanos, latency);
+        }
+        if (n > 0) {
+            bytesSent += n;
+            batches++;
+        }
+        return n;
+    }
+
+    /**
+     * drain取出的数据,只在下一次drain之前有效(由I/O线程使用)
+     */
+    synchronized byte[] getBatch() {
+        return batch;
+    }
+
+    synchronized void clear() {
+        queue.clear();
+        pendingByKey.clear();
+    }
+
+    public synchronized int size() {
+        return queue.size();
+    }
+
+    public synchronized long getOffered() {
+        return offered;
+    }
+
+    public synchronized long getSent() {
+        return sent;
+    }
+
+    public synchronized long getBytesSent() {
+        return bytesSent;
+    }
+
+    /**
+     * 被合并(替换或与队尾相同)的命令数
+     */
+    public synchronized long getCollapsed() {
+        return collapsed;
+    }
+
+    /**
+     * 与上次发出的相同而丢弃的命令数
+     */
+    public synchronized long getSuppressed() {
+        return suppressed;
+    }
+
+    /**
+     * 合并和去重省下的字节数
+     */
+    public synchronized long getBytesSaved() {
+        return bytesSaved;
+    }
+
+    /**
+     * write + flush的次数
+     */
+    public synchronized long getBatches() {
+        return batches;
+    }
+
+    /**
+     * 命令从放入队列到写出的平均时间
+     */
+    public synchronized double getAvgLatencyMs() {
+        return sent > 0 ? totalLatencyNanos / 1e6 / sent : 0;
+    }
+
+    public synchronized double getMaxLatencyMs() {
+        return maxLatencyNanos / 1e6;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "DownlinkQueue{" +
+                "queued=" + queue.size() +
+                ", offered=" + offered +
+                ", sent=" + sent +
+                ", batches=" + batches +
+                ", bytesSent=" + bytesSent +
+                ", collapsed=" + collapsed +
+                ", suppressed=" + suppressed +
+                ", bytesSaved=" + bytesSaved +
+                ", latencyMs(avg/max)=" + String.format("%.2f/%.2f", getAvgLatencyMs(), getMaxLatencyMs()) +
+                '}';
+    }
+
+    private static final class Pending {
+        byte[] data;
+        final Object key;
+        final long enqueuedAt;
+
+        Pending(byte[] data, Object key, long enqueuedAt) {
+            this.data = data;
+            this.key = key;
+            this.enqueuedAt = enqueuedAt;
+        }
+    }
+
+    private static final class Sent {
+        final byte[] data;
+        final long at;
+
+        Sent(byte[] data, long at) {
+            this.data = data;
+            this.at = at;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.yang.serialport.manage;
+
+import java.io.PrintStream;
+
+import com.yang.serialport.utils.HexDump;
+
+/**
+ * 把收发数据以16进制逐行打印,复用同一个StringBuilder
+ */
+public class HexDebugSink implements DebugSink {
+
+    private final PrintStream out;
+    private final StringBuilder line = new StringBuilder(256);
+
+    public HexDebugSink(PrintStream out) {
+        this.out = out;
+    }
+
+    @Override
+    public synchronized void onBytes(String portName, boolean sent, byte[] buf, int off, int len) {
+        line.setLength(0);
+        line.append(portName).append(sent ? " >> " : " << ");
+        HexDump.append(line, buf, off, len, true);
+        out.println(line);
+    }
+}
@@ -0,0 +1,12 @@
+package com.yang.serialport.manage;
+
+/**
+ * SerialPortManager收到数据的回调,在RXTX事件线程上执行
+ */
+public interface OnDataListener {
+
+    /**
+     * buf是复用的接收缓冲区,buf[off, off + len)只在回调期间有效,需要保留时自行拷贝
+     */
+    void onData(byte[] buf, int off, int len);
+}
@@ -0,0 +1,16 @@
+package com.yang.serialport.manage;
+
+import java.util.List;
+
+/**
+ * SerialPortRegistry扫描到串口增减时的回调,在扫描线程上执行
+ */
+public interface OnPortsChangedListener {
+
+    /**
+     * @param ports   扫描后的全部串口名
+     * @param added   新出现的串口名
+     * @param removed 消失的串口名
+     */
+    void onPortsChanged(List<String> ports, List<String> added, List<String> removed);
+}
@@ -0,0 +1,20 @@
+package com.yang.serialport.manage;
+
+import java.io.IOException;
+
+/**
+ * 串口数据处理器,由SerialIoEngine的I/O线程调用
+ */
+public interface PortHandler {
+
+    /**
+     * 收到数据,buf[off, off + len)只在回调期间有效
+     * 回调在I/O线程上执行,同一线程还负责其他串口,不要在这里阻塞
+     */
+    void onData(SerialChannel channel, byte[] buf, int off, int len);
+
+    /**
+     * 读写失败,串口随后被关闭
+     */
+    void onError(SerialChannel channel, IOException e);
+}
@@ -0,0 +1,274 @@
+package com.yang.serialport.manage;
+
+import gnu.io.SerialPort;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * SerialIoEngine管理的一个串口
+ * 读取和写出都在所属的I/O线程上进行:收到的数据读入本串口复用的缓冲区后交给PortHandler(不拷贝、不转字符串),
+ * write只把数据放入本串口的下行队列(DownlinkQueue,负责合并与限速),由I/O线程成批写出并flush
+ */
+public class SerialChannel {
+
+    private final SerialIoEngine engine;
+    private final String name;
+    private final SerialPort serialPort;        // 用流注册的串口为null
+    private final InputStream inputStream;
+    private final OutputStream outputStream;
+    private final PortHandler handler;
+    private final byte[] readBuffer;
+    private final DownlinkQueue downlink = new DownlinkQueue();
+
+    volatile SerialIoEngine.IoWorker worker;
+    private volatile boolean open = true;
+    private volatile boolean closeRequested;
+    private volatile IOException failure;
+    private volatile DebugSink debugSink;
+
+    private volatile long bytesRead;
+    private volatile long bytesWritten;
+    private volatile long reads;
+    private volatile long flushes;
+    private volatile long handlerErrors;    // 处理器和DebugSink抛出的异常数
+    private volatile long lastReadNanos;
+
+    SerialChannel(SerialIoEngine engine, String name, SerialPort serialPort, InputStream inputStream,
+            OutputStream outputStream, PortHandler handler, int readBufferSize) {
+        this.engine = engine;
+        this.name = name;
+        this.serialPort = serialPort;
+        this.inputStream = inputStream;
+        this.outputStream = outputStream;
+        this.handler = handler;
+        this.readBuffer = new byte[readBufferSize];
+        this.lastReadNanos = System.nanoTime();
+    }
+
+    /**
+     * 放入发送队列,由I/O线程异步写出;串口已关闭时返回false
+     * data放入队列后不能再修改
+     */
+    public boolean write(byte[] data) {
+        return write(data, null);
+    }
+
+    /**
+     * 放入发送队列,同一key的命令互相替代(见DownlinkQueue.offer)
+     *
+     * @return 串口已关闭或命令与上次发出的重复时返回false
+     */
+    public boolean write(byte[] data, Object key) {
+        if (!open || closeRequested || outputStream == null) {
+            return false;
+        }
+        if (!downlink.offer(data, key)) {
+            return false;
+        }
+        wakeup();
+        return true;
+    }
+
+    /**
+     * 本串口的下行队列,用于设置限速/去重和读取统计
+     */
+    public DownlinkQueue getDownlink() {
+        return downlink;
+    }
+
+    /**
+     * 设置收发数据的调试输出,null为关闭
+     */
+    public void setDebugSink(DebugSink debugSink) {
+        this.debugSink = debugSink;
+    }
+
+    /**
+     * 请求关闭,I/O线程写完已排队的数据后关闭串口
+     */
+    public void close() {
+        engine.close(this);
+    }
+
+    void requestClose() {
+        closeRequested = true;
+        wakeup();
+    }
+
+    boolean isCloseRequested() {
+        return closeRequested;
+    }
+
+    /**
+     * 唤醒I/O线程马上检查本串口;register的串口没有RXTX的数据通知,数据源可以在有数据时调用,否则按轮询间隔检查
+     */
+    public void wakeup() {
+        SerialIoEngine.IoWorker w = worker;
+        if (w != null) {
+            w.wakeup();
+        }
+    }
+
+    /**
+     * 有数据时读一次(最多一个缓冲区)并交给处理器,一个串口数据很多时也不会占住I/O线程
+     *
+     * @return 读到的字节数
+     */
+    int pollRead() throws IOException {
+        int available = inputStream.available();
+        if (available <= 0) {
+            return 0;
+        }
+        int n = inputStream.read(readBuffer, 0, Math.min(available, readBuffer.length));
+        if (n < 0) {
+            throw new IOException(name + ": end of stream");
+        }
+        if (n == 0) {
+            return 0;
+        }
+        bytesRead += n;
+        reads++;
+        lastReadNanos = System.nanoTime();
+        try {
+            handler.onData(this, readBuffer, 0, n);
+        } catch (RuntimeException e) {
+            handlerErrors++;
+            e.printStackTrace();
+        }
+        debug(false, readBuffer, n);
+        return n;
+    }
+
+    /**
+     * 写出队列中当前可以发送的命令,一次write + flush
+     *
+     * @return 写出的字节数
+     */
+    int flushWrites() throws IOException {
+        int n = downlink.drain();
+        if (n == 0) {
+            return 0;
+        }
+        byte[] data = downlink.getBatch();
+        outputStream.write(data, 0, n);
+        outputStream.flush();
+        bytesWritten += n;
+        flushes++;
+        debug(true, data, n);
+        return n;
+    }
+
+    /**
+     * 交给DebugSink;与处理器一样,它抛出的异常不能让I/O线程退出
+     */
+    private void debug(boolean sent, byte[] buf, int n) {
+        DebugSink sink = debugSink;
+        if (sink == null) {
+            return;
+        }
+        try {
+            sink.onBytes(name, sent, buf, 0, n);
+        } catch (RuntimeException e) {
+            handlerErrors++;
+            e.printStackTrace();
+        }
+    }
+
+    void fail(IOException e) {
+        failure = e;
+        try {
+            handler.onError(this, e);
+        } catch (RuntimeException ex) {
+            handlerErrors++;
+            ex.printStackTrace();
+        }
+    }
+
+    void closeResources() {
+        open = false;
+        downlink.clear();
+        try {
+            inputStream.close();
+        } catch (IOException ignored) {
+        }
+        if (outputStream != null) {
+            try {
+                outputStream.close();
+            } catch (IOException ignored) {
+            }
+        }
+        if (serialPort != null) {
+            serialPort.removeEventListener();
+            serialPort.close();
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * RXTX串口,用流注册的串口返回null
+     */
+    public SerialPort getSerialPort() {
+        return serialPort;
+    }
+
+    public boolean isOpen() {
+        return open;
+    }
+
+    /**
+     * 导致串口关闭的读写错误,没有则为null
+     */
+    public IOException getFailure() {
+        return failure;
+    }
+
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    public long getReads() {
+        return reads;
+    }
+
+    public long getFlushes() {
+        return flushes;
+    }
+
+    public long getHandlerErrors() {
+        return handlerErrors;
+    }
+
+    /**
+     * 最近一次读到数据的时间(System.nanoTime)
+     */
+    public long getLastReadNanos() {
+        return lastReadNanos;
+    }
+
+    public int getQueuedWrites() {
+        return downlink.size();
+    }
+
+    @Override
+    public String toString() {
+        return "SerialChannel{" +
+                "name=" + name +
+                ", open=" + open +
+                ", bytesRead=" + bytesRead +
+                ", reads=" + reads +
+                ", bytesWritten=" + bytesWritten +
+                ", flushes=" + flushes +
+                ", handlerErrors=" + handlerErrors +
+                (failure != null ? ", failure=" + failure.getMessage() : "") +
+                '}';
+    }
+}
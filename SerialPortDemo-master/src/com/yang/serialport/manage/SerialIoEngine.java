@@ -0,0 +1,275 @@
+package com.yang.serialport.manage;
+
+import gnu.io.CommPort;
+import gnu.io.CommPortIdentifier;
+import gnu.io.PortInUseException;
+import gnu.io.SerialPort;
+import gnu.io.SerialPortEvent;
+import gnu.io.SerialPortEventListener;
+import gnu.io.UnsupportedCommOperationException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TooManyListenersException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import com.yang.serialport.exception.NoSuchPort;
+import com.yang.serialport.exception.NotASerialPort;
+import com.yang.serialport.exception.PortInUse;
+import com.yang.serialport.exception.SerialPortParameterFailure;
+import com.yang.serialport.exception.TooManyListeners;
+
+/**
+ * 多串口I/O引擎:固定数量的I/O线程管理任意多个串口
+ * 每个串口固定分给一个I/O线程(按串口数均衡),I/O线程轮流读取各串口(每轮每个串口最多读一个缓冲区)
+ * 交给串口的PortHandler,并写出各串口发送队列中的数据;
+ * RXTX的DATA_AVAILABLE回调只唤醒对应的I/O线程,不在回调中读取或处理数据
+ * RXTX没有多路复用,空闲时I/O线程最多休眠pollIntervalMs后再检查一遍
+ */
+public class SerialIoEngine {
+
+    private final IoWorker[] workers;
+    private int readBufferSize = 1024;
+    private volatile SerialPortRegistry registry = SerialPortRegistry.getDefault();
+    private volatile long pollIntervalNanos = TimeUnit.MILLISECONDS.toNanos(10);
+    private volatile boolean running = true;
+
+    /**
+     * @param ioThreads I/O线程数
+     */
+    public SerialIoEngine(int ioThreads) {
+        if (ioThreads <= 0) {
+            throw new IllegalArgumentException("ioThreads must be positive");
+        }
+        workers = new IoWorker[ioThreads];
+        for (int i = 0; i < ioThreads; i++) {
+            workers[i] = new IoWorker("serial-io-" + i);
+            workers[i].thread.start();
+        }
+    }
+
+    /**
+     * 之后打开的串口每次最多读取的字节数
+     */
+    public void setReadBufferSize(int readBufferSize) {
+        this.readBufferSize = readBufferSize;
+    }
+
+    /**
+     * 打开串口时按名称查找串口的串口表,默认SerialPortRegistry.getDefault()
+     */
+    public void setRegistry(SerialPortRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * 没有收到唤醒时检查各串口的间隔
+     */
+    public void setPollIntervalMs(long pollIntervalMs) {
+        this.pollIntervalNanos = TimeUnit.MILLISECONDS.toNanos(pollIntervalMs);
+    }
+
+    /**
+     * 打开串口(8N1)并交给引擎管理
+     *
+     * @param portName 串口名称(如 "COM5")
+     * @param baudRate 波特率(如 115200)
+     * @param handler  收到的数据交给它处理
+     */
+    public SerialChannel open(String portName, int baudRate, PortHandler handler) throws NoSuchPort, PortInUse,
+            NotASerialPort, SerialPortParameterFailure, TooManyListeners, IOException {
+        CommPortIdentifier portId = registry.find(portName);
+        if (portId == null) {
+            throw new NoSuchPort();
+        }
+        CommPort commPort;
+        try {
+            commPort = portId.open(portName, 2000);
+        } catch (PortInUseException e) {
+            throw new PortInUse();
+        }
+        if (!(commPort instanceof SerialPort)) {
+            commPort.close();
+            throw new NotASerialPort();
+        }
+        SerialPort serialPort = (SerialPort) commPort;
+        try {
+            serialPort.setSerialPortParams(baudRate, SerialPort.DATABITS_8, SerialPort.STOPBITS_1,
+                    SerialPort.PARITY_NONE);
+        } catch (UnsupportedCommOperationException e) {
+            serialPort.close();
+            throw new SerialPortParameterFailure();
+        }
+        final SerialChannel channel;
+        try {
+            channel = new SerialChannel(this, portName, serialPort, serialPort.getInputStream(),
+                    serialPort.getOutputStream(), handler, readBufferSize);
+        } catch (IOException e) {
+            serialPort.close();
+            throw e;
+        }
+        try {
+            serialPort.addEventListener(new SerialPortEventListener() {
+                @Override
+                public void serialEvent(SerialPortEvent event) {
+                    if (event.getEventType() == SerialPortEvent.DATA_AVAILABLE) {
+                        channel.wakeup();
+                    }
+                }
+            });
+        } catch (TooManyListenersException e) {
+            channel.closeResources();
+            throw new TooManyListeners();
+        }
+        serialPort.notifyOnDataAvailable(true);
+        attach(channel);
+        return channel;
+    }
+
+    /**
+     * 把一对流作为串口交给引擎管理(已打开的其他串口实现、回环测试等),没有唤醒通知时按轮询间隔检查(见SerialChannel.wakeup)
+     *
+     * @param outputStream 只读时可以为null
+     */
+    public SerialChannel register(String name, InputStream inputStream, OutputStream outputStream,
+            PortHandler handler) {
+        SerialChannel channel = new SerialChannel(this, name, null, inputStream, outputStream, handler,
+                readBufferSize);
+        attach(channel);
+        return channel;
+    }
+
+    private synchronized void attach(SerialChannel channel) {
+        if (!running) {
+            channel.closeResources();
+            throw new IllegalStateException("engine is shut down");
+        }
+        IoWorker target = workers[0];
+        for (IoWorker w : workers) {
+            if (w.channels.length < target.channels.length) {
+                target = w;
+            }
+        }
+        channel.worker = target;
+        target.add(channel);
+        target.wakeup();
+    }
+
+    /**
+     * 关闭串口:I/O线程写完已排队的数据后关闭
+     */
+    public void close(SerialChannel channel) {
+        channel.requestClose();
+    }
+
+    /**
+     * 当前管理的所有串口
+     */
+    public List<SerialChannel> getChannels() {
+        List<SerialChannel> list = new ArrayList<>();
+        for (IoWorker w : workers) {
+            list.addAll(Arrays.asList(w.channels));
+        }
+        return list;
+    }
+
+    public int getIoThreads() {
+        return workers.length;
+    }
+
+    /**
+     * 关闭所有串口并停止I/O线程
+     */
+    public void shutdown() throws InterruptedException {
+        synchronized (this) {
+            running = false;
+        }
+        for (IoWorker w : workers) {
+            w.wakeup();
+        }
+        for (IoWorker w : workers) {
+            w.thread.join();
+        }
+    }
+
+    /**
+     * 一个I/O线程及分给它的串口
+     */
+    final class IoWorker implements Runnable {
+        final Thread thread;
+        // 写时复制的数组,遍历时不产生迭代器对象
+        volatile SerialChannel[] channels = new SerialChannel[0];
+
+        IoWorker(String name) {
+            thread = new Thread(this, name);
+            thread.setDaemon(true);
+        }
+
+        void wakeup() {
+            LockSupport.unpark(thread);
+        }
+
+        @Override
+        public void run() {
+            while (running) {
+                boolean busy = false;
+                for (SerialChannel channel : channels) {
+                    busy |= service(channel);
+                }
+                if (!busy) {
+                    // unpark先于park时park立即返回,不会漏掉唤醒
+                    LockSupport.parkNanos(this, pollIntervalNanos);
+                }
+            }
+            for (SerialChannel channel : channels) {
+                try {
+                    channel.flushWrites();
+                } catch (IOException ignored) {
+                }
+                remove(channel);
+            }
+        }
+
+        /**
+         * @return 是否读到或写出了数据
+         */
+        private boolean service(SerialChannel channel) {
+            try {
+                if (channel.isCloseRequested()) {
+                    channel.flushWrites();
+                    remove(channel);
+                    return false;
+                }
+                int n = channel.pollRead();
+                n += channel.flushWrites();
+                return n > 0;
+            } catch (IOException e) {
+                channel.fail(e);
+                remove(channel);
+                return false;
+            }
+        }
+
+        void add(SerialChannel channel) {
+            synchronized (SerialIoEngine.this) {
+                SerialChannel[] list = Arrays.copyOf(channels, channels.length + 1);
+                list[list.length - 1] = channel;
+                channels = list;
+            }
+        }
+
+        private void remove(SerialChannel channel) {
+            synchronized (SerialIoEngine.this) {
+                List<SerialChannel> list = new ArrayList<>(Arrays.asList(channels));
+                list.remove(channel);
+                channels = list.toArray(new SerialChannel[0]);
+            }
+            channel.closeResources();
+        }
+    }
+}
@@ -5,6 +5,7 @@ import gnu.io.CommPortIdentifier;
 import gnu.io.NoSuchPortException;
 import gnu.io.PortInUseException;
 import gnu.io.SerialPort;
+import gnu.io.SerialPortEvent;
 import gnu.io.SerialPortEventListener;
 import gnu.io.UnsupportedCommOperationException;
 
@@ -12,7 +13,8 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.ArrayList;
-import java.util.Enumeration;
+import java.util.Arrays;
+import java.util.List;
 import java.util.TooManyListenersException;
 
 import com.yang.serialport.exception.NoSuchPort;
@@ -35,6 +37,11 @@ public class SerialPortManager {
     private SerialPort serialPort;       // 串口对象
     private InputStream inputStream;     // 输入流
     private OutputStream outputStream;   // 输出流
+    private String portName;
+
+    private final byte[] readBuffer = new byte[1024];                   // 复用的接收缓冲区
+    private volatile OnDataListener[] dataListeners = new OnDataListener[0];
+    private volatile DebugSink debugSink;                               // 为null时不格式化收发数据
 
     /**
      * 打开串口
@@ -44,18 +51,8 @@ public class SerialPortManager {
      * @throws Exception 打开失败时抛出异常
      */
     public void openPort(String portName, int baudRate) throws Exception {
-        CommPortIdentifier portId = null;
-        Enumeration<?> portList = CommPortIdentifier.getPortIdentifiers();
-
-        // 查找指定串口
-        while (portList.hasMoreElements()) {
-            CommPortIdentifier currPortId = (CommPortIdentifier) portList.nextElement();
-            if (currPortId.getPortType() == CommPortIdentifier.PORT_SERIAL &&
-                currPortId.getName().equals(portName)) {
-                portId = currPortId;
-                break;
-            }
-        }
+        // 按名称查缓存的串口表,不再每次枚举全部串口
+        CommPortIdentifier portId = SerialPortRegistry.getDefault().find(portName);
 
         if (portId == null) {
             throw new Exception("❌ 未找到端口：" + portName);
@@ -63,6 +60,7 @@ public class SerialPortManager {
 
         // 打开串口
         serialPort = (SerialPort) portId.open(portName, 2000);
+        this.portName = portName;
         serialPort.setSerialPortParams(
                 baudRate,
                 SerialPort.DATABITS_8,
@@ -77,7 +75,7 @@ public class SerialPortManager {
         // 添加监听器
         addListener();
 
-        ShowUtils.showData("✅ 串口已打开: " + portName + " @ " + baudRate + "bps");
+        System.out.println("✅ 串口已打开: " + portName + " @ " + baudRate + "bps");
     }
 
     /**
@@ -95,25 +93,50 @@ public class SerialPortManager {
             });
             serialPort.notifyOnDataAvailable(true);
         } catch (TooManyListenersException e) {
-            ShowUtils.showData("⚠️ 监听器添加失败: " + e.getMessage());
+            System.err.println("⚠️ 监听器添加失败: " + e.getMessage());
         }
     }
 
+    /**
+     * 添加数据监听器,收到的数据以(缓冲区, 偏移, 长度)交给监听器
+     */
+    public synchronized void addDataListener(OnDataListener listener) {
+        OnDataListener[] list = Arrays.copyOf(dataListeners, dataListeners.length + 1);
+        list[list.length - 1] = listener;
+        dataListeners = list;
+    }
+
+    public synchronized void removeDataListener(OnDataListener listener) {
+        List<OnDataListener> list = new ArrayList<>(Arrays.asList(dataListeners));
+        list.remove(listener);
+        dataListeners = list.toArray(new OnDataListener[0]);
+    }
+
+    /**
+     * 设置收发数据的调试输出,null为关闭
+     */
+    public void setDebugSink(DebugSink debugSink) {
+        this.debugSink = debugSink;
+    }
+
     /**
      * 从串口读取数据
+     * 读入复用的缓冲区后交给监听器,不拷贝也不转换成字符串
      */
     private void readData() {
         try {
-            byte[] buffer = new byte[1024];
-            int len = inputStream.read(buffer);
+            int len = inputStream.read(readBuffer);
             if (len > 0) {
-                byte[] realData = new byte[len];
-                System.arraycopy(buffer, 0, realData, 0, len);
-                String hexData = ByteUtils.byteArrayToHexString(realData);
-                ShowUtils.showData("📥 接收到数据: " + hexData);
+                for (OnDataListener listener : dataListeners) {
+                    listener.onData(readBuffer, 0, len);
+                }
+                DebugSink sink = debugSink;
+                if (sink != null) {
+                    sink.onBytes(portName, false, readBuffer, 0, len);
+                }
             }
         } catch (IOException e) {
-            ShowUtils.showData("❌ 读取数据失败: " + e.getMessage());
+            System.err.println("❌ 读取数据失败: " + e.getMessage());
         }
     }
 
@@ -127,12 +150,15 @@ public class SerialPortManager {
             if (outputStream != null) {
                 outputStream.write(data);
                 outputStream.flush();
-                ShowUtils.showData("📤 已发送: " + ByteUtils.byteArrayToHexString(data));
+                DebugSink sink = debugSink;
+                if (sink != null) {
+                    sink.onBytes(portName, true, data, 0, data.length);
+                }
             } else {
-                ShowUtils.showData("❌ 串口未打开，无法发送。");
+                System.err.println("❌ 串口未打开，无法发送。");
             }
         } catch (IOException e) {
-            ShowUtils.showData("❌ 发送失败: " + e.getMessage());
+            System.err.println("❌ 发送失败: " + e.getMessage());
         }
     }
 
@@ -148,9 +174,9 @@ public class SerialPortManager {
                 serialPort.close();
                 serialPort = null;
             }
-            ShowUtils.showData("⚙️ 串口已关闭。");
+            System.out.println("⚙️ 串口已关闭。");
         } catch (IOException e) {
-            ShowUtils.showData("❌ 关闭串口失败: " + e.getMessage());
+            System.err.println("❌ 关闭串口失败: " + e.getMessage());
         }
     }
 
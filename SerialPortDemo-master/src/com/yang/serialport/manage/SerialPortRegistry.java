@@ -0,0 +1,244 @@
+package com.yang.serialport.manage;
+
+import gnu.io.CommPortIdentifier;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 串口表:在后台线程上枚举串口(CommPortIdentifier.getPortIdentifiers,虚拟串口多时要几秒),
+ * 按名称缓存CommPortIdentifier,串口增减时通知OnPortsChangedListener
+ * 打开和重连时用find按名称查找,只查缓存,从不在调用线程上枚举(RXTX的getPortIdentifier(String)找不到时会枚举全部串口);
+ * 未命中时返回null并请求一次后台扫描,新接入的串口在扫描后可以找到,重连时下一次重试即可打开
+ * 缓存是扫描后整体替换的只读表,查找不加锁
+ */
+public class SerialPortRegistry {
+
+    private static SerialPortRegistry instance;
+
+    private volatile Map<String, CommPortIdentifier> ports = Collections.emptyMap();
+    private volatile boolean scanQueued;    // 已请求、还没开始的扫描,未命中时不重复请求
+    private volatile List<String> portNames = Collections.emptyList();
+    private volatile OnPortsChangedListener[] listeners = new OnPortsChangedListener[0];
+    private final CountDownLatch firstScan = new CountDownLatch(1);
+    private ScheduledExecutorService scanner;
+    private long scans;
+    private long lastScanNanos;
+    private long lookups;               // 统计用,不要求精确
+    private long misses;
+
+    /**
+     * 默认串口表,SerialIoEngine和SerialPortManager打开串口时使用
+     */
+    public static synchronized SerialPortRegistry getDefault() {
+        if (instance == null) {
+            instance = new SerialPortRegistry();
+        }
+        return instance;
+    }
+
+    /**
+     * 开始后台扫描:马上扫描一次,之后每rescanIntervalMs扫描一次,0为只扫描一次(之后用refresh)
+     */
+    public synchronized void start(long rescanIntervalMs) {
+        if (scanner != null) {
+            return;
+        }
+        scanner = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "serial-port-scan");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        Runnable scan = new Runnable() {
+            @Override
+            public void run() {
+                scan();
+            }
+        };
+        if (rescanIntervalMs > 0) {
+            scanner.scheduleWithFixedDelay(scan, 0, rescanIntervalMs, TimeUnit.MILLISECONDS);
+        } else {
+            scanner.execute(scan);
+        }
+    }
+
+    public synchronized void stop() {
+        if (scanner != null) {
+            scanner.shutdownNow();
+            scanner = null;
+        }
+    }
+
+    /**
+     * 在后台马上重新扫描一次(如用户点击刷新),未start时在调用线程上扫描
+     */
+    public synchronized void refresh() {
+        if (scanner != null) {
+            scanner.execute(new Runnable() {
+                @Override
+                public void run() {
+                    scan();
+                }
+            });
+        } else {
+            scan();
+        }
+    }
+
+    /**
+     * 等待第一次扫描完成
+     *
+     * @return 超时返回false
+     */
+    public boolean awaitFirstScan(long timeoutMs) throws InterruptedException {
+        return firstScan.await(timeoutMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 添加串口增减的监听器,已扫描过时马上以当前串口表回调一次(added为全部串口)
+     */
+    public void addListener(OnPortsChangedListener listener) {
+        synchronized (this) {
+            OnPortsChangedListener[] list = Arrays.copyOf(listeners, listeners.length + 1);
+            list[list.length - 1] = listener;
+            listeners = list;
+        }
+        if (firstScan.getCount() == 0) {
+            List<String> names = portNames;
+            listener.onPortsChanged(names, names, Collections.<String>emptyList());
+        }
+    }
+
+    public synchronized void removeListener(OnPortsChangedListener listener) {
+        List<OnPortsChangedListener> list = new ArrayList<>(Arrays.asList(listeners));
+        list.remove(listener);
+        listeners = list.toArray(new OnPortsChangedListener[0]);
+    }
+
+    /**
+     * 最近一次扫描到的串口名(只读),还没有扫描过时为空
+     */
+    public List<String> getPortNames() {
+        return portNames;
+    }
+
+    /**
+     * 按名称在缓存中查找串口;还没有扫描过时先等第一次扫描(未start时按start(0)开始)
+     *
+     * @return 不在缓存中时返回null,并请求一次后台扫描
+     */
+    public CommPortIdentifier find(String portName) {
+        lookups++;
+        if (firstScan.getCount() > 0) {
+            ensureScanned();
+        }
+        CommPortIdentifier portId = ports.get(portName);
+        if (portId != null) {
+            return portId;
+        }
+        misses++;
+        if (!scanQueued) {
+            scanQueued = true;
+            rescanInBackground();
+        }
+        return null;
+    }
+
+    /**
+     * 请求一次后台扫描,stop之后也不在调用线程上扫描
+     */
+    private synchronized void rescanInBackground() {
+        if (scanner == null) {
+            start(0);
+        } else {
+            refresh();
+        }
+    }
+
+    private void ensureScanned() {
+        // 未start时在后台只扫描一次,之后的未命中由refresh在后台扫描
+        start(0);
+        try {
+            firstScan.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 枚举一遍串口并替换缓存,由扫描线程调用
+     */
+    void scan() {
+        scanQueued = false;
+        long start = System.nanoTime();
+        Map<String, CommPortIdentifier> map = new HashMap<>();
+        List<String> names = new ArrayList<>();
+        try {
+            Enumeration<?> portList = CommPortIdentifier.getPortIdentifiers();
+            while (portList.hasMoreElements()) {
+                CommPortIdentifier portId = (CommPortIdentifier) portList.nextElement();
+                if (portId.getPortType() == CommPortIdentifier.PORT_SERIAL && !map.containsKey(portId.getName())) {
+                    map.put(portId.getName(), portId);
+                    names.add(portId.getName());
+                }
+            }
+        } catch (RuntimeException | Error e) {
+            // 枚举失败(如没有RXTX动态库)时不让find一直等第一次扫描
+            firstScan.countDown();
+            throw e;
+        }
+        Collections.sort(names);
+        List<String> added = new ArrayList<>();
+        List<String> removed = new ArrayList<>();
+        OnPortsChangedListener[] list;
+        synchronized (this) {
+            List<String> old = portNames;
+            for (String name : names) {
+                if (!old.contains(name)) {
+                    added.add(name);
+                }
+            }
+            for (String name : old) {
+                if (!map.containsKey(name)) {
+                    removed.add(name);
+                }
+            }
+            ports = map;
+            portNames = Collections.unmodifiableList(names);
+            scans++;
+            lastScanNanos = System.nanoTime() - start;
+            list = listeners;
+        }
+        boolean first = firstScan.getCount() > 0;
+        firstScan.countDown();
+        if (first || !added.isEmpty() || !removed.isEmpty()) {
+            for (OnPortsChangedListener listener : list) {
+                listener.onPortsChanged(portNames, added, removed);
+            }
+        }
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "SerialPortRegistry{" +
+                "ports=" + portNames +
+                ", scans=" + scans +
+                ", lastScanMs=" + TimeUnit.NANOSECONDS.toMillis(lastScanNanos) +
+                ", lookups=" + lookups +
+                ", misses=" + misses +
+                '}';
+    }
+}
@@ -26,6 +26,7 @@ import javax.swing.JPanel;
 import javax.swing.JScrollPane;
 import javax.swing.JTextArea;
 import javax.swing.JTextField;
+import javax.swing.SwingUtilities;
 
 import com.yang.serialport.exception.NoSuchPort;
 import com.yang.serialport.exception.NotASerialPort;
@@ -34,8 +35,12 @@ import com.yang.serialport.exception.SendDataToSerialPortFailure;
 import com.yang.serialport.exception.SerialPortOutputStreamCloseFailure;
 import com.yang.serialport.exception.SerialPortParameterFailure;
 import com.yang.serialport.exception.TooManyListeners;
+import com.yang.serialport.manage.DebugSink;
+import com.yang.serialport.manage.OnPortsChangedListener;
 import com.yang.serialport.manage.SerialPortManager;
+import com.yang.serialport.manage.SerialPortRegistry;
 import com.yang.serialport.utils.ByteUtils;
+import com.yang.serialport.utils.HexDump;
 import com.yang.serialport.utils.ShowUtils;
 
 /**
@@ -59,6 +64,9 @@ public class MainFrame extends JFrame {
 
     private SerialPortManager serialPortManager;
 
+    // 后台重新扫描串口的间隔,扫描到增减时更新下拉框
+    private static final long PORT_RESCAN_INTERVAL_MS = 10000;
+
     public MainFrame() {
         setTitle("WSN 实验4.2 串口调试程序");
         setSize(700, 500);
@@ -116,21 +124,62 @@ public class MainFrame extends JFrame {
 
         // 把 ShowUtils 的输出绑定到文本框
         ShowUtils.setOutputArea(receiveArea);
+
+        // 收发数据以16进制显示在文本框中
+        serialPortManager.setDebugSink(new DebugSink() {
+            @Override
+            public void onBytes(String portName, boolean sent, byte[] buf, int off, int len) {
+                StringBuilder sb = new StringBuilder(sent ? "📤 已发送: " : "📥 接收到数据: ");
+                appendReceive(HexDump.append(sb, buf, off, len, false).toString());
+            }
+        });
+    }
+
+    /**
+     * 在事件线程上追加一行到接收区,可在串口线程上调用
+     */
+    private void appendReceive(final String line) {
+        SwingUtilities.invokeLater(new Runnable() {
+            @Override
+            public void run() {
+                receiveArea.append(line + "\n");
+            }
+        });
     }
 
     /**
-     * 扫描可用串口并填入下拉框
+     * 在后台扫描可用串口,扫描结果在事件线程上填入下拉框,不阻塞界面
      */
     private void listAvailablePorts() {
-        Enumeration<?> portList = CommPortIdentifier.getPortIdentifiers();
-        while (portList.hasMoreElements()) {
-            CommPortIdentifier portId = (CommPortIdentifier) portList.nextElement();
-            if (portId.getPortType() == CommPortIdentifier.PORT_SERIAL) {
-                portListCombo.addItem(portId.getName());
+        portListCombo.addItem("正在扫描串口...");
+        SerialPortRegistry registry = SerialPortRegistry.getDefault();
+        registry.addListener(new OnPortsChangedListener() {
+            @Override
+            public void onPortsChanged(final List<String> ports, List<String> added, List<String> removed) {
+                SwingUtilities.invokeLater(new Runnable() {
+                    @Override
+                    public void run() {
+                        updatePortList(ports);
+                    }
+                });
             }
+        });
+        registry.start(PORT_RESCAN_INTERVAL_MS);
+    }
+
+    /**
+     * 用扫描到的串口替换下拉框内容,保留原来的选择
+     */
+    private void updatePortList(List<String> ports) {
+        Object selected = portListCombo.getSelectedItem();
+        portListCombo.removeAllItems();
+        for (String port : ports) {
+            portListCombo.addItem(port);
         }
-        if (portListCombo.getItemCount() == 0) {
+        if (ports.isEmpty()) {
             portListCombo.addItem("无可用端口");
+        } else if (ports.contains(selected)) {
+            portListCombo.setSelectedItem(selected);
         }
     }
 
@@ -0,0 +1,55 @@
+package com.yang.serialport.utils;
+
+/**
+ * 字节转16进制显示,直接写入调用方的StringBuilder,不产生中间字符串
+ */
+public class HexDump {
+
+	private static final char[] DIGITS = "0123456789ABCDEF".toCharArray();
+
+	/**
+	 * 把data[off, off + len)以16进制追加到sb
+	 * 
+	 * @param toPrint
+	 *            是否为了打印输出，如果为true则会每4字节添加一个空格(与ByteUtils.byteArrayToHexString一致)
+	 * @return sb
+	 */
+	public static StringBuilder append(StringBuilder sb, byte[] data, int off, int len, boolean toPrint) {
+		for (int i = 0; i < len; i++) {
+			int b = data[off + i] & 0xFF;
+			sb.append(DIGITS[b >>> 4]).append(DIGITS[b & 0x0F]);
+			if (toPrint && (i + 1) % 4 == 0) {
+				sb.append(' ');
+			}
+		}
+		return sb;
+	}
+
+	public static String toHex(byte[] data, int off, int len) {
+		return append(new StringBuilder(len * 2), data, off, len, false).toString();
+	}
+
+	/**
+	 * 16进制字符串转字节数组,忽略空格
+	 * 
+	 * @param hex
+	 *            如 "FFFFB6250100FEFE"
+	 * @return 转换后的字节数组
+	 */
+	public static byte[] parse(String hex) {
+		String s = hex.replace(" ", "");
+		if (s.length() % 2 != 0) {
+			throw new IllegalArgumentException("odd hex length: " + hex);
+		}
+		byte[] data = new byte[s.length() / 2];
+		for (int i = 0; i < data.length; i++) {
+			int hi = Character.digit(s.charAt(2 * i), 16);
+			int lo = Character.digit(s.charAt(2 * i + 1), 16);
+			if (hi < 0 || lo < 0) {
+				throw new IllegalArgumentException("bad hex: " + hex);
+			}
+			data[i] = (byte) ((hi << 4) | lo);
+		}
+		return data;
+	}
+}